@@ -0,0 +1,186 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks single lookups of class, method and field names and descriptor remapping. Every invocation looks up the
+ * next of a fixed set of random probes, so that results are not skewed by always hitting the same cache lines.
+ * <br>
+ * The generated mappings contain about 16 members per class, so the larger size covers lookups among more than a
+ * million members.
+ */
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+  /** The amount of probes, must be a power of two. */
+  static final int PROBES = 1 << 10;
+  /** The amount of relocated packages if relocations are enabled. */
+  private static final int RELOCATED_PACKAGES = 16;
+  /** A member name never generated, for lookups of unmapped members. */
+  private static final String MISSING_NAME = "missing$";
+
+  /** The amount of classes of the benchmarked mappings. */
+  @Param({"1000", "100000"})
+  public int classes;
+
+  /** Whether the benchmarked mappings contain package relocations. */
+  @Param({"false", "true"})
+  public boolean relocations;
+
+  /** The benchmarked mappings. */
+  private Mappings mappings;
+  /** The classes declaring the probed methods. */
+  private final String[] methodClasses = new String[PROBES];
+  /** The names of the probed methods. */
+  private final String[] methodNames = new String[PROBES];
+  /** The descriptors of the probed methods. */
+  private final String[] methodDescriptors = new String[PROBES];
+  /** The classes declaring the probed fields. */
+  private final String[] fieldClasses = new String[PROBES];
+  /** The names of the probed fields. */
+  private final String[] fieldNames = new String[PROBES];
+  /** The descriptors of the probed fields. */
+  private final String[] fieldDescriptors = new String[PROBES];
+  /** The index of the next probe. */
+  private int next;
+
+  /** Creates the mappings and samples random members as probes. */
+  @Setup
+  public void setup() {
+    int relocatedPackages = relocations ? RELOCATED_PACKAGES : 0;
+    mappings = new MappingsGenerator(0, classes).relocatedPackages(relocatedPackages).generate(0);
+    Random random = new Random(1);
+    int[] seen = new int[2];
+    mappings.forAllMethods((cName, name, desc, renamed) -> {
+      int slot = sample(random, seen[0]++);
+      if(slot < 0) return;
+      methodClasses[slot] = cName;
+      methodNames[slot] = name;
+      methodDescriptors[slot] = desc;
+    });
+    mappings.forAllFields((cName, name, desc, renamed) -> {
+      int slot = sample(random, seen[1]++);
+      if(slot < 0) return;
+      fieldClasses[slot] = cName;
+      fieldNames[slot] = name;
+      fieldDescriptors[slot] = desc;
+    });
+    if(seen[0] < PROBES || seen[1] < PROBES)
+      throw new IllegalStateException("Too few members for " + PROBES + " probes");
+  }
+
+  /**
+   * Selects the probe slot of a member by reservoir sampling, so that all members are probed with equal probability.
+   *
+   * @param random the source of randomness
+   * @param index the amount of members visited before this one
+   * @return the slot to store the member in or {@code -1} if it is not sampled
+   */
+  static int sample(Random random, int index) {
+    int slot = index < PROBES ? index : random.nextInt(index + 1);
+    return slot < PROBES ? slot : -1;
+  }
+
+  /**
+   * Advances to the next probe.
+   *
+   * @return the index of the probe
+   */
+  private int nextProbe() {
+    return next++ & (PROBES - 1);
+  }
+
+  /**
+   * Looks up a class name.
+   *
+   * @return the mapped name
+   */
+  @Benchmark
+  public String getClassName() {
+    return mappings.getClassName(methodClasses[nextProbe()]);
+  }
+
+  /**
+   * Looks up a mapped method.
+   *
+   * @return the mapped name
+   */
+  @Benchmark
+  public String getMethodNameHit() {
+    int i = nextProbe();
+    return mappings.getMethodName(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Looks up an unmapped method of a mapped class.
+   *
+   * @return {@code null}
+   */
+  @Benchmark
+  public String getMethodNameMiss() {
+    int i = nextProbe();
+    return mappings.getMethodName(methodClasses[i], MISSING_NAME, methodDescriptors[i]);
+  }
+
+  /**
+   * Looks up a mapped field.
+   *
+   * @return the mapped name
+   */
+  @Benchmark
+  public String getFieldNameHit() {
+    int i = nextProbe();
+    return mappings.getFieldName(fieldClasses[i], fieldNames[i], fieldDescriptors[i]);
+  }
+
+  /**
+   * Looks up an unmapped field of a mapped class.
+   *
+   * @return {@code null}
+   */
+  @Benchmark
+  public String getFieldNameMiss() {
+    int i = nextProbe();
+    return mappings.getFieldName(fieldClasses[i], MISSING_NAME, fieldDescriptors[i]);
+  }
+
+  /**
+   * Looks up the exceptions of a method. Only some methods declare exceptions, so most lookups miss.
+   *
+   * @return the exceptions
+   */
+  @Benchmark
+  public Set<String> getExceptions() {
+    int i = nextProbe();
+    return mappings.getExceptions(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Checks whether a method declares exceptions.
+   *
+   * @return whether the method declares exceptions
+   */
+  @Benchmark
+  public boolean hasExceptionsFor() {
+    int i = nextProbe();
+    return mappings.hasExceptionsFor(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Remaps a method descriptor referencing mapped classes.
+   *
+   * @return the remapped descriptor
+   */
+  @Benchmark
+  public String remapDescriptor() {
+    return mappings.remapDescriptor(methodDescriptors[nextProbe()]);
+  }
+}
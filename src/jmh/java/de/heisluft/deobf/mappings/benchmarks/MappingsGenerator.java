@@ -0,0 +1,342 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import de.heisluft.deobf.mappings.MappingsHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * A deterministic generator of synthetic mappings resembling those of obfuscated programs, for benchmarks and stress
+ * tests at production scale.
+ * <br>
+ * Classes are named like ProGuard names them ({@code a}, {@code b}, ..., {@code aa}) and spread across packages whose
+ * depth follows a configurable distribution. Members reuse the same short names across classes, method names are
+ * overloaded with several descriptors referencing other generated classes, and fields are optionally mapped without
+ * descriptors. Some methods declare exceptions, and some packages can be relocated.
+ * <br>
+ * The obfuscated structure only depends on the seed and settings, while mapped names are drawn from a separate seed
+ * given to {@link #generate(long)}. Mappings generated with different name seeds thus map the same classes and
+ * members, which is what conversions and mediations between mappings need.
+ */
+public final class MappingsGenerator {
+
+  /** The field descriptors of primitive types. */
+  private static final String[] PRIMITIVES = {"Z", "B", "C", "S", "I", "J", "F", "D"};
+  /** Exceptions commonly declared by methods. */
+  private static final String[] COMMON_EXCEPTIONS = {"java/io/IOException", "java/lang/Exception"};
+  /** The letters of generated names. */
+  private static final int ALPHABET_SIZE = 26;
+  /** The amount of subpackages of each package. */
+  private static final int PACKAGE_BRANCHING = 8;
+  /** The maximum amount of method parameters. */
+  private static final int MAX_PARAMETERS = 4;
+  /** The inverse probability of a type being a reference type. */
+  private static final int REFERENCE_ODDS = 2;
+  /** The inverse probability of a type being an array. */
+  private static final int ARRAY_ODDS = 8;
+  /** The inverse probability of a method returning void. */
+  private static final int VOID_ODDS = 2;
+  /** The inverse probability of a method declaring a common instead of a generated exception. */
+  private static final int COMMON_EXCEPTION_ODDS = 2;
+  /** The default relative weights of package depths, starting with the default package. */
+  private static final double[] DEFAULT_PACKAGE_DEPTH_WEIGHTS = {1, 2, 4, 2, 1};
+  /** The default amount of distinct method names per class. */
+  private static final int DEFAULT_METHOD_NAMES = 6;
+  /** The default maximum amount of descriptors per method name. */
+  private static final int DEFAULT_MAX_OVERLOADS = 3;
+  /** The default amount of fields per class. */
+  private static final int DEFAULT_FIELDS = 4;
+  /** The default ratio of methods declaring exceptions. */
+  private static final double DEFAULT_EXCEPTION_RATIO = 0.1;
+
+  /** The seed of the obfuscated structure. */
+  private final long seed;
+  /** The amount of classes. */
+  private final int classes;
+  /** The relative weights of package depths, starting with the default package. */
+  private double[] packageDepthWeights = DEFAULT_PACKAGE_DEPTH_WEIGHTS;
+  /** The amount of distinct method names per class. */
+  private int methodNames = DEFAULT_METHOD_NAMES;
+  /** The maximum amount of descriptors per method name. */
+  private int maxOverloads = DEFAULT_MAX_OVERLOADS;
+  /** The amount of fields per class. */
+  private int fields = DEFAULT_FIELDS;
+  /** The ratio of fields mapped without descriptors. */
+  private double descriptorlessFieldRatio;
+  /** The ratio of methods declaring exceptions. */
+  private double exceptionRatio = DEFAULT_EXCEPTION_RATIO;
+  /** The maximum amount of exceptions per method. */
+  private int maxExceptions = 2;
+  /** The amount of packages to relocate. */
+  private int relocatedPackages;
+
+  /**
+   * Constructs a new generator with default settings.
+   *
+   * @param seed the seed of the obfuscated structure
+   * @param classes the amount of classes, must be positive
+   */
+  public MappingsGenerator(long seed, int classes) {
+    if(classes <= 0) throw new IllegalArgumentException("classes must be positive, got " + classes);
+    this.seed = seed;
+    this.classes = classes;
+  }
+
+  /**
+   * Writes generated mappings through every registered handler.
+   * Arguments: output directory, amount of classes, optional seed.
+   *
+   * @param args the command line arguments
+   * @throws IOException if a file could not be written
+   */
+  public static void main(String[] args) throws IOException {
+    if(args.length < 2) {
+      System.err.println("Usage: MappingsGenerator <outputDir> <classes> [seed]");
+      return;
+    }
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+    MappingsGenerator generator = new MappingsGenerator(seed, Integer.parseInt(args[1])).relocatedPackages(2);
+    Path dir = Files.createDirectories(Paths.get(args[0]));
+    for(Path written : writeAll(generator.generate(seed), dir, "mappings")) System.out.println(written);
+  }
+
+  /**
+   * Sets the distribution of package depths.
+   *
+   * @param weights the relative weight of each depth, starting with the default package
+   * @return this generator
+   */
+  public MappingsGenerator packageDepths(double... weights) {
+    if(weights.length == 0 || Arrays.stream(weights).sum() <= 0)
+      throw new IllegalArgumentException("At least one weight must be positive");
+    packageDepthWeights = weights.clone();
+    return this;
+  }
+
+  /**
+   * Sets the amount of methods per class.
+   *
+   * @param names the amount of distinct method names per class
+   * @param overloads the maximum amount of descriptors per name, at least 1
+   * @return this generator
+   */
+  public MappingsGenerator methods(int names, int overloads) {
+    if(overloads < 1) throw new IllegalArgumentException("overloads must be at least 1, got " + overloads);
+    methodNames = names;
+    maxOverloads = overloads;
+    return this;
+  }
+
+  /**
+   * Sets the amount of fields per class.
+   *
+   * @param perClass the amount of fields per class
+   * @return this generator
+   */
+  public MappingsGenerator fields(int perClass) {
+    fields = perClass;
+    return this;
+  }
+
+  /**
+   * Sets the ratio of fields mapped without descriptors, as formats like SRG do.
+   *
+   * @param ratio the ratio between 0 and 1
+   * @return this generator
+   */
+  public MappingsGenerator descriptorlessFields(double ratio) {
+    descriptorlessFieldRatio = ratio;
+    return this;
+  }
+
+  /**
+   * Sets how many methods declare exceptions.
+   *
+   * @param ratio the ratio of methods declaring exceptions, between 0 and 1
+   * @param max the maximum amount of exceptions per method
+   * @return this generator
+   */
+  public MappingsGenerator exceptions(double ratio, int max) {
+    exceptionRatio = ratio;
+    maxExceptions = max;
+    return this;
+  }
+
+  /**
+   * Sets the amount of packages to relocate.
+   *
+   * @param packages the amount of packages
+   * @return this generator
+   */
+  public MappingsGenerator relocatedPackages(int packages) {
+    relocatedPackages = packages;
+    return this;
+  }
+
+  /**
+   * Generates mappings. Calling this again with the same name seed yields equal mappings.
+   *
+   * @param namesSeed the seed of the mapped names
+   * @return the generated mappings
+   */
+  @SuppressWarnings("deprecation")
+  public Mappings generate(long namesSeed) {
+    Random random = new Random(seed);
+    Random names = new Random(namesSeed);
+    String[] classNames = classNames(random);
+    MappingsBuilder builder = new MappingsBuilder();
+    Set<String> packages = new LinkedHashSet<>();
+    for(String cName : classNames) {
+      int slash = cName.lastIndexOf('/');
+      String pkg = cName.substring(0, slash + 1);
+      if(!pkg.isEmpty()) packages.add(pkg);
+      builder.addClassMapping(cName, "net/" + pkg + "Class" + mappedId(names));
+      for(int f = 0; f < fields; f++) {
+        String fName = shortName(f);
+        String fDesc = type(random, classNames);
+        String rName = "field_" + mappedId(names);
+        if(random.nextDouble() < descriptorlessFieldRatio) builder.addFieldMapping(cName, fName, rName);
+        else builder.addFieldMapping(cName, fName, fDesc, rName);
+      }
+      for(int m = 0; m < methodNames; m++) {
+        String mName = shortName(m);
+        int overloads = 1 + random.nextInt(maxOverloads);
+        for(int o = 0; o < overloads; o++) {
+          String mDesc = methodDescriptor(random, classNames);
+          builder.addMethodMapping(cName, mName, mDesc, "func_" + mappedId(names));
+          if(random.nextDouble() < exceptionRatio)
+            builder.addExceptions(cName, mName, mDesc, randomExceptions(random, classNames));
+        }
+      }
+    }
+    int relocated = 0;
+    for(String pkg : packages) {
+      if(relocated++ == relocatedPackages) break;
+      builder.addPackageRelocation("^" + pkg + "[^\\/]+$", "relocated/" + pkg);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes mappings through every registered handler. Handlers which cannot write mappings are skipped.
+   *
+   * @param mappings the mappings to write
+   * @param dir the directory to write to
+   * @param baseName the file name without extension
+   * @return the written files
+   * @throws IOException if a file could not be written
+   */
+  public static List<Path> writeAll(Mappings mappings, Path dir, String baseName) throws IOException {
+    List<Path> written = new ArrayList<>();
+    for(MappingsHandler handler : ServiceLoader.load(MappingsHandler.class)) {
+      Path file = dir.resolve(baseName + "." + handler.fileExt());
+      try {
+        handler.writeMappings(mappings, file);
+        written.add(file);
+      } catch(UnsupportedOperationException e) {
+        // the handler cannot write mappings
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Generates the obfuscated names of all classes.
+   *
+   * @param random the source of randomness of the structure
+   * @return the binary class names
+   */
+  private String[] classNames(Random random) {
+    double total = Arrays.stream(packageDepthWeights).sum();
+    String[] names = new String[classes];
+    for(int i = 0; i < classes; i++) {
+      double pick = random.nextDouble() * total;
+      int depth = 0;
+      while(depth < packageDepthWeights.length - 1 && pick >= packageDepthWeights[depth])
+        pick -= packageDepthWeights[depth++];
+      StringBuilder name = new StringBuilder();
+      for(int d = 0; d < depth; d++) name.append(shortName(random.nextInt(PACKAGE_BRANCHING))).append('/');
+      names[i] = name.append(shortName(i)).toString();
+    }
+    return names;
+  }
+
+  /**
+   * Generates a random field type.
+   *
+   * @param random the source of randomness of the structure
+   * @param classNames the names of all classes
+   * @return the field descriptor
+   */
+  private static String type(Random random, String[] classNames) {
+    String element = random.nextInt(REFERENCE_ODDS) == 0
+        ? "L" + classNames[random.nextInt(classNames.length)] + ";"
+        : PRIMITIVES[random.nextInt(PRIMITIVES.length)];
+    return random.nextInt(ARRAY_ODDS) == 0 ? "[" + element : element;
+  }
+
+  /**
+   * Generates a random method descriptor.
+   *
+   * @param random the source of randomness of the structure
+   * @param classNames the names of all classes
+   * @return the method descriptor
+   */
+  private static String methodDescriptor(Random random, String[] classNames) {
+    StringBuilder desc = new StringBuilder("(");
+    int parameters = random.nextInt(MAX_PARAMETERS + 1);
+    for(int p = 0; p < parameters; p++) desc.append(type(random, classNames));
+    return desc.append(')').append(random.nextInt(VOID_ODDS) == 0 ? "V" : type(random, classNames)).toString();
+  }
+
+  /**
+   * Generates a random list of exceptions.
+   *
+   * @param random the source of randomness of the structure
+   * @param classNames the names of all classes
+   * @return the exception class names
+   */
+  private List<String> randomExceptions(Random random, String[] classNames) {
+    int count = 1 + random.nextInt(Math.max(1, maxExceptions));
+    List<String> exceptions = new ArrayList<>(count);
+    for(int i = 0; i < count; i++) {
+      exceptions.add(random.nextInt(COMMON_EXCEPTION_ODDS) == 0
+          ? COMMON_EXCEPTIONS[random.nextInt(COMMON_EXCEPTIONS.length)]
+          : classNames[random.nextInt(classNames.length)]);
+    }
+    return exceptions;
+  }
+
+  /**
+   * Generates the id part of a mapped name.
+   *
+   * @param names the source of randomness of the mapped names
+   * @return a non-negative id
+   */
+  private static int mappedId(Random names) {
+    return names.nextInt() & Integer.MAX_VALUE;
+  }
+
+  /**
+   * Encodes a number like ProGuard names classes and members: a, b, ..., z, aa, ab, ...
+   *
+   * @param index the number to encode
+   * @return the short name
+   */
+  static String shortName(int index) {
+    StringBuilder name = new StringBuilder();
+    for(int i = index; i >= 0; i = i / ALPHABET_SIZE - 1) name.append((char) ('a' + i % ALPHABET_SIZE));
+    return name.reverse().toString();
+  }
+}
@@ -0,0 +1,118 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks lookups of the exceptions and parameters of methods, which are keyed by member like method mappings.
+ * Hits probe methods declaring exceptions, misses probe methods that do not declare any.
+ * <br>
+ * The generated mappings contain about 16 members per class, so the default size covers lookups among about a million
+ * members.
+ */
+@State(Scope.Benchmark)
+public class MemberLookupBenchmark {
+
+  /** The amount of probes of each kind, shared with {@link LookupBenchmark#sample(Random, int)}. */
+  private static final int PROBES = LookupBenchmark.PROBES;
+  /** The ratio of methods declaring exceptions. */
+  private static final double EXCEPTION_RATIO = 0.25;
+  /** The maximum amount of exceptions per method. */
+  private static final int MAX_EXCEPTIONS = 3;
+
+  /** The amount of classes of the benchmarked mappings. */
+  @Param({"65536"})
+  public int classes;
+
+  /** The benchmarked mappings. */
+  private Mappings mappings;
+  /** The classes declaring the probed methods, hits first, then misses. */
+  private final String[] methodClasses = new String[PROBES * 2];
+  /** The names of the probed methods, indexed like {@link #methodClasses}. */
+  private final String[] methodNames = new String[PROBES * 2];
+  /** The descriptors of the probed methods, indexed like {@link #methodClasses}. */
+  private final String[] methodDescriptors = new String[PROBES * 2];
+  /** The index of the next probe. */
+  private int next;
+
+  /** Creates the mappings and samples random methods with and without exceptions as probes. */
+  @Setup
+  public void setup() {
+    mappings = new MappingsGenerator(0, classes).exceptions(EXCEPTION_RATIO, MAX_EXCEPTIONS).generate(0);
+    Random random = new Random(1);
+    int[] seen = new int[2];
+    mappings.forAllMethods((cName, name, desc, renamed) -> {
+      int kind = mappings.hasExceptionsFor(cName, name, desc) ? 0 : 1;
+      int slot = LookupBenchmark.sample(random, seen[kind]++);
+      if(slot < 0) return;
+      methodClasses[kind * PROBES + slot] = cName;
+      methodNames[kind * PROBES + slot] = name;
+      methodDescriptors[kind * PROBES + slot] = desc;
+    });
+    if(seen[0] < PROBES || seen[1] < PROBES)
+      throw new IllegalStateException("Too few methods for " + PROBES + " probes");
+  }
+
+  /**
+   * Advances to the next probe.
+   *
+   * @param misses whether to probe methods without exceptions
+   * @return the index of the probe
+   */
+  private int nextProbe(boolean misses) {
+    return (next++ & (PROBES - 1)) + (misses ? PROBES : 0);
+  }
+
+  /**
+   * Looks up the exceptions of a method declaring some.
+   *
+   * @return the exceptions
+   */
+  @Benchmark
+  public Set<String> getExceptionsHit() {
+    int i = nextProbe(false);
+    return mappings.getExceptions(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Looks up the exceptions of a method not declaring any.
+   *
+   * @return the empty set
+   */
+  @Benchmark
+  public Set<String> getExceptionsMiss() {
+    int i = nextProbe(true);
+    return mappings.getExceptions(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Looks up the parameters of a method with extra data.
+   *
+   * @return the parameters
+   */
+  @Benchmark
+  public List<String> getParameters() {
+    int i = nextProbe(false);
+    return mappings.getParameters(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Checks whether a method declares exceptions, half of the probes do.
+   *
+   * @return whether the method declares exceptions
+   */
+  @Benchmark
+  public boolean hasExceptionsFor() {
+    int i = next & (PROBES * 2 - 1);
+    next++;
+    return mappings.hasExceptionsFor(methodClasses[i], methodNames[i], methodDescriptors[i]);
+  }
+}
@@ -0,0 +1,69 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsHandler;
+import de.heisluft.deobf.mappings.MappingsHandlers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmarks parsing a file with each builtin handler. The files are written by the benchmarked handler itself.
+ */
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+  /** The amount of classes of the parsed mappings. */
+  @Param({"1000", "100000"})
+  public int classes;
+
+  /** The file extension of the benchmarked handler. */
+  @Param({"srg", "frg", "frg2", "rgs", "exc", "mbin"})
+  public String format;
+
+  /** The benchmarked handler. */
+  private MappingsHandler handler;
+  /** The file to parse. */
+  private Path input;
+
+  /**
+   * Writes the file to parse.
+   *
+   * @throws IOException if the file could not be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    handler = MappingsHandlers.findHandler(format);
+    input = Files.createTempFile("benchmark", "." + format);
+    Mappings mappings = new MappingsGenerator(0, classes).generate(0);
+    handler.writeMappings(mappings, input);
+  }
+
+  /**
+   * Deletes the parsed file.
+   *
+   * @throws IOException if the file could not be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(input);
+  }
+
+  /**
+   * Parses the file.
+   *
+   * @return the parsed mappings
+   * @throws IOException if the file could not be read
+   */
+  @Benchmark
+  public Mappings parseMappings() throws IOException {
+    return handler.parseMappings(input);
+  }
+}
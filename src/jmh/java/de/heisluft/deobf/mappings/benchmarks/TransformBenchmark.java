@@ -0,0 +1,76 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the transformations creating new mappings from existing ones. The mappings {@code a} and {@code c} map
+ * the same classes and members, {@code b} maps the names {@code a} maps to.
+ */
+@State(Scope.Benchmark)
+public class TransformBenchmark {
+
+  /** The amount of classes of the transformed mappings. */
+  @Param({"1000", "100000"})
+  public int classes;
+
+  /** The mappings a-&gt;b. */
+  private Mappings ab;
+  /** The mappings b-&gt;c. */
+  private Mappings bc;
+  /** The mappings a-&gt;c. */
+  private Mappings ac;
+
+  /** Creates the transformed mappings. */
+  @Setup
+  public void setup() {
+    MappingsGenerator generator = new MappingsGenerator(0, classes);
+    ab = generator.generate(0);
+    ac = generator.generate(1);
+    bc = ab.generateReverseMappings().generateConversionMethods(ac);
+  }
+
+  /**
+   * Reverses mappings.
+   *
+   * @return the b-&gt;a mappings
+   */
+  @Benchmark
+  public Mappings generateReverseMappings() {
+    return ab.generateReverseMappings();
+  }
+
+  /**
+   * Converts mappings.
+   *
+   * @return the a-&gt;c mappings
+   */
+  @Benchmark
+  public Mappings generateConversionMethods() {
+    return ab.generateConversionMethods(bc);
+  }
+
+  /**
+   * Mediates between mappings.
+   *
+   * @return the b-&gt;c mappings
+   */
+  @Benchmark
+  public Mappings generateMediatorMappings() {
+    return ab.generateMediatorMappings(ac);
+  }
+
+  /**
+   * Joins mappings.
+   *
+   * @return the joined mappings
+   */
+  @Benchmark
+  public Mappings join() {
+    return ab.join(ac);
+  }
+}
@@ -0,0 +1,67 @@
+package de.heisluft.deobf.mappings.benchmarks;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsHandler;
+import de.heisluft.deobf.mappings.MappingsHandlers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Benchmarks writing mappings with each builtin handler capable of writing. */
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+
+  /** The amount of classes of the written mappings. */
+  @Param({"1000", "100000"})
+  public int classes;
+
+  /** The file extension of the benchmarked handler. */
+  @Param({"frg", "frg2", "mbin"})
+  public String format;
+
+  /** The benchmarked handler. */
+  private MappingsHandler handler;
+  /** The mappings to write. */
+  private Mappings mappings;
+  /** The file to write to. */
+  private Path output;
+
+  /**
+   * Creates the mappings to write.
+   *
+   * @throws IOException if the output file could not be created
+   */
+  @Setup
+  public void setup() throws IOException {
+    handler = MappingsHandlers.findHandler(format);
+    mappings = new MappingsGenerator(0, classes).generate(0);
+    output = Files.createTempFile("benchmark", "." + format);
+  }
+
+  /**
+   * Deletes the written file.
+   *
+   * @throws IOException if the file could not be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(output);
+  }
+
+  /**
+   * Writes the mappings.
+   *
+   * @throws IOException if the file could not be written
+   */
+  @Benchmark
+  public void writeMappings() throws IOException {
+    handler.writeMappings(mappings, output);
+  }
+}
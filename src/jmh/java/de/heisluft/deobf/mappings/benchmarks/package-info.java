@@ -0,0 +1,4 @@
+/**
+ * This package contains JMH benchmarks for lookups, parsing, writing and transformations of mappings.
+ */
+package de.heisluft.deobf.mappings.benchmarks;
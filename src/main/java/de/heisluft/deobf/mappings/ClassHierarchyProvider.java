@@ -0,0 +1,29 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Collection;
+
+/**
+ * Provides the direct supertypes of classes, e.g. read from the class files of the program being remapped, for
+ * resolving inherited members with a {@link MemberResolver}. All class names are binary names as used as keys within
+ * the mappings, i.e. in the unmapped namespace.
+ * <br>
+ * Implementations must be safe to call from multiple threads if the resolver is.
+ */
+public interface ClassHierarchyProvider {
+
+  /**
+   * Retrieves the direct superclass of a class.
+   *
+   * @param className the name of the class
+   * @return the name of the superclass or {@code null} if the class has none or is unknown
+   */
+  String getSuperclass(String className);
+
+  /**
+   * Retrieves the direct superinterfaces of a class, in declaration order.
+   *
+   * @param className the name of the class
+   * @return the names of the superinterfaces, empty if the class has none or is unknown
+   */
+  Collection<String> getInterfaces(String className);
+}
@@ -0,0 +1,158 @@
+package de.heisluft.deobf.mappings;
+
+/**
+ * The mappings of a single class, obtained by {@link Mappings#forClass(String)}. Remappers that look up many members of
+ * the same class in a row should use a handle, as the class is only looked up once, when the handle is created.
+ * Member lookups never allocate, and bulk lookups resolve whole arrays of members at once. Names and descriptors may be
+ * given as any character sequence, so parsers can look members up straight from reused buffers.
+ * <br>
+ * Handles are immutable and safe to use from multiple threads, like the mappings they were created from.
+ */
+public final class ClassMappings {
+
+  /** The name of the class. */
+  private final String className;
+  /** The mapped name of the class. */
+  private final String mappedName;
+  /** The field mappings of the class, {@code null} if there are none. */
+  private final MemberTable<String> fields;
+  /** The method mappings of the class, {@code null} if there are none. */
+  private final MemberTable<String> methods;
+  /** The table the member tables refer to. */
+  private final SymbolTable symbols;
+  /**
+   * The ID of the descriptor of fields mapped without one, {@code -1} if there are none. Mappings are immutable, so if
+   * it is not interned when the handle is created, no field of this class can be mapped without a descriptor.
+   */
+  private final int emptyDescId;
+
+  /**
+   * Constructs a new handle.
+   *
+   * @param className the name of the class
+   * @param mappedName the mapped name of the class
+   * @param fields the field mappings of the class, may be {@code null}
+   * @param methods the method mappings of the class, may be {@code null}
+   * @param symbols the table the member tables refer to
+   */
+  ClassMappings(String className, String mappedName, MemberTable<String> fields, MemberTable<String> methods,
+      SymbolTable symbols) {
+    this.className = className;
+    this.mappedName = mappedName;
+    this.fields = fields;
+    this.methods = methods;
+    this.symbols = symbols;
+    emptyDescId = fields == null ? -1 : symbols.find(Mappings.EMPTY_FIELD_DESCRIPTOR);
+  }
+
+  /**
+   * Returns the name of the class.
+   *
+   * @return the class name in binary form
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the mapped name of the class, see {@link Mappings#getClassName(String)}.
+   *
+   * @return the mapped name or the class name if the class is not mapped
+   */
+  public String getMappedName() {
+    return mappedName;
+  }
+
+  /**
+   * Retrieves a mapped name for a method of this class.
+   *
+   * @param methodName the methods name
+   * @param methodDescriptor the methods descriptor
+   * @return the mapped name or {@code null} if not found
+   */
+  public String getMethodName(CharSequence methodName, CharSequence methodDescriptor) {
+    return methods == null ? null : methods.get(symbols.find(methodName), symbols.find(methodDescriptor));
+  }
+
+  /**
+   * Retrieves a mapped name for a field of this class. Fields mapped without a descriptor match any descriptor.
+   *
+   * @param fieldName the fields name
+   * @param fieldDescriptor the fields descriptor
+   * @return the mapped name or {@code null} if not found
+   */
+  public String getFieldName(CharSequence fieldName, CharSequence fieldDescriptor) {
+    if(fields == null) return null;
+    int nameId = symbols.find(fieldName);
+    String remapped = fields.get(nameId, symbols.find(fieldDescriptor));
+    return remapped != null ? remapped : fields.get(nameId, emptyDescId);
+  }
+
+  /**
+   * Checks if there is a mapping for a method of this class.
+   *
+   * @param methodName the name of the method
+   * @param methodDescriptor the descriptor of the method
+   * @return true if there is a mapping for the method, false otherwise
+   */
+  public boolean hasMethodMapping(CharSequence methodName, CharSequence methodDescriptor) {
+    return methods != null && methods.containsKey(symbols.find(methodName), symbols.find(methodDescriptor));
+  }
+
+  /**
+   * Checks if there is a mapping for a field of this class.
+   *
+   * @param fieldName the name of the field
+   * @param fieldDescriptor the descriptor of the field
+   * @return true if there is a mapping for the field, false otherwise
+   */
+  public boolean hasFieldMapping(CharSequence fieldName, CharSequence fieldDescriptor) {
+    return getFieldName(fieldName, fieldDescriptor) != null;
+  }
+
+  /**
+   * Retrieves the mapped names of many methods of this class at once.
+   *
+   * @param methodNames the names of the methods
+   * @param methodDescriptors the descriptors of the methods, indexed like methodNames
+   * @param results receives the mapped names, or {@code null} for methods not found, indexed like methodNames
+   * @throws IllegalArgumentException if the arrays differ in length
+   */
+  public void getMethodNames(CharSequence[] methodNames, CharSequence[] methodDescriptors, String[] results) {
+    checkLengths(methodNames, methodDescriptors, results);
+    for(int i = 0; i < methodNames.length; i++) results[i] = getMethodName(methodNames[i], methodDescriptors[i]);
+  }
+
+  /**
+   * Retrieves the mapped names of many fields of this class at once.
+   *
+   * @param fieldNames the names of the fields
+   * @param fieldDescriptors the descriptors of the fields, indexed like fieldNames
+   * @param results receives the mapped names, or {@code null} for fields not found, indexed like fieldNames
+   * @throws IllegalArgumentException if the arrays differ in length
+   */
+  public void getFieldNames(CharSequence[] fieldNames, CharSequence[] fieldDescriptors, String[] results) {
+    checkLengths(fieldNames, fieldDescriptors, results);
+    for(int i = 0; i < fieldNames.length; i++) results[i] = getFieldName(fieldNames[i], fieldDescriptors[i]);
+  }
+
+  @Override
+  public String toString() {
+    return "ClassMappings(" + className + " -> " + mappedName + ", fields: " + (fields == null ? 0 : fields.size())
+        + ", methods: " + (methods == null ? 0 : methods.size()) + ')';
+  }
+
+  /**
+   * Checks that the arrays of a bulk lookup have the same length.
+   *
+   * @param names the member names
+   * @param descriptors the member descriptors
+   * @param results the array receiving the mapped names
+   * @throws IllegalArgumentException if the arrays differ in length
+   */
+  private static void checkLengths(CharSequence[] names, CharSequence[] descriptors, String[] results) {
+    if(names.length != descriptors.length || names.length != results.length)
+      throw new IllegalArgumentException("Array lengths differ: " + names.length + " names, " + descriptors.length
+          + " descriptors, " + results.length + " results");
+  }
+}
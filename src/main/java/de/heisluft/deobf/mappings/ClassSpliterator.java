@@ -0,0 +1,149 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A spliterator over the entries of per-class maps, e.g. all members of all classes. The classes are copied into
+ * arrays once, along with the running total of their entry counts, so that splitting is done by a binary search for
+ * the class at which half of the remaining entries are reached. This keeps splits even, no matter how unevenly the
+ * entries are distributed among the classes, and the size of every split is known exactly.
+ * <br>
+ * Entries are only created once they are traversed, a class at a time. The iteration order of the source map is not
+ * reported as encounter order, so parallel streams need not preserve it.
+ *
+ * @param <T> the type of entries
+ */
+final class ClassSpliterator<T> implements Spliterator<T> {
+
+  /** The characteristics of all class spliterators. */
+  private static final int CHARACTERISTICS = SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+
+  /** The names of all classes. */
+  private final String[] classNames;
+  /** The per-class values, indexed like {@link #classNames}. */
+  private final Object[] values;
+  /** The total amount of entries of all classes up to and including each class, indexed like {@link #classNames}. */
+  private final long[] ends;
+  /** The function creating the entries of a class. */
+  private final Expander<Object, T> expander;
+  /** The entries of the class currently traversed by {@link #tryAdvance(Consumer)}. */
+  private final List<T> buffer = new ArrayList<>();
+  /** The index after the last class of this spliterator. */
+  private final int fence;
+  /** The index of the next class to traverse. */
+  private int index;
+  /** The index of the next entry within {@link #buffer}. */
+  private int buffered;
+
+  /**
+   * Constructs a new spliterator over a range of classes.
+   *
+   * @param classNames the names of all classes
+   * @param values the per-class values
+   * @param ends the running total of entries
+   * @param expander the function creating the entries of a class
+   * @param index the index of the first class
+   * @param fence the index after the last class
+   */
+  private ClassSpliterator(String[] classNames, Object[] values, long[] ends, Expander<Object, T> expander, int index,
+      int fence) {
+    this.classNames = classNames;
+    this.values = values;
+    this.ends = ends;
+    this.expander = expander;
+    this.index = index;
+    this.fence = fence;
+  }
+
+  /**
+   * Creates a spliterator over the entries of all classes of a map.
+   *
+   * @param source the per-class values mapped by class name, must not be modified anymore
+   * @param sizeOf the function computing the amount of entries of a class
+   * @param expander the function creating the entries of a class
+   * @param <V> the type of per-class values
+   * @param <T> the type of entries
+   * @return the spliterator
+   */
+  @SuppressWarnings("unchecked")
+  static <V, T> ClassSpliterator<T> of(Map<String, V> source, ToIntFunction<V> sizeOf, Expander<V, T> expander) {
+    String[] classNames = new String[source.size()];
+    Object[] values = new Object[classNames.length];
+    long[] ends = new long[classNames.length];
+    int[] index = {0};
+    long[] total = {0};
+    source.forEach((className, value) -> {
+      classNames[index[0]] = className;
+      values[index[0]] = value;
+      total[0] += sizeOf.applyAsInt(value);
+      ends[index[0]++] = total[0];
+    });
+    Expander<Object, T> erased = (className, value, action) -> expander.expand(className, (V) value, action);
+    return new ClassSpliterator<>(classNames, values, ends, erased, 0, classNames.length);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while(buffered >= buffer.size()) {
+      if(index >= fence) return false;
+      buffer.clear();
+      buffered = 0;
+      expander.expand(classNames[index], values[index++], buffer::add);
+    }
+    action.accept(buffer.get(buffered++));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    while(buffered < buffer.size()) action.accept(buffer.get(buffered++));
+    for(; index < fence; index++) expander.expand(classNames[index], values[index], action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    int lo = index;
+    if(fence - lo < 2) return null;
+    long start = lo == 0 ? 0 : ends[lo - 1];
+    int found = Arrays.binarySearch(ends, lo, fence, start + (ends[fence - 1] - start) / 2);
+    int mid = Math.min(Math.max((found < 0 ? -found - 1 : found) + 1, lo + 1), fence - 1);
+    index = mid;
+    return new ClassSpliterator<>(classNames, values, ends, expander, lo, mid);
+  }
+
+  @Override
+  public long estimateSize() {
+    long remaining = buffer.size() - buffered;
+    if(index >= fence) return remaining;
+    return remaining + ends[fence - 1] - (index == 0 ? 0 : ends[index - 1]);
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+  /**
+   * Creates the entries of a class.
+   *
+   * @param <V> the type of per-class values
+   * @param <T> the type of entries
+   */
+  @FunctionalInterface
+  interface Expander<V, T> {
+    /**
+     * Passes all entries of a class to a consumer.
+     *
+     * @param className the name of the class
+     * @param value the per-class value
+     * @param action the consumer of all entries
+     */
+    void expand(String className, V value, Consumer<? super T> action);
+  }
+}
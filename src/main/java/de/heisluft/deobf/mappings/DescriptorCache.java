@@ -0,0 +1,168 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of descriptor remapping results. A cache is attached to a Mappings instance by
+ * {@link Mappings#withDescriptorCache(int)}, which is safe because Mappings are immutable.
+ * <br>
+ * The cache is split into segments, each evicting its least recently used entry once it is full, so concurrent
+ * remapping workers rarely contend on the same lock. Hit and miss counters are provided for sizing the cache.
+ */
+public final class DescriptorCache {
+
+  /** The maximum amount of segments, must be a power of two. */
+  private static final int MAX_SEGMENTS = 16;
+  /** The initial capacity of the map backing each segment. */
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+  /** The load factor of the map backing each segment. */
+  private static final float SEGMENT_LOAD_FACTOR = 0.75f;
+  /** The amount of bits the upper half of a hash is shifted by when spreading it. */
+  private static final int HASH_SPREAD_SHIFT = 16;
+
+  /** The maximum amount of cached descriptors. */
+  private final int maximumSize;
+  /** The segments, selected by the descriptors hash. */
+  private final Segment[] segments;
+  /** The amount of lookups answered from the cache. */
+  private final LongAdder hits = new LongAdder();
+  /** The amount of lookups not answered from the cache. */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Constructs a new empty cache.
+   *
+   * @param maximumSize the maximum amount of cached descriptors, must be positive
+   */
+  DescriptorCache(int maximumSize) {
+    if(maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive, got " + maximumSize);
+    this.maximumSize = maximumSize;
+    int segmentCount = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+    segments = new Segment[segmentCount];
+    for(int i = 0; i < segmentCount; i++) segments[i] = new Segment(maximumSize / segmentCount);
+  }
+
+  /**
+   * Retrieves a cached remapping result, counting the lookup as a hit or miss.
+   *
+   * @param descriptor the descriptor to look up
+   * @return the cached remapped descriptor or {@code null} if it is not cached
+   */
+  String get(String descriptor) {
+    Segment segment = segmentFor(descriptor);
+    String result;
+    synchronized(segment) {
+      result = segment.get(descriptor);
+    }
+    if(result == null) misses.increment();
+    else hits.increment();
+    return result;
+  }
+
+  /**
+   * Caches a remapping result, possibly evicting the least recently used entry of its segment.
+   *
+   * @param descriptor the descriptor
+   * @param remapped the remapped descriptor
+   */
+  void put(String descriptor, String remapped) {
+    Segment segment = segmentFor(descriptor);
+    synchronized(segment) {
+      segment.put(descriptor, remapped);
+    }
+  }
+
+  /**
+   * Returns the amount of lookups that were answered from this cache.
+   *
+   * @return the hit count
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the amount of lookups that had to be computed.
+   *
+   * @return the miss count
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the ratio of hits to all lookups.
+   *
+   * @return the hit rate, {@code 0} if there were no lookups yet
+   */
+  public double hitRate() {
+    long hitCount = hits.sum(), total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  /**
+   * Returns the amount of currently cached descriptors.
+   *
+   * @return the current size
+   */
+  public int size() {
+    int size = 0;
+    for(Segment segment : segments) {
+      synchronized(segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the maximum amount of cached descriptors.
+   *
+   * @return the maximum size
+   */
+  public int maximumSize() {
+    return maximumSize;
+  }
+
+  @Override
+  public String toString() {
+    return "DescriptorCache(size: " + size() + ", hits: " + hitCount() + ", misses: " + missCount() + ')';
+  }
+
+  /**
+   * Selects the segment responsible for a given descriptor.
+   *
+   * @param descriptor the descriptor
+   * @return the segment
+   */
+  private Segment segmentFor(String descriptor) {
+    int hash = descriptor.hashCode();
+    return segments[(hash ^ (hash >>> HASH_SPREAD_SHIFT)) & (segments.length - 1)];
+  }
+
+  /** A single LRU segment, must only be accessed while holding its monitor. */
+  private static final class Segment extends LinkedHashMap<String, String> {
+    /** Segments are never serialized. */
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum amount of entries in this segment. */
+    private final int capacity;
+
+    /**
+     * Constructs a new segment.
+     *
+     * @param capacity the maximum amount of entries
+     */
+    Segment(int capacity) {
+      super(INITIAL_SEGMENT_CAPACITY, SEGMENT_LOAD_FACTOR, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > capacity;
+    }
+  }
+}
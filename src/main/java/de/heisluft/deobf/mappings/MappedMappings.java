@@ -0,0 +1,461 @@
+package de.heisluft.deobf.mappings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-only mappings backed by a memory-mapped index file, for short-lived processes which only look up a small part
+ * of large mappings. Opening an index validates its string references and reads its package relocations, all other
+ * lookups binary search sorted tables within the mapped file, comparing names with their encoding in place. Only the
+ * names returned by lookups are ever copied onto the heap. Indices are written by {@link #write(Mappings, Path)}.
+ * <br>
+ * All numbers are big endian u4. An index starts with a header consisting of the magic {@code "MIDX"}, the format
+ * version and the amount and offset of the package, class, field and method tables. The header is followed by the
+ * string pool, in which each string is stored as its byte length and its UTF-8 bytes, and the tables. Records
+ * reference strings by their offset within the file, or by {@code -1} for {@code null}. Class tables contain
+ * (className, mappedName) records sorted by className, member tables contain (className, name, descriptor,
+ * mappedName) records sorted by className, name and descriptor. Strings are compared by their unsigned UTF-8 bytes.
+ * <br>
+ * Instances are immutable and safe to use from multiple threads. Exceptions and parameters are not indexed.
+ */
+public final class MappedMappings implements MappingsView {
+
+  /** The magic number every index starts with, "MIDX" in ASCII. */
+  private static final int MAGIC = 0x4D494458;
+  /** The format version, indices of other versions are rejected. */
+  private static final int VERSION = 1;
+  /** The offset of the package table amount and offset within the header. */
+  private static final int PACKAGES_HEADER = 8;
+  /** The offset of the class table amount and offset within the header. */
+  private static final int CLASSES_HEADER = 16;
+  /** The offset of the field table amount and offset within the header. */
+  private static final int FIELDS_HEADER = 24;
+  /** The offset of the method table amount and offset within the header. */
+  private static final int METHODS_HEADER = 32;
+  /** The size of the header. */
+  private static final int HEADER_SIZE = 40;
+  /** The size of package and class records. */
+  private static final int CLASS_RECORD_SIZE = 8;
+  /** The size of field and method records. */
+  private static final int MEMBER_RECORD_SIZE = 16;
+  /** The offset of the name within member records. */
+  private static final int MEMBER_NAME = 4;
+  /** The offset of the descriptor within member records. */
+  private static final int MEMBER_DESC = 8;
+  /** The offset of the mapped name within member records. */
+  private static final int MEMBER_VALUE = 12;
+  /** The mask converting signed bytes to their unsigned value. */
+  private static final int BYTE_MASK = 0xFF;
+  /** The string offset representing {@code null}. */
+  private static final int NULL_OFFSET = -1;
+  /** The first char that is not encoded as a single byte in UTF-8. */
+  private static final int ASCII_LIMIT = 0x80;
+  /** The first char that is not encoded as two bytes in UTF-8. */
+  private static final int TWO_BYTE_LIMIT = 0x800;
+  /** The tags of UTF-8 lead bytes, the tag of a sequence of n bytes is this shifted right by n. */
+  private static final int LEAD_TAGS = 0xFF00;
+  /** The tag of UTF-8 continuation bytes. */
+  private static final int CONTINUATION_TAG = 0x80;
+  /** The amount of bits encoded by each UTF-8 continuation byte. */
+  private static final int CONTINUATION_BITS = 6;
+  /** The mask of the bits encoded by each UTF-8 continuation byte. */
+  private static final int CONTINUATION_MASK = 0x3F;
+  /** The char unpaired surrogates are encoded as, like {@link String#getBytes(java.nio.charset.Charset)} does. */
+  private static final char UNPAIRED_SURROGATE = '?';
+
+  /** The mapped index file. */
+  private final ByteBuffer index;
+  /** Maps class names for {@link Mappings#scanDescriptor(String, UnaryOperator)}, created once instead of per call. */
+  private final UnaryOperator<String> classMapper = this::mapClassName;
+  /** All package relocations, read when opening the index. */
+  private final PackageRelocations packages = new PackageRelocations();
+  /** The amount of class records. */
+  private final int classCount;
+  /** The offset of the class table. */
+  private final int classTable;
+  /** The amount of field records. */
+  private final int fieldCount;
+  /** The offset of the field table. */
+  private final int fieldTable;
+  /** The amount of method records. */
+  private final int methodCount;
+  /** The offset of the method table. */
+  private final int methodTable;
+
+  /**
+   * Constructs mappings backed by a mapped index, validating its header.
+   *
+   * @param index the mapped index file
+   * @throws IOException if the index is malformed
+   */
+  private MappedMappings(ByteBuffer index) throws IOException {
+    this.index = index;
+    if(index.limit() < HEADER_SIZE || index.getInt(0) != MAGIC) throw new IOException("Not a mappings index");
+    int version = index.getInt(Integer.BYTES);
+    if(version != VERSION) throw new IOException("Unsupported index version " + version + ", expected " + VERSION);
+    classCount = tableSize(CLASSES_HEADER, CLASS_RECORD_SIZE);
+    classTable = index.getInt(CLASSES_HEADER + Integer.BYTES);
+    fieldCount = tableSize(FIELDS_HEADER, MEMBER_RECORD_SIZE);
+    fieldTable = index.getInt(FIELDS_HEADER + Integer.BYTES);
+    methodCount = tableSize(METHODS_HEADER, MEMBER_RECORD_SIZE);
+    methodTable = index.getInt(METHODS_HEADER + Integer.BYTES);
+    int packageCount = tableSize(PACKAGES_HEADER, CLASS_RECORD_SIZE);
+    int packageTable = index.getInt(PACKAGES_HEADER + Integer.BYTES);
+    checkStrings(packageTable, packageCount, CLASS_RECORD_SIZE);
+    checkStrings(classTable, classCount, CLASS_RECORD_SIZE);
+    checkStrings(fieldTable, fieldCount, MEMBER_RECORD_SIZE);
+    checkStrings(methodTable, methodCount, MEMBER_RECORD_SIZE);
+    for(int i = 0; i < packageCount; i++) {
+      int row = packageTable + i * CLASS_RECORD_SIZE;
+      packages.put(string(index.getInt(row)), string(index.getInt(row + Integer.BYTES)));
+    }
+  }
+
+  /**
+   * Opens an index written by {@link #write(Mappings, Path)}. The file is mapped, not read, and must not be modified
+   * while the returned mappings are in use.
+   *
+   * @param path the index file
+   * @return the mappings backed by the index
+   * @throws IOException if the index could not be read or is malformed
+   */
+  public static MappedMappings open(Path path) throws IOException {
+    try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if(size > Integer.MAX_VALUE) throw new IOException("Index exceeds 2 GiB: " + path);
+      return new MappedMappings(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  /**
+   * Writes an index of the class, field and method mappings and package relocations of the given mappings.
+   *
+   * @param mappings the mappings to index
+   * @param to the path to write the index to
+   * @throws IOException if the index could not be written
+   */
+  public static void write(Mappings mappings, Path to) throws IOException {
+    Map<String, byte[]> encoded = new HashMap<>();
+    List<byte[][]> packages = new ArrayList<>();
+    mappings.forAllPackages((pattern, target) -> packages.add(encode(encoded, pattern, target)));
+    List<byte[][]> classes = new ArrayList<>();
+    mappings.forAllClassesSorted((name, renamed) -> classes.add(encode(encoded, name, renamed)));
+    List<byte[][]> fields = new ArrayList<>();
+    mappings.forAllFieldsSorted((cName, name, desc, renamed) ->
+        fields.add(encode(encoded, cName, name, desc, renamed))
+    );
+    List<byte[][]> methods = new ArrayList<>();
+    mappings.forAllMethodsSorted((cName, name, desc, renamed) ->
+        methods.add(encode(encoded, cName, name, desc, renamed))
+    );
+    // the sorted views only differ from UTF-8 byte order for supplementary characters, so this is nearly linear
+    classes.sort(MappedMappings::compareRecords);
+    fields.sort(MappedMappings::compareRecords);
+    methods.sort(MappedMappings::compareRecords);
+
+    Map<byte[], Integer> offsets = new IdentityHashMap<>();
+    List<byte[]> pool = new ArrayList<>();
+    long end = HEADER_SIZE;
+    for(List<byte[][]> table : Arrays.asList(packages, classes, fields, methods)) {
+      for(byte[][] row : table) {
+        for(byte[] string : row) {
+          if(string == null || offsets.containsKey(string)) continue;
+          offsets.put(string, (int) end);
+          pool.add(string);
+          end += Integer.BYTES + string.length;
+        }
+      }
+    }
+    long packageTable = end;
+    long classTable = packageTable + (long) packages.size() * CLASS_RECORD_SIZE;
+    long fieldTable = classTable + (long) classes.size() * CLASS_RECORD_SIZE;
+    long methodTable = fieldTable + (long) fields.size() * MEMBER_RECORD_SIZE;
+    if(methodTable + (long) methods.size() * MEMBER_RECORD_SIZE > Integer.MAX_VALUE)
+      throw new IOException("Index would exceed 2 GiB");
+
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(to)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(packages.size());
+      out.writeInt((int) packageTable);
+      out.writeInt(classes.size());
+      out.writeInt((int) classTable);
+      out.writeInt(fields.size());
+      out.writeInt((int) fieldTable);
+      out.writeInt(methods.size());
+      out.writeInt((int) methodTable);
+      for(byte[] string : pool) {
+        out.writeInt(string.length);
+        out.write(string);
+      }
+      for(List<byte[][]> table : Arrays.asList(packages, classes, fields, methods))
+        for(byte[][] row : table)
+          for(byte[] string : row) out.writeInt(string == null ? NULL_OFFSET : offsets.get(string));
+    }
+  }
+
+  @Override
+  public String getClassName(String className) {
+    String mapped = mapClassName(className);
+    return mapped == null ? className : mapped;
+  }
+
+  @Override
+  public String getMethodName(String className, String methodName, String methodDescriptor) {
+    int row = findMember(methodTable, methodCount, className, methodName, methodDescriptor);
+    return row < 0 ? null : string(index.getInt(row + MEMBER_VALUE));
+  }
+
+  @Override
+  public String getFieldName(String className, String fieldName, String fieldDescriptor) {
+    int row = findField(className, fieldName, fieldDescriptor);
+    return row < 0 ? null : string(index.getInt(row + MEMBER_VALUE));
+  }
+
+  @Override
+  public boolean hasClassMapping(String className) {
+    return findClass(className) >= 0 || packages.find(className) != null;
+  }
+
+  @Override
+  public boolean hasMethodMapping(String className, String methodName, String methodDescriptor) {
+    return findMember(methodTable, methodCount, className, methodName, methodDescriptor) >= 0;
+  }
+
+  @Override
+  public boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor) {
+    return findField(className, fieldName, fieldDescriptor) >= 0;
+  }
+
+  @Override
+  public String remapDescriptor(String descriptor) {
+    return Mappings.scanDescriptor(descriptor, classMapper);
+  }
+
+  /**
+   * Looks up the mapped name of a given class, considering package relocations like {@link Mappings} do.
+   *
+   * @param className the binary name of the class
+   * @return the mapped name or {@code null} if the class is not mapped
+   */
+  private String mapClassName(String className) {
+    String relocated = packages.find(className);
+    if(relocated == null) return lookupClass(className);
+    String cNameOnly = className.substring(className.lastIndexOf('/') + 1);
+    String mapped = lookupClass(cNameOnly);
+    return relocated + (mapped == null ? cNameOnly : mapped);
+  }
+
+  /**
+   * Looks up the class table.
+   *
+   * @param className the binary name of the class
+   * @return the mapped name or {@code null} if there is no record for the class
+   */
+  private String lookupClass(String className) {
+    int row = findClass(className);
+    return row < 0 ? null : string(index.getInt(row + Integer.BYTES));
+  }
+
+  /**
+   * Binary searches the class table.
+   *
+   * @param className the binary name of the class
+   * @return the offset of the record or {@code -1} if there is none
+   */
+  private int findClass(String className) {
+    int low = 0;
+    int high = classCount - 1;
+    while(low <= high) {
+      int middle = (low + high) >>> 1;
+      int row = classTable + middle * CLASS_RECORD_SIZE;
+      int cmp = compare(className, index.getInt(row));
+      if(cmp == 0) return row;
+      if(cmp < 0) high = middle - 1;
+      else low = middle + 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Searches the field table, falling back to the field mapped without descriptor.
+   *
+   * @param className the name of the class containing the field
+   * @param fieldName the fields name
+   * @param fieldDescriptor the fields descriptor
+   * @return the offset of the record or {@code -1} if there is none
+   */
+  private int findField(String className, String fieldName, String fieldDescriptor) {
+    int row = findMember(fieldTable, fieldCount, className, fieldName, fieldDescriptor);
+    if(row >= 0) return row;
+    return findMember(fieldTable, fieldCount, className, fieldName, Mappings.EMPTY_FIELD_DESCRIPTOR);
+  }
+
+  /**
+   * Binary searches a member table.
+   *
+   * @param table the offset of the table
+   * @param count the amount of records within the table
+   * @param className the name of the containing class
+   * @param name the member name
+   * @param desc the member descriptor
+   * @return the offset of the record or {@code -1} if there is none
+   */
+  private int findMember(int table, int count, String className, String name, String desc) {
+    int low = 0;
+    int high = count - 1;
+    while(low <= high) {
+      int middle = (low + high) >>> 1;
+      int row = table + middle * MEMBER_RECORD_SIZE;
+      int cmp = compare(className, index.getInt(row));
+      if(cmp == 0) cmp = compare(name, index.getInt(row + MEMBER_NAME));
+      if(cmp == 0) cmp = compare(desc, index.getInt(row + MEMBER_DESC));
+      if(cmp == 0) return row;
+      if(cmp < 0) high = middle - 1;
+      else low = middle + 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Compares a string with a string of the pool by their unsigned UTF-8 bytes, encoding the string while comparing.
+   *
+   * @param key the string
+   * @param offset the offset of the pooled string
+   * @return a negative value, zero or a positive value if key is less than, equal to or greater than the pooled string
+   */
+  private int compare(String key, int offset) {
+    int position = offset + Integer.BYTES;
+    int end = position + index.getInt(offset);
+    for(int i = 0; i < key.length(); i++) {
+      int c = key.charAt(i);
+      if(Character.isSurrogate((char) c)) {
+        if(Character.isHighSurrogate((char) c) && i + 1 < key.length() && Character.isLowSurrogate(key.charAt(i + 1)))
+          c = Character.toCodePoint((char) c, key.charAt(++i));
+        else c = UNPAIRED_SURROGATE;
+      }
+      int continuations = c < ASCII_LIMIT ? 0 : c < TWO_BYTE_LIMIT ? 1 : Character.charCount(c) + 1;
+      int shift = continuations * CONTINUATION_BITS;
+      int encoded = continuations == 0 ? c : LEAD_TAGS >> continuations + 1 & BYTE_MASK | c >> shift;
+      for(; shift >= 0; shift -= CONTINUATION_BITS) {
+        if(position == end) return 1;
+        int cmp = encoded - (index.get(position++) & BYTE_MASK);
+        if(cmp != 0) return cmp;
+        // the next continuation byte, unused after the last one
+        encoded = CONTINUATION_TAG | c >> shift - CONTINUATION_BITS & CONTINUATION_MASK;
+      }
+    }
+    return position == end ? 0 : -1;
+  }
+
+  /**
+   * Decodes a string of the pool.
+   *
+   * @param offset the offset of the string
+   * @return the decoded string or {@code null} if offset is {@code -1}
+   */
+  private String string(int offset) {
+    if(offset == NULL_OFFSET) return null;
+    byte[] bytes = new byte[index.getInt(offset)];
+    ByteBuffer source = index.duplicate();
+    source.position(offset + Integer.BYTES);
+    source.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads and validates the amount of records of a table.
+   *
+   * @param header the offset of the amount and offset of the table within the header
+   * @param recordSize the size of each record
+   * @return the amount of records
+   * @throws IOException if the table exceeds the index
+   */
+  private int tableSize(int header, int recordSize) throws IOException {
+    int count = index.getInt(header);
+    int offset = index.getInt(header + Integer.BYTES);
+    if(count < 0 || offset < HEADER_SIZE || offset + (long) count * recordSize > index.limit())
+      throw new IOException("Table at " + offset + " exceeds the index");
+    return count;
+  }
+
+  /**
+   * Validates that all string references of a table point to strings within the index. All strings of a record but
+   * the last are keys and must not be {@code null}.
+   *
+   * @param table the offset of the table
+   * @param count the amount of records within the table
+   * @param recordSize the size of each record
+   * @throws IOException if a reference exceeds the index
+   */
+  private void checkStrings(int table, int count, int recordSize) throws IOException {
+    for(int row = table; row < table + count * recordSize; row += recordSize) {
+      for(int field = 0; field < recordSize; field += Integer.BYTES) {
+        int offset = index.getInt(row + field);
+        if(offset == NULL_OFFSET && field == recordSize - Integer.BYTES) continue;
+        if(offset < HEADER_SIZE || offset > index.limit() - Integer.BYTES)
+          throw new IOException("String reference " + offset + " at " + (row + field) + " exceeds the index");
+        int length = index.getInt(offset);
+        if(length < 0 || offset + Integer.BYTES + (long) length > index.limit())
+          throw new IOException("String at " + offset + " exceeds the index");
+      }
+    }
+  }
+
+  /**
+   * Encodes the strings of a record, sharing the encoding of equal strings.
+   *
+   * @param encoded the encodings of all strings so far
+   * @param strings the strings of the record, may contain {@code null}
+   * @return the encoded record
+   */
+  private static byte[][] encode(Map<String, byte[]> encoded, String... strings) {
+    byte[][] row = new byte[strings.length][];
+    for(int i = 0; i < strings.length; i++)
+      if(strings[i] != null) row[i] = encoded.computeIfAbsent(strings[i], MappedMappings::utf8);
+    return row;
+  }
+
+  /**
+   * Compares two encoded records by their keys, which are all strings but the last.
+   *
+   * @param a the first record
+   * @param b the second record
+   * @return a negative value, zero or a positive value if a is less than, equal to or greater than b
+   */
+  private static int compareRecords(byte[][] a, byte[][] b) {
+    for(int i = 0; i < a.length - 1; i++) {
+      int common = Math.min(a[i].length, b[i].length);
+      for(int j = 0; j < common; j++) {
+        int cmp = (a[i][j] & BYTE_MASK) - (b[i][j] & BYTE_MASK);
+        if(cmp != 0) return cmp;
+      }
+      if(a[i].length != b[i].length) return a[i].length - b[i].length;
+    }
+    return 0;
+  }
+
+  /**
+   * Encodes a string as UTF-8.
+   *
+   * @param string the string to encode
+   * @return the encoded bytes
+   */
+  private static byte[] utf8(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -1,13 +1,18 @@
 package de.heisluft.deobf.mappings;
 
+import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PrimitiveIterator;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Mappings act as an interface for remappers of all kinds. They store information about renamed
@@ -17,7 +22,7 @@ import java.util.function.BiConsumer;
  * To create Mappings from outside the package, use {@link MappingsBuilder} instances.
  */
 //TODO: evaluate mapping conversions with package relocations
-public final class Mappings {
+public final class Mappings implements MappingsView {
 
   /**
    * An invalid descriptor is used here that won't confuse {@link #remapDescriptor(String)}.
@@ -25,53 +30,176 @@ public final class Mappings {
    */
   static final String EMPTY_FIELD_DESCRIPTOR = "EF";
 
-  /** All primitive binary names. Includes the empty field descriptor. */
-  private static final List<String> PRIMITIVES = Arrays.asList(
-      "B", "C", "D", "F", "I", "J", "S", "V", "Z", EMPTY_FIELD_DESCRIPTOR
-  );
+  /** The sorted keys of a class without members of some kind. */
+  private static final long[] NO_KEYS = new long[0];
+  /** The per-thread buffer used by {@link #scanDescriptor(String, UnaryOperator)}. */
+  private static final ThreadLocal<StringBuilder> DESCRIPTOR_BUFFER = ThreadLocal.withInitial(StringBuilder::new);
 
-  /** All package relocations. */
-  final Map<String, String> packages = new HashMap<>();
+  /** All package relocations, compiled once when they are added. */
+  final PackageRelocations packages;
 
   /**
    * All Class mappings, names are jvm names ('/' as delimiter).
    * Mapped as follows: classMame -&gt; remappedClassName
    */
-  final Map<String, String> classes = new HashMap<>();
+  final TrieMap<String, String> classes;
+
+  /**
+   * The reverse index of {@link #classes}, maintained by {@link #putClass(String, String)}.
+   * Mapped as follows: remappedClassName -&gt; className, or an array of all classNames if several classes are mapped
+   * to the same name. Arrays are never modified, as they may be shared with snapshots.
+   */
+  final TrieMap<String, Object> reverseClasses;
 
   /** All field mappings mapped as follows: className -&gt; (fieldName + fieldDesc) -&gt; remappedName. */
-  final Map<String, Map<MemberData, String>> fields = new HashMap<>();
+  final TrieMap<String, MemberTable<String>> fields;
 
   /** All method mappings mapped as follows: className -&gt; (methodName + methodDesc) -&gt; remappedName. */
-  final Map<String, Map<MemberData, String>> methods = new HashMap<>();
+  final TrieMap<String, MemberTable<String>> methods;
+
+  /**
+   * All exceptions and parameters added with the mappings, mapped as follows: className -&gt; (methodName +
+   * methodDesc) -&gt; set of exception class names, list of parameter names. Exception class names may or may not be
+   * already remapped. The tables record the names of their members, see {@link MemberTable#recordName(String)}.
+   */
+  final TrieMap<String, MemberTable<MdExtra>> extraData;
+
+  /**
+   * The table of all names and descriptors, member tables are keyed by their IDs. The mapped names stored in member
+   * tables are interned as well, so reverse lookups can key them by ID without interning anything.
+   */
+  final SymbolTable symbols;
+
+  /** The cache of descriptor remapping results, {@code null} if no cache is attached. */
+  private final DescriptorCache descriptorCache;
+  /** Maps class names for {@link #scanDescriptor(String, UnaryOperator)}, created once instead of per call. */
+  private final UnaryOperator<String> classMapper = this::mapClassName;
 
   /**
-   * All exceptions and parameters added with the mappings, mapped by className + methodName + methodDesc
-   * set of exception class names, list of parameter names. exception class names may or may not be already remapped
+   * The reverse field tables, built on first use.
+   * Mapped as follows: className -&gt; (remappedName + fieldDesc) -&gt; fieldName
    */
-  final Map<String, Map<MemberData, MdExtra>> extraData = new HashMap<>();
+  private final Map<String, MemberTable<String>> reverseFields = new ConcurrentHashMap<>();
 
-  /** Mappings are not to be instantiated outside the Package, use {@link MappingsBuilder#build()}. */
-  Mappings() {}
+  /**
+   * The reverse method tables, built on first use.
+   * Mapped as follows: className -&gt; (remappedName + methodDesc) -&gt; methodName
+   */
+  private final Map<String, MemberTable<String>> reverseMethods = new ConcurrentHashMap<>();
+
+  /** The sorted order of all entries, built on first sorted iteration. */
+  private volatile SortedIndex sortedIndex;
+
+  /**
+   * Mappings are not to be instantiated outside the Package, use {@link MappingsBuilder#build()}.
+   *
+   * @param symbols the table to intern all names and descriptors into
+   */
+  Mappings(SymbolTable symbols) {
+    this(new PackageRelocations(), new TrieMap<>(), new TrieMap<>(), new TrieMap<>(), new TrieMap<>(), new TrieMap<>(),
+        symbols, null);
+  }
 
   /**
-   * Clone the given mappings. Values are deep-cloned, as the backing Maps are often mutable.
+   * Clone the given mappings into another symbol table. Values are deep-cloned, interning all entries into the given
+   * table. Mappings using the same table are shared with {@link #mutableCopy()} instead.
    *
    * @param toClone the mappings to clone
+   * @param symbols the table to intern all names and descriptors into
    */
-  Mappings(Mappings toClone) {
+  Mappings(Mappings toClone, SymbolTable symbols) {
+    this(symbols);
     packages.putAll(toClone.packages);
-    classes.putAll(toClone.classes);
-    toClone.fields.forEach((k, v) -> fields.computeIfAbsent(k, _k -> new HashMap<>()).putAll(v));
-    toClone.methods.forEach((k, v) -> methods.computeIfAbsent(k, _k -> new HashMap<>()).putAll(v));
-    toClone.extraData.forEach((k, v) ->
-        v.forEach((memberData, mdExtra) ->
-            extraData.computeIfAbsent(k, _k -> new HashMap<>())
-                .computeIfAbsent(memberData, _k -> new MdExtra(mdExtra))
-        )
+    toClone.classes.forEach((k, v) -> putClass(symbols.canonical(k), symbols.canonical(v)));
+    toClone.fields.forEach((k, v) -> fields.put(symbols.canonical(k), toClone.copyMembers(v, symbols)));
+    toClone.methods.forEach((k, v) -> methods.put(symbols.canonical(k), toClone.copyMembers(v, symbols)));
+    toClone.extraData.forEach((k, v) -> {
+      MemberTable<MdExtra> members = new MemberTable<>();
+      v.forEach((nameId, descId, mdExtra) -> {
+        String name = toClone.symbols.get(nameId);
+        members.put(symbols.intern(name), symbols.intern(toClone.symbols.get(descId)), new MdExtra(mdExtra));
+        members.recordName(name);
+      });
+      extraData.put(symbols.canonical(k), members);
+    });
+  }
+
+  /**
+   * Constructs mappings from the given data, which is not copied.
+   *
+   * @param packages the package relocations
+   * @param classes the class mappings
+   * @param reverseClasses the reverse index of classes
+   * @param fields the field mappings
+   * @param methods the method mappings
+   * @param extraData the exceptions and parameters
+   * @param symbols the table of all names and descriptors
+   * @param descriptorCache the cache to attach, may be {@code null}
+   */
+  private Mappings(PackageRelocations packages, TrieMap<String, String> classes, TrieMap<String, Object> reverseClasses,
+      TrieMap<String, MemberTable<String>> fields, TrieMap<String, MemberTable<String>> methods,
+      TrieMap<String, MemberTable<MdExtra>> extraData, SymbolTable symbols, DescriptorCache descriptorCache) {
+    this.packages = packages;
+    this.classes = classes;
+    this.reverseClasses = reverseClasses;
+    this.fields = fields;
+    this.methods = methods;
+    this.extraData = extraData;
+    this.symbols = symbols;
+    this.descriptorCache = descriptorCache;
+  }
+
+  /**
+   * Creates an immutable snapshot of these mappings. All maps are snapshotted in constant time, only the package
+   * relocations, of which there are few, are copied. The nested member tables and extra data are shared, so callers
+   * must copy them before modifying them afterwards, see {@link MappingsBuilder}.
+   *
+   * @return the snapshot
+   */
+  Mappings snapshot() {
+    PackageRelocations packages = new PackageRelocations();
+    packages.putAll(this.packages);
+    return new Mappings(packages, classes.snapshot(), reverseClasses.snapshot(), fields.snapshot(), methods.snapshot(),
+        extraData.snapshot(), symbols, null);
+  }
+
+  /**
+   * Creates a mutable copy of these mappings in constant time, sharing all data. These mappings must not be modified
+   * anymore, and the nested member tables and extra data must be copied before modifying them.
+   *
+   * @return the mutable copy
+   */
+  Mappings mutableCopy() {
+    PackageRelocations packages = new PackageRelocations();
+    packages.putAll(this.packages);
+    return new Mappings(packages, classes.mutableCopy(), reverseClasses.mutableCopy(), fields.mutableCopy(),
+        methods.mutableCopy(), extraData.mutableCopy(), symbols, null);
+  }
+
+  /**
+   * Creates Mappings with the same entries as these, caching the results of {@link #remapDescriptor(String)}.
+   * Once the cache is full, the least recently used descriptors are evicted. The cache is safe to use from multiple
+   * threads. No data is copied, so this is cheap even for large mappings.
+   *
+   * @param maximumSize the maximum amount of cached descriptors, must be positive
+   * @return the mappings with an attached cache
+   * @throws IllegalArgumentException if maximumSize is not positive
+   */
+  public Mappings withDescriptorCache(int maximumSize) {
+    return new Mappings(
+        packages, classes, reverseClasses, fields, methods, extraData, symbols, new DescriptorCache(maximumSize)
     );
   }
 
+  /**
+   * Retrieves the descriptor cache attached to these mappings, e.g. for inspecting its hit rate.
+   *
+   * @return the cache attached by {@link #withDescriptorCache(int)} or {@code null} if there is none
+   */
+  public DescriptorCache getDescriptorCache() {
+    return descriptorCache;
+  }
+
   /**
    * Applies a method to all package relocations.
    *
@@ -97,8 +225,8 @@ public final class Mappings {
    */
   public void forAllFields(MemberMappingConsumer<String> consumer) {
     fields.forEach((s, members) ->
-        members.forEach((data, remapped) ->
-            consumer.accept(s, data.name, data.desc, remapped)
+        members.forEach((nameId, descId, remapped) ->
+            consumer.accept(s, symbols.get(nameId), symbols.get(descId), remapped)
         )
     );
   }
@@ -110,12 +238,69 @@ public final class Mappings {
    */
   public void forAllMethods(MemberMappingConsumer<String> consumer) {
     methods.forEach((s, members) ->
-        members.forEach((data, remapped) ->
-            consumer.accept(s, data.name, data.desc, remapped)
+        members.forEach((nameId, descId, remapped) ->
+            consumer.accept(s, symbols.get(nameId), symbols.get(descId), remapped)
         )
     );
   }
 
+  /**
+   * Applies a method to all class mappings in ascending order of their class name. The order is computed once per
+   * instance, so repeated sorted iteration does not sort again.
+   *
+   * @param consumer the function to apply
+   */
+  public void forAllClassesSorted(BiConsumer<String, String> consumer) {
+    for(String className : sortedIndex().classes) consumer.accept(className, classes.get(className));
+  }
+
+  /**
+   * Applies a method to all field mappings in ascending order of their class name, field name and descriptor. The
+   * order is computed once per instance, so repeated sorted iteration does not sort again.
+   *
+   * @param consumer the function to apply
+   */
+  public void forAllFieldsSorted(MemberMappingConsumer<String> consumer) {
+    SortedIndex index = sortedIndex();
+    forAllMembersSorted(fields, index.fieldClasses, index.fieldKeys, consumer);
+  }
+
+  /**
+   * Applies a method to all method mappings in ascending order of their class name, method name and descriptor. The
+   * order is computed once per instance, so repeated sorted iteration does not sort again.
+   *
+   * @param consumer the function to apply
+   */
+  public void forAllMethodsSorted(MemberMappingConsumer<String> consumer) {
+    SortedIndex index = sortedIndex();
+    forAllMembersSorted(methods, index.methodClasses, index.methodKeys, consumer);
+  }
+
+  /**
+   * Applies a method to all methods with a mapping or with exception or parameter data, in the order of
+   * {@link #forAllMethodsSorted(MemberMappingConsumer)}. Methods without a mapping are passed {@code null} as their
+   * remapped name. Writers use this to merge exception data into the method lines without buffering any of them.
+   *
+   * @param consumer the function to apply
+   */
+  public void forAllMethodsAndExtraDataSorted(MemberMappingConsumer<String> consumer) {
+    SortedIndex index = sortedIndex();
+    String[] methodClasses = index.methodClasses;
+    String[] extraClasses = index.extraClasses;
+    int i = 0;
+    int j = 0;
+    while(i < methodClasses.length || j < extraClasses.length) {
+      int order;
+      if(i == methodClasses.length) order = 1;
+      else if(j == extraClasses.length) order = -1;
+      else order = methodClasses[i].compareTo(extraClasses[j]);
+      String className = order <= 0 ? methodClasses[i] : extraClasses[j];
+      long[] methodKeys = order <= 0 ? index.methodKeys[i++] : NO_KEYS;
+      long[] extraKeys = order >= 0 ? index.extraKeys[j++] : NO_KEYS;
+      forClassMethodsSorted(className, methodKeys, extraKeys, consumer);
+    }
+  }
+
   /**
    * Applies a method to all exception data.
    *
@@ -123,12 +308,68 @@ public final class Mappings {
    */
   public void forAllExceptions(MemberMappingConsumer<Set<String>> consumer) {
     extraData.forEach((s, members) ->
-      members.forEach((member, extra) ->
-          consumer.accept(s, member.name, member.desc, extra.exceptions)
+      members.forEach((nameId, descId, extra) ->
+          consumer.accept(s, symbols.get(nameId), symbols.get(descId), extra.exceptions)
       )
     );
   }
 
+  /**
+   * Streams all class mappings. The stream splits evenly across classes, so it is well suited for parallel processing.
+   *
+   * @return a stream of immutable (className, remappedClassName) entries
+   */
+  public Stream<Map.Entry<String, String>> streamClasses() {
+    return StreamSupport.stream(ClassSpliterator.of(classes, renamed -> 1, (className, renamed, action) ->
+        action.accept(new AbstractMap.SimpleImmutableEntry<>(className, renamed))
+    ), false);
+  }
+
+  /**
+   * Streams all field mappings. The stream splits evenly across classes, weighted by their amount of fields, so it is
+   * well suited for parallel processing.
+   *
+   * @return a stream of all field mappings
+   */
+  public Stream<MemberMapping> streamFields() {
+    return streamMembers(fields);
+  }
+
+  /**
+   * Streams all method mappings. The stream splits evenly across classes, weighted by their amount of methods, so it
+   * is well suited for parallel processing.
+   *
+   * @return a stream of all method mappings
+   */
+  public Stream<MemberMapping> streamMethods() {
+    return streamMembers(methods);
+  }
+
+  /**
+   * Streams the exceptions and parameters of all methods which have any. The stream splits evenly across classes,
+   * weighted by their amount of methods with extra data, so it is well suited for parallel processing.
+   *
+   * @return a stream of the extra data of all methods
+   */
+  public Stream<MethodExtraData> streamExtraData() {
+    return StreamSupport.stream(ClassSpliterator.of(extraData, MemberTable::size, (className, members, action) ->
+        members.forEach((nameId, descId, extra) ->
+            action.accept(new MethodExtraData(className, symbols.get(nameId), symbols.get(descId), extra))
+        )
+    ), false);
+  }
+
+  /**
+   * Creates a handle for looking up the members of a class, so that the class itself is only looked up once.
+   *
+   * @param className the name of the class
+   * @return the handle, never {@code null}, even if there are no mappings for the class
+   */
+  public ClassMappings forClass(String className) {
+    String mappedName = getClassName(className);
+    return new ClassMappings(className, mappedName, fields.get(className), methods.get(className), symbols);
+  }
+
   /**
    * Retrieves a mapped name for a given class, giving back the className as fallback. Use in
    * conjunction with {@link Mappings#hasClassMapping(String)}
@@ -141,12 +382,8 @@ public final class Mappings {
    * @see Mappings#hasClassMapping(String)
    */
   public String getClassName(String className) {
-    for(Map.Entry<String, String> relocation : packages.entrySet()) {
-      String cNameOnly = className.contains("/") ? className.substring(className.lastIndexOf('/') + 1) : className;
-      if(className.matches(relocation.getKey()))
-        return relocation.getValue() + classes.getOrDefault(cNameOnly, cNameOnly);
-    }
-    return classes.getOrDefault(className, className);
+    String mapped = mapClassName(className);
+    return mapped == null ? className : mapped;
   }
 
   /**
@@ -162,8 +399,8 @@ public final class Mappings {
    * @return the mapped name or {@code null} if not found
    */
   public String getMethodName(String className, String methodName, String methodDescriptor) {
-    return methods.getOrDefault(className, Collections.emptyMap())
-        .get(new MemberData(methodName, methodDescriptor));
+    MemberTable<String> methods = this.methods.get(className);
+    return methods == null ? null : methods.get(symbols.find(methodName), symbols.find(methodDescriptor));
   }
 
   /**
@@ -179,11 +416,11 @@ public final class Mappings {
    * @return the mapped name or {@code null} if not found
    */
   public String getFieldName(String className, String fieldName, String fieldDescriptor) {
-    Map<MemberData, String> fields = this.fields.getOrDefault(className, Collections.emptyMap());
-    return fields.getOrDefault(
-        new MemberData(fieldName, fieldDescriptor),
-        fields.get(new MemberData(fieldName, EMPTY_FIELD_DESCRIPTOR))
-    );
+    MemberTable<String> fields = this.fields.get(className);
+    if(fields == null) return null;
+    int nameId = symbols.find(fieldName);
+    String remapped = fields.get(nameId, symbols.find(fieldDescriptor));
+    return remapped != null ? remapped : fields.get(nameId, symbols.find(EMPTY_FIELD_DESCRIPTOR));
   }
 
   /**
@@ -195,7 +432,7 @@ public final class Mappings {
    * @return true if there is a mapping for {@code className}, false otherwise
    */
   public boolean hasClassMapping(String className) {
-    return classes.containsKey(className) || packages.keySet().stream().anyMatch(className::matches);
+    return classes.containsKey(className) || packages.find(className) != null;
   }
 
   /**
@@ -210,7 +447,9 @@ public final class Mappings {
    * @return true if there are any exceptions for the method, false otherwise
    */
   public boolean hasExceptionsFor(String className, String methodName, String methodDescriptor) {
-    return extraData.getOrDefault(className, new HashMap<>()).containsKey(new MemberData(methodName, methodDescriptor));
+    MemberTable<MdExtra> methods = extraData.get(className);
+    return methods != null && methods.mayContainName(methodName)
+        && methods.containsKey(symbols.find(methodName), symbols.find(methodDescriptor));
   }
 
   /**
@@ -226,9 +465,8 @@ public final class Mappings {
    * @return true if there is a mapping for the method, false otherwise
    */
   public boolean hasMethodMapping(String className, String methodName, String methodDescriptor) {
-    return methods.getOrDefault(className, Collections.emptyMap()).containsKey(
-        new MemberData(methodName, methodDescriptor)
-    );
+    MemberTable<String> methods = this.methods.get(className);
+    return methods != null && methods.containsKey(symbols.find(methodName), symbols.find(methodDescriptor));
   }
 
   /**
@@ -244,9 +482,67 @@ public final class Mappings {
    * @return true if there is a mapping for {@code className}, false otherwise
    */
   public boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor) {
-    Map<MemberData, String> fields = this.fields.getOrDefault(className, Collections.emptyMap());
-    return fields.containsKey(new MemberData(fieldName, fieldDescriptor))
-        || fields.containsKey(new MemberData(fieldName, EMPTY_FIELD_DESCRIPTOR));
+    MemberTable<String> fields = this.fields.get(className);
+    if(fields == null) return false;
+    int nameId = symbols.find(fieldName);
+    return fields.containsKey(nameId, symbols.find(fieldDescriptor))
+        || fields.containsKey(nameId, symbols.find(EMPTY_FIELD_DESCRIPTOR));
+  }
+
+  /**
+   * Retrieves the original name of a class from its mapped name. Package relocations are not considered.
+   * If several classes are mapped to the same name, any one of them is returned.
+   *
+   * @param remappedName
+   *     the mapped name of the class
+   *
+   * @return the original name or {@code null} if no class is mapped to remappedName
+   */
+  public String getOriginalClassName(String remappedName) {
+    Object original = reverseClasses.get(remappedName);
+    return original instanceof String[] ? ((String[]) original)[0] : (String) original;
+  }
+
+  /**
+   * Retrieves the original name of a field from its mapped name.
+   * If several fields are mapped to the same name, any one of them is returned.
+   *
+   * @param className
+   *     the original name of the class containing the field
+   * @param remappedName
+   *     the mapped name of the field
+   * @param fieldDescriptor
+   *     the original descriptor of the field
+   *
+   * @return the original name or {@code null} if no field is mapped to remappedName
+   */
+  public String getOriginalFieldName(String className, String remappedName, String fieldDescriptor) {
+    MemberTable<String> fields = this.fields.get(className);
+    if(fields == null) return null;
+    MemberTable<String> reversed = reverseFields.computeIfAbsent(className, _k -> invertMembers(fields));
+    int nameId = symbols.find(remappedName);
+    String original = reversed.get(nameId, symbols.find(fieldDescriptor));
+    return original != null ? original : reversed.get(nameId, symbols.find(EMPTY_FIELD_DESCRIPTOR));
+  }
+
+  /**
+   * Retrieves the original name of a method from its mapped name.
+   * If several methods are mapped to the same name, any one of them is returned.
+   *
+   * @param className
+   *     the original name of the class containing the method
+   * @param remappedName
+   *     the mapped name of the method
+   * @param methodDescriptor
+   *     the original descriptor of the method
+   *
+   * @return the original name or {@code null} if no method is mapped to remappedName
+   */
+  public String getOriginalMethodName(String className, String remappedName, String methodDescriptor) {
+    MemberTable<String> methods = this.methods.get(className);
+    if(methods == null) return null;
+    return reverseMethods.computeIfAbsent(className, _k -> invertMembers(methods))
+        .get(symbols.find(remappedName), symbols.find(methodDescriptor));
   }
 
   /**
@@ -263,9 +559,23 @@ public final class Mappings {
    * @return a set of all exceptions for this method, never {@code null}
    */
   public Set<String> getExceptions(String className, String methodName, String methodDescriptor) {
-    return extraData.getOrDefault(className, Collections.emptyMap()).getOrDefault(
-        new MemberData(methodName, methodDescriptor), MdExtra.EMPTY
-    ).exceptions;
+    return lookupExtra(className, methodName, methodDescriptor).exceptions;
+  }
+
+  /**
+   * Retrieves the list of all parameter names associated with a given Method.
+   *
+   * @param className
+   *     the name of the class containing the method
+   * @param methodName
+   *     The methods name
+   * @param methodDescriptor
+   *     The methods descriptor
+   *
+   * @return an unmodifiable list of all parameter names for this method, never {@code null}
+   */
+  public List<String> getParameters(String className, String methodName, String methodDescriptor) {
+    return Collections.unmodifiableList(lookupExtra(className, methodName, methodDescriptor).parameters);
   }
 
   /**
@@ -275,23 +585,18 @@ public final class Mappings {
    * @return the reversed (b-&gt;a) mappings
    */
   public Mappings generateReverseMappings() {
-    Mappings mappings = new Mappings();
-    classes.forEach((name, renamed) -> mappings.classes.put(renamed, name));
-    fields.forEach((className, nameMap) -> {
-      Map<MemberData, String> reversedNames = new HashMap<>();
-      nameMap.forEach((nameDescTuple, renamed) -> reversedNames.put(
-          new MemberData(renamed, remapDescriptor(nameDescTuple.desc)), nameDescTuple.name)
-      );
-      mappings.fields.put(getClassName(className), reversedNames);
-    });
-    methods.forEach((className, nameMap) -> {
-      Map<MemberData, String> reversedNames = new HashMap<>();
-      nameMap.forEach((nameDescTuple, renamed) ->
-        reversedNames.put(new MemberData(renamed, remapDescriptor(nameDescTuple.desc)), nameDescTuple.name)
-      );
-      mappings.methods.put(getClassName(className), reversedNames);
-    });
-    return mappings;
+    return reverse(null);
+  }
+
+  /**
+   * Generates a reversed set of mappings, see {@link #generateReverseMappings()}. The members of each class are
+   * reversed in parallel on the given pool, the result is the same as if they were reversed sequentially.
+   *
+   * @param pool the pool to reverse on
+   * @return the reversed (b-&gt;a) mappings
+   */
+  public Mappings generateReverseMappings(ForkJoinPool pool) {
+    return reverse(Objects.requireNonNull(pool, "pool"));
   }
 
   /**
@@ -300,26 +605,20 @@ public final class Mappings {
    * @return the cleaned up mappings
    */
   public Mappings clean() {
-    Mappings mappings = new Mappings();
+    Mappings mappings = new Mappings(symbols);
     classes.entrySet().stream().filter(e -> e.getKey().equals(e.getValue()))
-        .forEach(e -> mappings.classes.put(e.getKey(), e.getValue()));
+        .forEach(e -> mappings.putClass(e.getKey(), e.getValue()));
     fields.forEach((className, map) -> {
-      if(map.entrySet().stream().anyMatch(e -> e.getKey().name.equals(e.getValue()))) return;
-      Map<MemberData, String> values = new HashMap<>();
-      map.forEach((tuple, remappedFieldName) -> {
-        if(!tuple.name.equals(remappedFieldName)) values.put(tuple, remappedFieldName);
-      });
-      mappings.fields.put(className, values);
+      if(map.anyMatch((nameId, descId, remapped) -> symbols.get(nameId).equals(remapped))) return;
+      mappings.fields.put(className, map.filter((nameId, descId, remapped) -> !symbols.get(nameId).equals(remapped)));
     });
     methods.forEach((className, map) -> {
-      if(map.entrySet().stream().allMatch(e -> e.getKey().name.equals(e.getValue())
-          && !extraData.containsKey(className + e.getKey()))) return;
-      Map<MemberData, String> values = new HashMap<>();
-      map.forEach((tuple, remappedMethodName) -> {
-        if(!tuple.name.equals(remappedMethodName) || extraData.containsKey(className + tuple.name + tuple.desc))
-          values.put(tuple, remappedMethodName);
-      });
-      mappings.methods.put(className, values);
+      if(!map.anyMatch((nameId, descId, remapped) -> !symbols.get(nameId).equals(remapped)
+          || extraData.containsKey(className + symbols.get(nameId) + symbols.get(descId)))) return;
+      mappings.methods.put(className, map.filter((nameId, descId, remapped) ->
+          !symbols.get(nameId).equals(remapped)
+              || extraData.containsKey(className + symbols.get(nameId) + symbols.get(descId))
+      ));
     });
     mappings.extraData.putAll(extraData);
     return mappings;
@@ -335,32 +634,23 @@ public final class Mappings {
    * @return the resulting (b-&gt;c) mappings
    */
   public Mappings generateMediatorMappings(Mappings other) {
-    Mappings mappings = new Mappings();
-    classes.keySet().forEach(key -> {
-      if(!classes.get(key).equals(other.classes.get(key)))
-        mappings.classes.put(classes.get(key), other.classes.get(key));
-    });
-    fields.keySet().forEach(key -> {
-      if(!other.fields.containsKey(key)) return;
-      Map<MemberData, String> values = new HashMap<>();
-      fields.get(key).forEach((tuple, renamedFd) -> {
-        String toRenamedFd = other.fields.get(key).get(tuple);
-        if(!renamedFd.equals(toRenamedFd))
-          values.put(new MemberData(renamedFd, remapDescriptor(tuple.desc)), toRenamedFd);
-      });
-      mappings.fields.put(getClassName(key), values);
-    });
-    methods.keySet().forEach(key -> {
-      if(!other.methods.containsKey(key)) return;
-      Map<MemberData, String> values = new HashMap<>();
-      methods.get(key).forEach((tuple, renamedMd) -> {
-        String toRenamedMd = other.methods.get(key).get(tuple);
-        if(!renamedMd.equals(toRenamedMd))
-          values.put(new MemberData(renamedMd, remapDescriptor(tuple.desc)), toRenamedMd);
-      });
-      mappings.methods.put(getClassName(key), values);
-    });
-    return mappings;
+    return mediate(other, null);
+  }
+
+  /**
+   * Generates Mappings Mediating between these mappings and other, see {@link #generateMediatorMappings(Mappings)}.
+   * The members of each class are mediated in parallel on the given pool, the result is the same as if they were
+   * mediated sequentially.
+   *
+   * @param other
+   *     the mappings to convert to (the a-&gt;c mappings)
+   * @param pool
+   *     the pool to mediate on
+   *
+   * @return the resulting (b-&gt;c) mappings
+   */
+  public Mappings generateMediatorMappings(Mappings other, ForkJoinPool pool) {
+    return mediate(other, Objects.requireNonNull(pool, "pool"));
   }
 
   /**
@@ -373,25 +663,23 @@ public final class Mappings {
    * @return the resulting (a-&gt;c) mappings
    */
   public Mappings generateConversionMethods(Mappings other) {
-    Mappings mappings = new Mappings();
-    classes.forEach((name, renamed) -> mappings.classes.put(name, other.getClassName(renamed)));
-    fields.forEach((className, nameMap) -> {
-      Map<MemberData, String> otherNameMap = other.fields.getOrDefault(getClassName(className), new HashMap<>());
-      Map<MemberData, String> resultingNames = new HashMap<>();
-      nameMap.forEach((tuple, renamed) -> resultingNames.put(
-          tuple, otherNameMap.getOrDefault(new MemberData(renamed, remapDescriptor(tuple.desc)), renamed)
-      ));
-      mappings.fields.put(className, resultingNames);
-    });
-    methods.forEach((className, nameMap) -> {
-      Map<MemberData, String> otherNameMap = other.methods.getOrDefault(getClassName(className), new HashMap<>());
-      Map<MemberData, String> resultingNames = new HashMap<>();
-      nameMap.forEach((tuple, renamed) -> resultingNames.put(
-          tuple, otherNameMap.getOrDefault(new MemberData(renamed, remapDescriptor(tuple.desc)), renamed)
-      ));
-      mappings.methods.put(className, resultingNames);
-    });
-    return mappings;
+    return convert(other, null);
+  }
+
+  /**
+   * Generates Mappings Converting between these mappings and other, see {@link #generateConversionMethods(Mappings)}.
+   * The members of each class are converted in parallel on the given pool, the result is the same as if they were
+   * converted sequentially.
+   *
+   * @param other
+   *     the mappings to convert to (the b-&gt;c mappings)
+   * @param pool
+   *     the pool to convert on
+   *
+   * @return the resulting (a-&gt;c) mappings
+   */
+  public Mappings generateConversionMethods(Mappings other, ForkJoinPool pool) {
+    return convert(other, Objects.requireNonNull(pool, "pool"));
   }
 
   /**
@@ -402,87 +690,392 @@ public final class Mappings {
    * @return the composite mappings
    */
   public Mappings join(Mappings other) {
-    Mappings mappings = new Mappings(other);
-    mappings.classes.putAll(classes);
-    fields.forEach((k, v) ->
-        mappings.fields.computeIfAbsent(k, _k -> new HashMap<>()).putAll(v)
-    );
-    methods.forEach((k, v) ->
-        mappings.methods.computeIfAbsent(k, _k -> new HashMap<>()).putAll(v)
-    );
-    extraData.forEach((k, v) -> v.forEach((memberData, mdExtra) -> {
-      MdExtra extra = extraData.computeIfAbsent(k, _k -> new HashMap<>()).computeIfAbsent(
-          memberData, _k -> new MdExtra()
-      );
-      extra.exceptions.addAll(mdExtra.exceptions);
-      extra.parameters.clear();
-      extra.parameters.addAll(mdExtra.parameters);
-    }));
-    return mappings;
+    MappingsBuilder builder = new MappingsBuilder(other, symbols);
+    builder.join(this);
+    return builder.build();
   }
 
   /**
-   * Remaps a given descriptor with these mappings.
+   * Remaps a given descriptor with these mappings. If a {@link DescriptorCache} is attached, results are cached.
    *
    * @param descriptor the descriptor to remap
-   * @return the remapped descriptor
+   * @return the remapped descriptor, the same instance as {@code descriptor} if nothing was remapped
+   * @see #withDescriptorCache(int)
    */
   public String remapDescriptor(String descriptor) {
-    StringBuilder result = new StringBuilder();
-    String remaining = descriptor;
-    //Method descriptors start with '('
-    if(descriptor.startsWith("(")) {
-      // split String at ')',
-      // example descriptor "(J[Ljava/lang/String;S)[I" -> ["(J[Ljava/lang/String;S", "[I"]
-      String[] split = descriptor.split("\\)");
-      // "(J[Ljava/lang/String;S" -> "J[Ljava/lang/String;S"
-      String argsDescriptor = split[0].substring(1);
-      if(argsDescriptor.isEmpty()) result.append("()");
+    if(descriptorCache == null) return scanDescriptor(descriptor, classMapper);
+    String remapped = descriptorCache.get(descriptor);
+    if(remapped == null) {
+      remapped = scanDescriptor(descriptor, classMapper);
+      descriptorCache.put(descriptor, remapped);
+    }
+    return remapped;
+  }
+
+  /**
+   * Remaps all class references within a descriptor. The descriptor is scanned once, copying it into a reusable
+   * per-thread buffer only once the first class reference actually changes.
+   *
+   * @param descriptor the descriptor to remap
+   * @param classMapper maps binary class names to their mapped names or {@code null} if they are not mapped
+   * @return the remapped descriptor, the same instance as {@code descriptor} if nothing was remapped
+   */
+  static String scanDescriptor(String descriptor, UnaryOperator<String> classMapper) {
+    StringBuilder result = null;
+    // the index up to which the descriptor has been copied to result
+    int copied = 0;
+    int end = 0;
+    // primitive and array descriptors never contain 'L', so every 'L' found here starts a reference type
+    for(int start = descriptor.indexOf('L'); start >= 0; start = descriptor.indexOf('L', end + 1)) {
+      end = descriptor.indexOf(';', start);
+      if(end < 0) break;
+      String className = descriptor.substring(start + 1, end);
+      String mapped = classMapper.apply(className);
+      if(mapped == null || mapped.equals(className)) continue;
+      if(result == null) {
+        result = DESCRIPTOR_BUFFER.get();
+        result.setLength(0);
+      }
+      result.append(descriptor, copied, start + 1).append(mapped);
+      copied = end;
+    }
+    if(result == null) return descriptor;
+    return result.append(descriptor, copied, descriptor.length()).toString();
+  }
+
+  /**
+   * Adds or replaces a class mapping, keeping {@link #reverseClasses} up to date.
+   *
+   * @param name the class name
+   * @param renamed the mapped class name, may be {@code null}
+   */
+  void putClass(String name, String renamed) {
+    String previous = classes.put(name, renamed);
+    if(previous != null && previous.equals(renamed)) return;
+    if(previous != null) {
+      Object originals = reverseClasses.get(previous);
+      if(!(originals instanceof String[])) reverseClasses.remove(previous);
       else {
-        result.append("(");
-        //Parse chars LTR
-        PrimitiveIterator.OfInt iterator = argsDescriptor.chars().iterator();
-        StringBuilder currentName = new StringBuilder();
-        boolean inWord = false;
-        while(iterator.hasNext()) {
-          char c = (char) iterator.nextInt();
-          if(c != 'L' && !inWord) {
-            result.append(c);
-            //Reference descriptors start with 'L'
-          } else if(c == 'L') {
-            inWord = true;
-            currentName.append(c);
-            // ';' marks the end of a reference type descriptor
-          } else if(c == ';') {
-            currentName.append(c);
-            // deobfuscate the finished descriptor and append it
-            result.append(remapDescriptor(currentName.toString()));
-            currentName.setLength(0);
-            inWord = false;
-          } else currentName.append(c);
-        }
-        result.append(')');
+        String[] remaining = new String[((String[]) originals).length - 1];
+        int i = 0;
+        for(String original : (String[]) originals) if(!original.equals(name)) remaining[i++] = original;
+        reverseClasses.put(previous, remaining.length == 1 ? remaining[0] : remaining);
       }
-      //descriptor becomes the return type descriptor e.g. "(J[Ljava/lang/String;S)[I" -> [I
-      remaining = split[1];
     }
-    //Copy descriptor so e.g. simple [I descs can be returned easily
-    String cpy = remaining;
-    // strip arrays, count the dimensions for later
-    int arrDim = 0;
-    while(cpy.startsWith("[")) {
-      arrDim++;
-      cpy = cpy.substring(1);
+    if(renamed == null) return;
+    Object originals = reverseClasses.get(renamed);
+    if(originals == null) reverseClasses.put(renamed, name);
+    else if(originals instanceof String) reverseClasses.put(renamed, new String[]{(String) originals, name});
+    else {
+      String[] all = Arrays.copyOf((String[]) originals, ((String[]) originals).length + 1);
+      all[all.length - 1] = name;
+      reverseClasses.put(renamed, all);
+    }
+  }
+
+  /**
+   * Generates a reversed set of mappings, see {@link #generateReverseMappings()}. Every distinct descriptor is only
+   * remapped once, see {@link #reverseMembers(MemberTable, int[])}.
+   *
+   * @param pool the pool to reverse members on, {@code null} to reverse sequentially
+   * @return the reversed mappings
+   */
+  private Mappings reverse(ForkJoinPool pool) {
+    Mappings mappings = new Mappings(symbols);
+    classes.forEach((name, renamed) -> mappings.putClass(renamed, name));
+    // all descriptors of these mappings are already interned, so their IDs are below the current size
+    int[] descriptors = new int[symbols.size()];
+    PerClassTask.transform(fields, pool, (className, nameMap) -> reverseMembers(nameMap, descriptors),
+        putByMappedName(mappings.fields)
+    );
+    PerClassTask.transform(methods, pool, (className, nameMap) -> reverseMembers(nameMap, descriptors),
+        putByMappedName(mappings.methods)
+    );
+    return mappings;
+  }
+
+  /**
+   * Generates Mappings Mediating between these mappings and other, see {@link #generateMediatorMappings(Mappings)}.
+   *
+   * @param other the mappings to convert to
+   * @param pool the pool to mediate members on, {@code null} to mediate sequentially
+   * @return the resulting mappings
+   */
+  private Mappings mediate(Mappings other, ForkJoinPool pool) {
+    Mappings mappings = new Mappings(symbols);
+    classes.keySet().forEach(key -> {
+      if(!classes.get(key).equals(other.classes.get(key)))
+        mappings.putClass(classes.get(key), symbols.canonical(other.classes.get(key)));
+    });
+    PerClassTask.transform(fields, pool, (key, members) ->
+        other.fields.containsKey(key) ? mediateMembers(members, other, other.fields.get(key)) : null,
+        putByMappedName(mappings.fields)
+    );
+    PerClassTask.transform(methods, pool, (key, members) ->
+        other.methods.containsKey(key) ? mediateMembers(members, other, other.methods.get(key)) : null,
+        putByMappedName(mappings.methods)
+    );
+    return mappings;
+  }
+
+  /**
+   * Generates Mappings Converting between these mappings and other, see {@link #generateConversionMethods(Mappings)}.
+   *
+   * @param other the mappings to convert to
+   * @param pool the pool to convert members on, {@code null} to convert sequentially
+   * @return the resulting mappings
+   */
+  private Mappings convert(Mappings other, ForkJoinPool pool) {
+    Mappings mappings = new Mappings(symbols);
+    classes.forEach((name, renamed) -> mappings.putClass(name, symbols.canonical(other.getClassName(renamed))));
+    PerClassTask.transform(fields, pool, (className, nameMap) ->
+        convertMembers(nameMap, other, other.fields.get(getClassName(className))), mappings.fields::put
+    );
+    PerClassTask.transform(methods, pool, (className, nameMap) ->
+        convertMembers(nameMap, other, other.methods.get(getClassName(className))), mappings.methods::put
+    );
+    return mappings;
+  }
+
+  /**
+   * Creates a function putting member tables into the given tables, keyed by the mapped name of their class.
+   *
+   * @param into the tables to put into
+   * @return the function, which ignores {@code null} tables
+   */
+  private BiConsumer<String, MemberTable<String>> putByMappedName(TrieMap<String, MemberTable<String>> into) {
+    return (className, members) -> {
+      if(members != null) into.put(symbols.canonical(getClassName(className)), members);
+    };
+  }
+
+  /**
+   * Streams all members of the given tables.
+   *
+   * @param tables the member tables mapped by class name
+   * @return a stream of all members
+   */
+  private Stream<MemberMapping> streamMembers(TrieMap<String, MemberTable<String>> tables) {
+    return StreamSupport.stream(ClassSpliterator.of(tables, MemberTable::size, (className, members, action) ->
+        members.forEach((nameId, descId, remapped) ->
+            action.accept(new MemberMapping(className, symbols.get(nameId), symbols.get(descId), remapped))
+        )
+    ), false);
+  }
+
+  /**
+   * Returns the sorted index of these mappings, building it on first use. Concurrent first calls may each build an
+   * index, which is harmless as they are equal.
+   *
+   * @return the sorted index
+   */
+  private SortedIndex sortedIndex() {
+    SortedIndex index = sortedIndex;
+    if(index == null) sortedIndex = index = new SortedIndex(this);
+    return index;
+  }
+
+  /**
+   * Applies a method to all members of the given tables in sorted order.
+   *
+   * @param tables the member tables mapped by class name
+   * @param classNames the sorted class names
+   * @param keys the sorted member keys, indexed like classNames
+   * @param consumer the function to apply
+   */
+  private void forAllMembersSorted(Map<String, MemberTable<String>> tables, String[] classNames, long[][] keys,
+      MemberMappingConsumer<String> consumer) {
+    for(int i = 0; i < classNames.length; i++) {
+      String className = classNames[i];
+      tables.get(className).forEach(keys[i], (nameId, descId, remapped) ->
+          consumer.accept(className, symbols.get(nameId), symbols.get(descId), remapped)
+      );
+    }
+  }
+
+  /**
+   * Applies a method to the methods of a class, merging the sorted keys of its method mappings and its extra data.
+   *
+   * @param className the name of the class
+   * @param methodKeys the sorted keys of the method mappings of the class
+   * @param extraKeys the sorted keys of the extra data of the class
+   * @param consumer the function to apply, passed {@code null} for methods without a mapping
+   */
+  private void forClassMethodsSorted(String className, long[] methodKeys, long[] extraKeys,
+      MemberMappingConsumer<String> consumer) {
+    MemberTable<String> members = methods.get(className);
+    int i = 0;
+    int j = 0;
+    while(i < methodKeys.length || j < extraKeys.length) {
+      int order;
+      if(i == methodKeys.length) order = 1;
+      else if(j == extraKeys.length) order = -1;
+      else order = compareMembers(methodKeys[i], extraKeys[j]);
+      long key = order <= 0 ? methodKeys[i++] : extraKeys[j++];
+      if(order == 0) j++;
+      int nameId = MemberTable.nameId(key);
+      int descId = MemberTable.descId(key);
+      String remapped = order <= 0 ? members.get(nameId, descId) : null;
+      consumer.accept(className, symbols.get(nameId), symbols.get(descId), remapped);
     }
-    // primitives don't need to be deobfed
-    if(PRIMITIVES.contains(cpy)) return result + remaining;
-    // Strip L and ; for lookup (Lmy/package/Class; -> my/package/Class)
-    cpy = cpy.substring(1, cpy.length() - 1);
-    // the mappings do not contain the class, no deobfuscation needed (e.g. java/lang/String...)
-    if(!hasClassMapping(cpy)) return result + remaining;
-    //prepend the array dimensions if any
-    for(int i = 0; i < arrDim; i++) result.append('[');
-    //convert deobfed class name to descriptor (my/deobfed/ClassName -> Lmy/deobfed/ClassName;)
-    return result.append('L').append(getClassName(cpy)).append(';').toString();
+  }
+
+  /**
+   * Compares two members by name and then descriptor, like {@link MemberTable#sortedKeys(SymbolTable)} orders them.
+   *
+   * @param a the packed key of the first member
+   * @param b the packed key of the second member
+   * @return a negative number, zero or a positive number if a sorts before, like or after b
+   */
+  private int compareMembers(long a, long b) {
+    int order = compareSymbols(MemberTable.nameId(a), MemberTable.nameId(b));
+    return order != 0 ? order : compareSymbols(MemberTable.descId(a), MemberTable.descId(b));
+  }
+
+  /**
+   * Compares two symbols by {@link String#compareTo(String)}. Interned symbols are equal if and only if their IDs are.
+   *
+   * @param a the ID of the first symbol
+   * @param b the ID of the second symbol
+   * @return a negative number, zero or a positive number if a sorts before, like or after b
+   */
+  private int compareSymbols(int a, int b) {
+    return a == b ? 0 : symbols.get(a).compareTo(symbols.get(b));
+  }
+
+  /**
+   * Copies a member table of these mappings into another symbol table.
+   *
+   * @param members the table to copy
+   * @param symbols the symbol table of the copy
+   * @return the copied table
+   */
+  private MemberTable<String> copyMembers(MemberTable<String> members, SymbolTable symbols) {
+    if(symbols == this.symbols) return new MemberTable<>(members);
+    MemberTable<String> copy = new MemberTable<>();
+    members.forEach((nameId, descId, remapped) -> copy.put(
+        symbols.intern(this.symbols.get(nameId)), symbols.intern(this.symbols.get(descId)), symbols.canonical(remapped)
+    ));
+    return copy;
+  }
+
+  /**
+   * Looks up a member within a member table of these mappings.
+   *
+   * @param members the table to search, may be {@code null}
+   * @param name the member name
+   * @param desc the member descriptor
+   * @return the remapped name or {@code null} if the member is not contained
+   */
+  private String lookupMember(MemberTable<String> members, String name, String desc) {
+    return members == null ? null : members.get(symbols.find(name), symbols.find(desc));
+  }
+
+  /**
+   * Looks up the extra data of a method.
+   *
+   * @param className the name of the class declaring the method
+   * @param methodName the method name
+   * @param methodDescriptor the method descriptor
+   * @return the extra data, {@link MdExtra#EMPTY} if there is none
+   */
+  private MdExtra lookupExtra(String className, String methodName, String methodDescriptor) {
+    MemberTable<MdExtra> methods = extraData.get(className);
+    // most methods without extra data are ruled out by the name filter, without resolving any symbol
+    if(methods == null || !methods.mayContainName(methodName)) return MdExtra.EMPTY;
+    MdExtra extra = methods.get(symbols.find(methodName), symbols.find(methodDescriptor));
+    return extra == null ? MdExtra.EMPTY : extra;
+  }
+
+  /**
+   * Inverts a member table for reverse lookups, keeping descriptors as they are. Mapped names are only looked up in
+   * the symbol table, so that read-only queries never grow a table shared with builders and other mappings.
+   *
+   * @param members the table to invert
+   * @return the table mapping remapped names and original descriptors to original names
+   */
+  private MemberTable<String> invertMembers(MemberTable<String> members) {
+    MemberTable<String> inverted = new MemberTable<>();
+    members.forEach((nameId, descId, renamed) -> {
+      int renamedId = renamed == null ? -1 : symbols.find(renamed);
+      if(renamedId >= 0) inverted.put(renamedId, descId, symbols.get(nameId));
+    });
+    return inverted;
+  }
+
+  /**
+   * Reverses a member table, see {@link #generateReverseMappings()}.
+   * <br>
+   * Remapped descriptors are memoized by descriptor ID in an array of {@code remappedId + 1}, so that 0 marks
+   * descriptors not remapped yet. The array may be shared by concurrent tasks without synchronization: remapping is
+   * deterministic, so a task missing the write of another one merely remaps the same descriptor again.
+   *
+   * @param members the table to reverse
+   * @param descriptors the memoized remapped descriptor IDs
+   * @return the reversed table
+   */
+  private MemberTable<String> reverseMembers(MemberTable<String> members, int[] descriptors) {
+    MemberTable<String> reversed = new MemberTable<>();
+    members.forEach((nameId, descId, renamed) -> {
+      int renamedId = symbols.intern(renamed);
+      int remappedId = descId < descriptors.length ? descriptors[descId] - 1 : -1;
+      if(remappedId < 0) {
+        remappedId = symbols.intern(remapDescriptor(symbols.get(descId)));
+        if(descId < descriptors.length) descriptors[descId] = remappedId + 1;
+      }
+      reversed.put(renamedId, remappedId, symbols.get(nameId));
+    });
+    return reversed;
+  }
+
+  /**
+   * Generates the mediating member table for a class, see {@link #generateMediatorMappings(Mappings)}.
+   *
+   * @param members the members of the class within these mappings
+   * @param other the mappings to convert to
+   * @param otherMembers the members of the class within other
+   * @return the mediating table
+   */
+  private MemberTable<String> mediateMembers(MemberTable<String> members, Mappings other,
+      MemberTable<String> otherMembers) {
+    MemberTable<String> values = new MemberTable<>();
+    members.forEach((nameId, descId, renamed) -> {
+      String desc = symbols.get(descId);
+      String toRenamed = other.lookupMember(otherMembers, symbols.get(nameId), desc);
+      if(!renamed.equals(toRenamed))
+        values.put(symbols.intern(renamed), symbols.intern(remapDescriptor(desc)), symbols.canonical(toRenamed));
+    });
+    return values;
+  }
+
+  /**
+   * Generates the converted member table for a class, see {@link #generateConversionMethods(Mappings)}.
+   *
+   * @param members the members of the class within these mappings
+   * @param other the mappings to convert with
+   * @param otherMembers the members of the remapped class within other, may be {@code null}
+   * @return the converted table
+   */
+  private MemberTable<String> convertMembers(MemberTable<String> members, Mappings other,
+      MemberTable<String> otherMembers) {
+    MemberTable<String> resultingNames = new MemberTable<>();
+    members.forEach((nameId, descId, renamed) -> {
+      String converted = other.lookupMember(otherMembers, renamed, remapDescriptor(symbols.get(descId)));
+      resultingNames.put(nameId, descId, converted == null ? renamed : symbols.canonical(converted));
+    });
+    return resultingNames;
+  }
+
+  /**
+   * Looks up the mapped name of a given class.
+   *
+   * @param className the binary name of the class
+   * @return the mapped name or {@code null} if the class is not mapped
+   */
+  private String mapClassName(String className) {
+    String relocated = packages.find(className);
+    if(relocated == null) return classes.get(className);
+    String cNameOnly = className.substring(className.lastIndexOf('/') + 1);
+    return relocated + classes.getOrDefault(cNameOnly, cNameOnly);
   }
 }
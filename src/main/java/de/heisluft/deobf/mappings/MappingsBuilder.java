@@ -2,33 +2,70 @@ package de.heisluft.deobf.mappings;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * MappingsBuilder provides an interface for composing new Mappings without compromising the
  * API Immutability of Mappings.
+ * <br>
+ * Built mappings share all unchanged data with the builder, so {@link #build()} takes constant time and the builder
+ * only copies what it modifies afterwards. Building after every small batch of changes is therefore cheap.
  */
 public final class MappingsBuilder {
 
   /** The mappings populated by this builder. These are mutable, so we don't expose them. */
   private final Mappings mappings;
 
+  /** The table all names and descriptors are interned into. */
+  private final SymbolTable symbols;
+
   /**
-   * Constructs a new MappingsBuilder from the given set of old mappings. All entries are deep-copied.
+   * The member tables, extra data maps and method extra data this builder created or copied since the last build.
+   * Only these are not shared with built mappings, so only these may be modified in place.
+   */
+  private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Constructs a new MappingsBuilder from the given set of old mappings. No entries are copied until they are modified.
+   * The built mappings share the symbol table of the given mappings.
    *
    * @param mappings the mappings to copy from
    */
   public MappingsBuilder(Mappings mappings) {
-    this.mappings = new Mappings(mappings);
+    this(mappings, mappings.symbols);
+  }
+
+  /**
+   * Constructs a new MappingsBuilder from the given set of old mappings. If the mappings use a different symbol table,
+   * all entries are deep-copied and interned into the given one. This can be used to compact parsed mappings into a
+   * table shared with other mappings. Otherwise, no entries are copied until they are modified.
+   *
+   * @param mappings the mappings to copy from
+   * @param symbols the table to intern all names and descriptors into
+   */
+  public MappingsBuilder(Mappings mappings, SymbolTable symbols) {
+    this.symbols = symbols;
+    this.mappings = mappings.symbols == symbols ? mappings.mutableCopy() : new Mappings(mappings, symbols);
   }
 
   /**
    * Constructs a new MappingsBuilder instance with empty mappings.
    */
   public MappingsBuilder() {
-    this.mappings = new Mappings();
+    this(new SymbolTable());
+  }
+
+  /**
+   * Constructs a new MappingsBuilder instance with empty mappings, interning all names and descriptors into the given
+   * symbol table. Sharing a table between mappings of similar programs stores each of their common names only once.
+   *
+   * @param symbols the table to intern all names and descriptors into
+   */
+  public MappingsBuilder(SymbolTable symbols) {
+    this.symbols = symbols;
+    this.mappings = new Mappings(symbols);
   }
 
   /**
@@ -41,11 +78,14 @@ public final class MappingsBuilder {
    *  boolean c = a.equals(b.build());
    * </pre>
    * {@code c} will be {@code false}.
+   * <br>
+   * Building takes constant time, apart from copying the package relocations.
    *
    * @return the built mappings
    */
   public Mappings build() {
-    return new Mappings(mappings);
+    owned.clear();
+    return mappings.snapshot();
   }
 
   /**
@@ -65,7 +105,7 @@ public final class MappingsBuilder {
    * @param rName the remapped name
    */
   public void addClassMapping(String cName, String rName) {
-    mappings.classes.put(cName, rName);
+    mappings.putClass(symbols.canonical(cName), symbols.canonical(rName));
   }
 
   /**
@@ -96,13 +136,14 @@ public final class MappingsBuilder {
   }
 
   /**
-   * Checks whether any class mapping has className as remapped name.
+   * Checks whether any class mapping has className as remapped name. A reverse index is kept, so this takes
+   * constant time.
    *
    * @param className the binary class name to look for
    * @return whether the target is already mapped to
    */
   public boolean hasClassRevMapping(String className) {
-    return mappings.classes.containsValue(className);
+    return mappings.reverseClasses.containsKey(className);
   }
 
   /**
@@ -120,9 +161,11 @@ public final class MappingsBuilder {
    */
   @Deprecated
   public void addFieldMapping(String cName, String fName, String rName) {
-    Map<MemberData, String> cMappings = mappings.fields.computeIfAbsent(cName, k -> new HashMap<>());
-    if(cMappings.keySet().stream().noneMatch(md -> md.name.equals(fName)))
-      cMappings.put(new MemberData(fName, Mappings.EMPTY_FIELD_DESCRIPTOR), rName);
+    MemberTable<String> cMappings = mappings.fields.get(cName);
+    int nameId = symbols.intern(fName);
+    if(cMappings != null && cMappings.containsName(nameId)) return;
+    ownedMembers(mappings.fields, cName)
+        .put(nameId, symbols.intern(Mappings.EMPTY_FIELD_DESCRIPTOR), symbols.canonical(rName));
   }
 
   /**
@@ -135,9 +178,12 @@ public final class MappingsBuilder {
    * @param rName the remapped name
    */
   public void addFieldMapping(String cName, String fName, String fDesc, String rName) {
-    Map<MemberData, String> cMappings = mappings.fields.computeIfAbsent(cName, k -> new HashMap<>());
-    cMappings.put(new MemberData(fName, fDesc), rName);
-    cMappings.remove(new MemberData(fName, Mappings.EMPTY_FIELD_DESCRIPTOR));
+    MemberTable<String> cMappings = ownedMembers(mappings.fields, cName);
+    int nameId = symbols.intern(fName);
+    int descId = symbols.intern(fDesc);
+    int emptyDesc = symbols.intern(Mappings.EMPTY_FIELD_DESCRIPTOR);
+    cMappings.put(nameId, descId, symbols.canonical(rName));
+    if(descId != emptyDesc) cMappings.remove(nameId, emptyDesc);
   }
 
   /**
@@ -169,9 +215,7 @@ public final class MappingsBuilder {
    * @return true if there is a mapping for {@code className}, false otherwise
    */
   public boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor) {
-    Map<MemberData, String> data = mappings.fields.getOrDefault(className, new HashMap<>());
-    return data.containsKey(new MemberData(fieldName, fieldDescriptor))
-        || data.containsKey(new MemberData(fieldName, Mappings.EMPTY_FIELD_DESCRIPTOR));
+    return mappings.hasFieldMapping(className, fieldName, fieldDescriptor);
   }
 
   /**
@@ -183,8 +227,7 @@ public final class MappingsBuilder {
    * @param rName the remapped name
    */
   public void addMethodMapping(String cName, String mName, String mDesc, String rName) {
-    if(!mappings.methods.containsKey(cName)) mappings.methods.put(cName, new HashMap<>());
-    mappings.methods.get(cName).put(new MemberData(mName, mDesc), rName);
+    ownedMembers(mappings.methods, cName).put(symbols.intern(mName), symbols.intern(mDesc), symbols.canonical(rName));
   }
 
   /**
@@ -216,8 +259,7 @@ public final class MappingsBuilder {
    * @return true if there is a mapping for the method, false otherwise
    */
   public boolean hasMethodMapping(String className, String methodName, String methodDescriptor) {
-    return mappings.methods.getOrDefault(className, new HashMap<>())
-        .containsKey(new MemberData(methodName, methodDescriptor));
+    return mappings.hasMethodMapping(className, methodName, methodDescriptor);
   }
 
   /**
@@ -229,9 +271,8 @@ public final class MappingsBuilder {
    * @param exceptions the list of exceptions to add
    */
   public void addExceptions(String className, String methodName, String methodDesc, Collection<String> exceptions) {
-    mappings.extraData.computeIfAbsent(className, _k -> new HashMap<>())
-        .computeIfAbsent(new MemberData(methodName, methodDesc), _k -> new MdExtra())
-        .exceptions.addAll(exceptions);
+    Set<String> mdExceptions = ownedExtra(className, symbols.intern(methodName), symbols.intern(methodDesc)).exceptions;
+    exceptions.forEach(e -> mdExceptions.add(symbols.canonical(e)));
   }
 
   /**
@@ -243,11 +284,9 @@ public final class MappingsBuilder {
    * @param parameterNames the list of parameter names to set
    */
   public void setParameters(String className, String methodName, String methodDesc, List<String> parameterNames) {
-    List<String> params = mappings.extraData.computeIfAbsent(className, _k -> new HashMap<>())
-        .computeIfAbsent(new MemberData(methodName, methodDesc), _k -> new MdExtra())
-        .parameters;
+    List<String> params = ownedExtra(className, symbols.intern(methodName), symbols.intern(methodDesc)).parameters;
     params.clear();
-    params.addAll(parameterNames);
+    parameterNames.forEach(p -> params.add(symbols.canonical(p)));
   }
 
   /**
@@ -262,7 +301,113 @@ public final class MappingsBuilder {
    * @return true if there are any exceptions for the method, false otherwise
    */
   public boolean hasExceptionsFor(String cName, String mName, String mDesc) {
-    return !mappings.extraData.getOrDefault(cName, Collections.emptyMap())
-        .getOrDefault(new MemberData(mName, mDesc), MdExtra.EMPTY).exceptions.isEmpty();
+    return !mappings.getExceptions(cName, mName, mDesc).isEmpty();
+  }
+
+  /**
+   * Adds all entries of the given mappings, as if each of them was added with the respective method of this builder.
+   * Existing class, method and field mappings and package relocations are overridden, exceptions are appended.
+   * Field mappings without descriptors are only added if there is no mapping for the field name yet, as with
+   * {@link #addFieldMapping(String, String, String)}. Parameters are only overridden if any are given, as mappings
+   * do not record whether parameters were explicitly set to an empty list.
+   * <br>
+   * Adding partial mappings in order thus yields the same mappings as adding all their entries in order.
+   *
+   * @param toAdd the mappings to add
+   */
+  public void addAll(Mappings toAdd) {
+    Mappings source = toAdd.symbols == symbols ? toAdd : new Mappings(toAdd, symbols);
+    source.packages.forEach(mappings.packages::put);
+    source.classes.forEach(mappings::putClass);
+    int emptyDesc = symbols.intern(Mappings.EMPTY_FIELD_DESCRIPTOR);
+    source.fields.forEach((cName, fields) -> {
+      if(!mappings.fields.containsKey(cName)) {
+        mappings.fields.put(cName, fields);
+        return;
+      }
+      MemberTable<String> cMappings = ownedMembers(mappings.fields, cName);
+      fields.forEach((nameId, descId, rName) -> {
+        if(descId != emptyDesc) {
+          cMappings.put(nameId, descId, rName);
+          cMappings.remove(nameId, emptyDesc);
+        } else if(!cMappings.containsName(nameId)) cMappings.put(nameId, descId, rName);
+      });
+    });
+    source.methods.forEach((cName, methods) -> {
+      if(mappings.methods.containsKey(cName)) ownedMembers(mappings.methods, cName).putAll(methods);
+      else mappings.methods.put(cName, methods);
+    });
+    source.extraData.forEach((cName, members) -> members.forEach((nameId, descId, mdExtra) -> {
+      MdExtra extra = ownedExtra(cName, nameId, descId);
+      extra.exceptions.addAll(mdExtra.exceptions);
+      if(mdExtra.parameters.isEmpty()) return;
+      extra.parameters.clear();
+      extra.parameters.addAll(mdExtra.parameters);
+    }));
+  }
+
+  /**
+   * Joins the given mappings into these, see {@link Mappings#join(Mappings)}. Entries of toJoin take precedence,
+   * parameters are overridden, exceptions are joined. Tables of classes not yet mapped by this builder are shared.
+   *
+   * @param toJoin the mappings to join, which must use the symbol table of this builder
+   */
+  void join(Mappings toJoin) {
+    toJoin.classes.forEach(mappings::putClass);
+    toJoin.fields.forEach((k, v) -> {
+      if(mappings.fields.containsKey(k)) ownedMembers(mappings.fields, k).putAll(v);
+      else mappings.fields.put(k, v);
+    });
+    toJoin.methods.forEach((k, v) -> {
+      if(mappings.methods.containsKey(k)) ownedMembers(mappings.methods, k).putAll(v);
+      else mappings.methods.put(k, v);
+    });
+    toJoin.extraData.forEach((k, v) -> v.forEach((nameId, descId, mdExtra) -> {
+      MdExtra extra = ownedExtra(k, nameId, descId);
+      extra.exceptions.addAll(mdExtra.exceptions);
+      extra.parameters.clear();
+      extra.parameters.addAll(mdExtra.parameters);
+    }));
+  }
+
+  /**
+   * Retrieves the member table of a class for modification, copying it first if it is shared with built mappings.
+   *
+   * @param tables the field or method tables of the mappings
+   * @param cName the binary name of the class
+   * @return the table owned by this builder
+   */
+  private MemberTable<String> ownedMembers(TrieMap<String, MemberTable<String>> tables, String cName) {
+    MemberTable<String> table = tables.get(cName);
+    if(table != null && owned.contains(table)) return table;
+    table = table == null ? new MemberTable<>() : new MemberTable<>(table);
+    tables.put(symbols.canonical(cName), table);
+    owned.add(table);
+    return table;
+  }
+
+  /**
+   * Retrieves the extra data of a method for modification, copying it first if it is shared with built mappings.
+   *
+   * @param className the binary name of the containing class
+   * @param nameId the ID of the method name
+   * @param descId the ID of the method descriptor
+   * @return the extra data owned by this builder
+   */
+  private MdExtra ownedExtra(String className, int nameId, int descId) {
+    MemberTable<MdExtra> classExtra = mappings.extraData.get(className);
+    if(classExtra == null || !owned.contains(classExtra)) {
+      classExtra = classExtra == null ? new MemberTable<>() : new MemberTable<>(classExtra);
+      mappings.extraData.put(symbols.canonical(className), classExtra);
+      owned.add(classExtra);
+    }
+    MdExtra extra = classExtra.get(nameId, descId);
+    if(extra == null || !owned.contains(extra)) {
+      extra = extra == null ? new MdExtra() : new MdExtra(extra);
+      classExtra.put(nameId, descId, extra);
+      classExtra.recordName(symbols.get(nameId));
+      owned.add(extra);
+    }
+    return extra;
   }
 }
@@ -0,0 +1,369 @@
+package de.heisluft.deobf.mappings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of parsed mapping files for long-running processes that parse the same files again and again. As Mappings
+ * are immutable, cached instances are simply handed out again.
+ * <br>
+ * Cached mappings are addressed by the SHA-256 hash of the file content and the handler that parsed them, so that
+ * copies of a file share one entry. The path, size and modification time of each parsed file are remembered, so that
+ * unchanged files are not even hashed again. Files that were modified are hashed, which is still much cheaper than
+ * parsing them, and only reparsed if their content actually changed.
+ * <br>
+ * The bound of this cache is the total size of the cached files, not the heap used by their parsed mappings, which is
+ * usually several times larger. Once the total size exceeds the maximum, the least recently used mappings are evicted.
+ * Parsed mappings can additionally be persisted to a directory in the MBIN format, so that they survive restarts and
+ * evictions and load much faster than text formats.
+ * <br>
+ * Caches are safe to use from multiple threads. Files must not be modified while they are being parsed.
+ */
+public final class MappingsCache {
+
+  /** The algorithm used to hash file contents. */
+  private static final String HASH_ALGORITHM = "SHA-256";
+  /** The format of hashes, the hexadecimal digest padded to 64 digits. */
+  private static final String HASH_FORMAT = "%064x";
+  /** The size of the buffer used for hashing files. */
+  private static final int BUFFER_SIZE = 1 << 16;
+  /** The initial capacity of the map holding cached mappings. */
+  private static final int INITIAL_CAPACITY = 16;
+  /** The load factor of the map holding cached mappings. */
+  private static final float LOAD_FACTOR = 0.75f;
+  /** The extension of persisted mappings. */
+  private static final String PERSISTED_EXT = "mbin";
+
+  /** The maximum total size of the files whose mappings are held in memory. */
+  private final long maximumWeight;
+  /** The directory to persist parsed mappings to, {@code null} if they are not persisted. */
+  private final Path directory;
+  /** The handler used for persisting mappings, {@code null} if they are not persisted. */
+  private final MappingsHandler persistHandler;
+  /** The state of every parsed file, mapped by its absolute path. Guarded by this. */
+  private final Map<Path, FileState> files = new HashMap<>();
+  /** All cached mappings mapped by their key, in access order. Guarded by this. */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+  /** The amount of parses answered from the cache. */
+  private final LongAdder hits = new LongAdder();
+  /** The amount of parses that had to read the file. */
+  private final LongAdder misses = new LongAdder();
+  /** The total size of the files whose mappings are held in memory. Guarded by this. */
+  private long weight;
+
+  /**
+   * Constructs a new in-memory cache.
+   *
+   * @param maximumWeight the maximum total size in bytes of the files whose mappings are held in memory
+   * @throws IllegalArgumentException if maximumWeight is negative
+   */
+  public MappingsCache(long maximumWeight) {
+    this(maximumWeight, null);
+  }
+
+  /**
+   * Constructs a new cache, persisting parsed mappings to a given directory.
+   *
+   * @param maximumWeight the maximum total size in bytes of the files whose mappings are held in memory
+   * @param directory the directory to persist mappings to, created if absent, {@code null} to not persist
+   * @throws IllegalArgumentException if maximumWeight is negative
+   * @throws IllegalStateException if mappings are to be persisted but there is no handler for MBIN files
+   */
+  public MappingsCache(long maximumWeight, Path directory) {
+    if(maximumWeight < 0)
+      throw new IllegalArgumentException("maximumWeight must not be negative, got " + maximumWeight);
+    this.maximumWeight = maximumWeight;
+    this.directory = directory;
+    persistHandler = directory == null ? null : MappingsHandlers.findHandler(PERSISTED_EXT);
+    if(directory != null && persistHandler == null)
+      throw new IllegalStateException("No handler for " + PERSISTED_EXT + " files is available");
+  }
+
+  /**
+   * Parses a mapping file or returns the cached mappings if it has been parsed before. The handler is chosen by the
+   * file extension, see {@link MappingsHandlers#parseMappings(Path)}.
+   *
+   * @param path the path of the file to parse
+   * @return the parsed mappings
+   * @throws IOException if the file could not be read or the mappings could not be persisted
+   * @throws IllegalArgumentException if there is no handler for the file
+   */
+  public Mappings parseMappings(Path path) throws IOException {
+    return parse(path, null);
+  }
+
+  /**
+   * Parses a mapping file, possibly in parallel on a given pool, or returns the cached mappings if it has been parsed
+   * before, see {@link MappingsHandlers#parseMappings(Path, ForkJoinPool)}.
+   *
+   * @param path the path of the file to parse
+   * @param pool the pool to parse on
+   * @return the parsed mappings
+   * @throws IOException if the file could not be read or the mappings could not be persisted
+   * @throws IllegalArgumentException if there is no handler for the file
+   */
+  public Mappings parseMappings(Path path, ForkJoinPool pool) throws IOException {
+    return parse(path, pool);
+  }
+
+  /** Removes all mappings held in memory. Persisted mappings are kept. */
+  public synchronized void invalidateAll() {
+    files.clear();
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * Returns the amount of parses that were answered from memory.
+   *
+   * @return the hit count
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the amount of parses that had to read a file, either the parsed or the persisted one.
+   *
+   * @return the miss count
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the total size of the files whose mappings are currently held in memory.
+   *
+   * @return the current weight in bytes
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  /**
+   * Returns the maximum total size of the files whose mappings are held in memory.
+   *
+   * @return the maximum weight in bytes
+   */
+  public long maximumWeight() {
+    return maximumWeight;
+  }
+
+  @Override
+  public String toString() {
+    return "MappingsCache(weight: " + weight() + ", hits: " + hitCount() + ", misses: " + missCount() + ')';
+  }
+
+  /**
+   * Parses a mapping file or returns the cached mappings.
+   *
+   * @param path the path of the file to parse
+   * @param pool the pool to parse on, {@code null} to parse sequentially
+   * @return the parsed mappings
+   * @throws IOException if the file could not be read or the mappings could not be persisted
+   */
+  private Mappings parse(Path path, ForkJoinPool pool) throws IOException {
+    Path file = path.toAbsolutePath().normalize();
+    MappingsHandler handler = MappingsHandlers.findFileHandler(file.toString());
+    if(handler == null) throw new IllegalArgumentException("No handler for " + file + " is available");
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    Mappings cached = findUnchanged(file, attributes);
+    if(cached != null) return cached;
+    String key = hash(file) + '.' + handler.fileExt();
+    cached = findContent(file, attributes, key);
+    if(cached != null) return cached;
+    misses.increment();
+    Mappings mappings = load(key);
+    if(mappings == null) {
+      mappings = pool == null ? handler.parseMappings(file) : handler.parseMappings(file, pool);
+      persist(key, mappings);
+    }
+    store(file, attributes, key, mappings);
+    return mappings;
+  }
+
+  /**
+   * Looks up the cached mappings of a file whose size and modification time did not change.
+   *
+   * @param file the absolute path of the file
+   * @param attributes the current attributes of the file
+   * @return the cached mappings or {@code null} if the file changed or its mappings were evicted
+   */
+  private synchronized Mappings findUnchanged(Path file, BasicFileAttributes attributes) {
+    FileState state = files.get(file);
+    if(state == null || !state.matches(attributes)) return null;
+    Entry entry = entries.get(state.key);
+    if(entry == null) return null;
+    hits.increment();
+    return entry.mappings;
+  }
+
+  /**
+   * Looks up the cached mappings of a file by its content, remembering the current state of the file on success.
+   *
+   * @param file the absolute path of the file
+   * @param attributes the current attributes of the file
+   * @param key the key of the file content
+   * @return the cached mappings or {@code null} if no mappings with this content are held in memory
+   */
+  private synchronized Mappings findContent(Path file, BasicFileAttributes attributes, String key) {
+    Entry entry = entries.get(key);
+    if(entry == null) return null;
+    files.put(file, new FileState(attributes, key));
+    hits.increment();
+    return entry.mappings;
+  }
+
+  /**
+   * Loads persisted mappings.
+   *
+   * @param key the key of the mappings
+   * @return the persisted mappings or {@code null} if none are persisted or they could not be read
+   */
+  private Mappings load(String key) {
+    if(directory == null) return null;
+    Path persisted = directory.resolve(key + '.' + PERSISTED_EXT);
+    if(!Files.isRegularFile(persisted)) return null;
+    try {
+      return persistHandler.parseMappings(persisted);
+    } catch(IOException e) {
+      // corrupt or outdated, it is overwritten once the file is parsed again
+      return null;
+    }
+  }
+
+  /**
+   * Persists parsed mappings. They are written to a temporary file first, so that concurrent processes never read
+   * incomplete files.
+   *
+   * @param key the key of the mappings
+   * @param mappings the mappings to persist
+   * @throws IOException if the mappings could not be written
+   */
+  private void persist(String key, Mappings mappings) throws IOException {
+    if(directory == null) return;
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, key, ".tmp");
+    try {
+      persistHandler.writeMappings(mappings, temp);
+      Path persisted = directory.resolve(key + '.' + PERSISTED_EXT);
+      try {
+        Files.move(temp, persisted, StandardCopyOption.ATOMIC_MOVE);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(temp, persisted, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Holds parsed mappings in memory, evicting the least recently used mappings until the maximum weight is respected.
+   *
+   * @param file the absolute path of the parsed file
+   * @param attributes the attributes of the file when it was parsed
+   * @param key the key of the file content
+   * @param mappings the parsed mappings
+   */
+  private synchronized void store(Path file, BasicFileAttributes attributes, String key, Mappings mappings) {
+    if(attributes.size() > maximumWeight) return;
+    Entry previous = entries.put(key, new Entry(mappings, attributes.size()));
+    if(previous != null) weight -= previous.weight;
+    weight += attributes.size();
+    files.put(file, new FileState(attributes, key));
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while(weight > maximumWeight) {
+      Map.Entry<String, Entry> evicted = eldest.next();
+      eldest.remove();
+      weight -= evicted.getValue().weight;
+      files.values().removeIf(state -> state.key.equals(evicted.getKey()));
+    }
+  }
+
+  /**
+   * Hashes the content of a file.
+   *
+   * @param file the file to hash
+   * @return the hexadecimal hash
+   * @throws IOException if the file could not be read
+   */
+  private static String hash(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch(NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Every JVM supports " + HASH_ALGORITHM, e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try(InputStream in = Files.newInputStream(file)) {
+      for(int read = in.read(buffer); read >= 0; read = in.read(buffer)) digest.update(buffer, 0, read);
+    }
+    return String.format(HASH_FORMAT, new BigInteger(1, digest.digest()));
+  }
+
+  /** The state of a parsed file. */
+  private static final class FileState {
+    /** The size of the file when it was parsed. */
+    private final long size;
+    /** The modification time of the file when it was parsed. */
+    private final FileTime lastModified;
+    /** The key of the file content. */
+    private final String key;
+
+    /**
+     * Constructs a new file state.
+     *
+     * @param attributes the attributes of the file when it was parsed
+     * @param key the key of the file content
+     */
+    FileState(BasicFileAttributes attributes, String key) {
+      this.size = attributes.size();
+      this.lastModified = attributes.lastModifiedTime();
+      this.key = key;
+    }
+
+    /**
+     * Checks whether a file still has this state.
+     *
+     * @param attributes the current attributes of the file
+     * @return true if size and modification time are unchanged, false otherwise
+     */
+    boolean matches(BasicFileAttributes attributes) {
+      return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime());
+    }
+  }
+
+  /** Mappings held in memory. */
+  private static final class Entry {
+    /** The parsed mappings. */
+    private final Mappings mappings;
+    /** The size of the parsed file. */
+    private final long weight;
+
+    /**
+     * Constructs a new entry.
+     *
+     * @param mappings the parsed mappings
+     * @param weight the size of the parsed file
+     */
+    Entry(Mappings mappings, long weight) {
+      this.mappings = mappings;
+      this.weight = weight;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A lazy composition of mappings, e.g. obf-&gt;srg followed by srg-&gt;mcp. Lookups are answered by passing the name
+ * through each link in turn, so that chaining never allocates intermediate mappings. Each link is queried with the
+ * class name and descriptor as remapped by all preceding links.
+ * <br>
+ * A member is mapped by a chain if at least one link maps it, links not mapping it keep its current name. Unlike
+ * {@link Mappings#generateConversionMethods(Mappings)}, which only retains the entries of the first mappings, lookups
+ * therefore also find names only known to later links. {@link #materialize()} creates flat mappings for all entries of
+ * the first link.
+ * <br>
+ * Chains are immutable and safe to use from multiple threads if all of their links are.
+ */
+public final class MappingsChain implements MappingsView {
+
+  /** The first link, defining the entries of {@link #materialize()}. */
+  private final Mappings first;
+  /** All links, starting with {@link #first}. */
+  private final MappingsView[] links;
+
+  /**
+   * Constructs a new chain.
+   *
+   * @param first the first link
+   * @param links all links, starting with first
+   */
+  private MappingsChain(Mappings first, MappingsView[] links) {
+    this.first = first;
+    this.links = links;
+  }
+
+  /**
+   * Creates a chain applying first and then all following links in order.
+   *
+   * @param first the first mappings
+   * @param next the mappings to apply afterwards
+   * @return the chain
+   */
+  public static MappingsChain of(Mappings first, MappingsView... next) {
+    MappingsView[] links = new MappingsView[next.length + 1];
+    links[0] = Objects.requireNonNull(first, "first");
+    for(int i = 0; i < next.length; i++) links[i + 1] = Objects.requireNonNull(next[i], "next");
+    return new MappingsChain(first, links);
+  }
+
+  /**
+   * Creates a chain applying this chain and then another link. This chain is not modified.
+   *
+   * @param next the mappings to apply afterwards
+   * @return the extended chain
+   */
+  public MappingsChain then(MappingsView next) {
+    MappingsView[] extended = Arrays.copyOf(links, links.length + 1);
+    extended[links.length] = Objects.requireNonNull(next, "next");
+    return new MappingsChain(first, extended);
+  }
+
+  @Override
+  public String getClassName(String className) {
+    String name = className;
+    for(MappingsView link : links) name = link.getClassName(name);
+    return name;
+  }
+
+  @Override
+  public String getMethodName(String className, String methodName, String methodDescriptor) {
+    String cName = className;
+    String name = methodName;
+    String desc = methodDescriptor;
+    boolean mapped = false;
+    for(int i = 0; i < links.length; i++) {
+      String renamed = links[i].getMethodName(cName, name, desc);
+      if(renamed != null) {
+        name = renamed;
+        mapped = true;
+      }
+      if(i == links.length - 1) break;
+      cName = links[i].getClassName(cName);
+      desc = links[i].remapDescriptor(desc);
+    }
+    return mapped ? name : null;
+  }
+
+  @Override
+  public String getFieldName(String className, String fieldName, String fieldDescriptor) {
+    String cName = className;
+    String name = fieldName;
+    String desc = fieldDescriptor;
+    boolean mapped = false;
+    for(int i = 0; i < links.length; i++) {
+      String renamed = links[i].getFieldName(cName, name, desc);
+      if(renamed != null) {
+        name = renamed;
+        mapped = true;
+      }
+      if(i == links.length - 1) break;
+      cName = links[i].getClassName(cName);
+      desc = links[i].remapDescriptor(desc);
+    }
+    return mapped ? name : null;
+  }
+
+  @Override
+  public boolean hasClassMapping(String className) {
+    String name = className;
+    for(MappingsView link : links) {
+      if(link.hasClassMapping(name)) return true;
+      name = link.getClassName(name);
+    }
+    return false;
+  }
+
+  @Override
+  public boolean hasMethodMapping(String className, String methodName, String methodDescriptor) {
+    return getMethodName(className, methodName, methodDescriptor) != null;
+  }
+
+  @Override
+  public boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor) {
+    return getFieldName(className, fieldName, fieldDescriptor) != null;
+  }
+
+  @Override
+  public String remapDescriptor(String descriptor) {
+    String desc = descriptor;
+    for(MappingsView link : links) desc = link.remapDescriptor(desc);
+    return desc;
+  }
+
+  /**
+   * Creates flat mappings from this chain. They contain every class, field and method mapped by the first link, mapped
+   * to the name this chain looks up for it. Like with {@link Mappings#generateConversionMethods(Mappings)}, package
+   * relocations, exceptions and parameters are not retained.
+   *
+   * @return the flat mappings
+   */
+  public Mappings materialize() {
+    MappingsBuilder builder = new MappingsBuilder(first.symbols);
+    first.forAllClasses((cName, renamed) -> builder.addClassMapping(cName, getClassName(cName)));
+    first.forAllFields((cName, name, desc, renamed) -> {
+      String mapped = getFieldName(cName, name, desc);
+      // fields without descriptor are passed on with EMPTY_FIELD_DESCRIPTOR, keeping them descriptor-less
+      if(mapped != null) builder.addFieldMapping(cName, name, desc, mapped);
+    });
+    first.forAllMethods((cName, name, desc, renamed) -> {
+      String mapped = getMethodName(cName, name, desc);
+      if(mapped != null) builder.addMethodMapping(cName, name, desc, mapped);
+    });
+    return builder.build();
+  }
+}
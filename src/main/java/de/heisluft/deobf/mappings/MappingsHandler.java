@@ -2,6 +2,7 @@ package de.heisluft.deobf.mappings;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A MappingsHandler is a class capable of parsing mapping files.
@@ -19,6 +20,21 @@ public interface MappingsHandler {
    */
   Mappings parseMappings(Path input) throws IOException;
 
+  /**
+   * Parses the MappingsFile at {@code input}, possibly in parallel on the given pool, and returns the resulting
+   * Mappings. Handlers of formats consisting of independent lines split large files into chunks at line boundaries,
+   * parse the chunks in parallel and merge the results. The result always equals that of
+   * {@link #parseMappings(Path)}. The default implementation parses sequentially.
+   *
+   * @param input the input where the mappings are located
+   * @param pool the pool to parse on
+   * @return the parsed mappings
+   * @throws IOException if the input path could not be read
+   */
+  default Mappings parseMappings(Path input, ForkJoinPool pool) throws IOException {
+    return parseMappings(input);
+  }
+
   /**
    * Writes Mappings in this handlers format to the given output path.
    *
@@ -2,9 +2,13 @@ package de.heisluft.deobf.mappings;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This Class is the main interface for fetching and using MappingsHandler instances.
@@ -16,14 +20,13 @@ import java.util.ServiceLoader;
  * </ol>
  *
  * Static helper methods are provided to directly fetch and use a MappingsHandler for a given operation
+ * <br>
+ * Handlers are gathered via {@link ServiceLoader} exactly once, on first use. Providers which fail to load are skipped
+ * and reported on {@code System.err}. Additional handlers can be registered at runtime. All methods are safe to call
+ * from multiple threads and lookups never block.
  */
 public final class MappingsHandlers {
 
-  /** All gathered MappingsHandler instances mapped by their handled fileExtension. */
-  private static final Map<String, MappingsHandler> HANDLERS = new HashMap<>();
-  /** Whether Handlers have been fetched. */
-  private static boolean hasFetched = false;
-
   /** This class should not be instantiated. */
   private MappingsHandlers() {
     throw new UnsupportedOperationException();
@@ -43,17 +46,7 @@ public final class MappingsHandlers {
    * @return an instance of a MappingsHandler or {@code null} if no such handler exists for the given file
    */
   public static MappingsHandler findFileHandler(String fileName) {
-    checkInit();
-    return HANDLERS.get(fileName.substring(fileName.lastIndexOf('.') + 1));
-  }
-
-  /**
-   * Gathers all MappingsHandler instances if they haven't been gathered yet.
-   */
-  private static void checkInit() {
-    if (hasFetched) return;
-    ServiceLoader.load(MappingsHandler.class).forEach(m -> HANDLERS.put(m.fileExt(), m));
-    hasFetched = true;
+    return Registry.HANDLERS.get(fileName.substring(fileName.lastIndexOf('.') + 1));
   }
 
   /**
@@ -70,8 +63,27 @@ public final class MappingsHandlers {
    * @return an instance of a MappingsHandler or {@code null} if no such handler exists for the given file extension
    */
   public static MappingsHandler findHandler(String fileExt) {
-    checkInit();
-    return HANDLERS.get(fileExt);
+    return Registry.HANDLERS.get(fileExt);
+  }
+
+  /**
+   * Registers a handler for its file extension, replacing any handler previously registered for it.
+   *
+   * @param handler the handler to register
+   * @return the replaced handler or {@code null} if there was none
+   */
+  public static MappingsHandler register(MappingsHandler handler) {
+    return Registry.HANDLERS.put(Objects.requireNonNull(handler, "handler").fileExt(), handler);
+  }
+
+  /**
+   * Unregisters a handler. Nothing happens if another handler has been registered for its file extension since.
+   *
+   * @param handler the handler to unregister
+   * @return true if the handler was unregistered, false if it was not registered
+   */
+  public static boolean unregister(MappingsHandler handler) {
+    return Registry.HANDLERS.remove(handler.fileExt(), handler);
   }
 
   /**
@@ -88,6 +100,21 @@ public final class MappingsHandlers {
     return findFileHandler(path.toString()).parseMappings(path);
   }
 
+  /**
+   * Fetches a MappingsHandler for a given path and uses it to parse the Mappings located there,
+   * possibly in parallel on the given pool, see {@link MappingsHandler#parseMappings(Path, ForkJoinPool)}.
+   * <br>
+   * Note: the fetching of a handler instance is based on the file extension
+   *
+   * @param path the path where the mappings are located
+   * @param pool the pool to parse on
+   * @return the parsed mappings
+   * @throws IOException if the input path could not be read
+   */
+  public static Mappings parseMappings(Path path, ForkJoinPool pool) throws IOException {
+    return findFileHandler(path.toString()).parseMappings(path, pool);
+  }
+
   /**
    * Fetches a MappingsHandler for a given path and uses it to write Mappings to it.
    * <br>
@@ -100,4 +127,43 @@ public final class MappingsHandlers {
   public static void writeMappings(Mappings mappings, Path path) throws IOException {
     findFileHandler(path.toString()).writeMappings(mappings, path);
   }
+
+  /**
+   * Gathers the handlers provided to a service loader. Providers which cannot be loaded or instantiated are skipped, so
+   * that a single broken provider on the class path does not leave all other handlers unavailable.
+   *
+   * @param loader the loader to gather handlers from
+   * @param into the map to put the handlers into, by their file extension
+   */
+  static void loadHandlers(ServiceLoader<MappingsHandler> loader, Map<String, MappingsHandler> into) {
+    Iterator<MappingsHandler> providers = loader.iterator();
+    while(true) {
+      try {
+        if(!providers.hasNext()) return;
+        MappingsHandler handler = providers.next();
+        into.put(handler.fileExt(), handler);
+      } catch(ServiceConfigurationError e) {
+        // the iterator moves on to the next provider after an error
+        System.err.println("Skipping MappingsHandler provider: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Holds the registered handlers. The JVM initializes this class exactly once, on first use, so handlers are gathered
+   * safely even if many threads look up handlers concurrently.
+   */
+  private static final class Registry {
+    /** All registered MappingsHandler instances mapped by their handled fileExtension. */
+    static final Map<String, MappingsHandler> HANDLERS = new ConcurrentHashMap<>();
+
+    static {
+      loadHandlers(ServiceLoader.load(MappingsHandler.class), HANDLERS);
+    }
+
+    /** This class should not be instantiated. */
+    private Registry() {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
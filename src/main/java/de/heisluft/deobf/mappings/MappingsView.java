@@ -0,0 +1,72 @@
+package de.heisluft.deobf.mappings;
+
+/**
+ * The read-only lookups needed for remapping classes, fields, methods and descriptors. Remappers that only query names
+ * should depend on this interface, so that they work with both {@link Mappings} and {@link MappedMappings}.
+ */
+public interface MappingsView {
+
+  /**
+   * Retrieves a mapped name for a given class, giving back the className as fallback.
+   *
+   * @param className the classes name
+   * @return the mapped name or className if not found
+   */
+  String getClassName(String className);
+
+  /**
+   * Retrieves a mapped name for a given method.
+   *
+   * @param className the name of the class containing the method
+   * @param methodName the methods name
+   * @param methodDescriptor the methods descriptor
+   * @return the mapped name or {@code null} if not found
+   */
+  String getMethodName(String className, String methodName, String methodDescriptor);
+
+  /**
+   * Retrieves a mapped name for a given field. Fields mapped without a descriptor match any descriptor.
+   *
+   * @param className the name of the class containing the field
+   * @param fieldName the fields name
+   * @param fieldDescriptor the fields descriptor
+   * @return the mapped name or {@code null} if not found
+   */
+  String getFieldName(String className, String fieldName, String fieldDescriptor);
+
+  /**
+   * Checks if there is a mapping for a specific class name, including package relocations.
+   *
+   * @param className the class name to test for
+   * @return true if there is a mapping for {@code className}, false otherwise
+   */
+  boolean hasClassMapping(String className);
+
+  /**
+   * Checks if there is a mapping for a specific method.
+   *
+   * @param className the name of the class declaring the method
+   * @param methodName the name of the method
+   * @param methodDescriptor the descriptor of the method
+   * @return true if there is a mapping for the method, false otherwise
+   */
+  boolean hasMethodMapping(String className, String methodName, String methodDescriptor);
+
+  /**
+   * Checks if there is a mapping for a specific field.
+   *
+   * @param className the name of the class declaring the field
+   * @param fieldName the name of the field
+   * @param fieldDescriptor the descriptor of the field
+   * @return true if there is a mapping for the field, false otherwise
+   */
+  boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor);
+
+  /**
+   * Remaps all class names within a given descriptor.
+   *
+   * @param descriptor the descriptor to remap
+   * @return the remapped descriptor, the same instance as {@code descriptor} if nothing was remapped
+   */
+  String remapDescriptor(String descriptor);
+}
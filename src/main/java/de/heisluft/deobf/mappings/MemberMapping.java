@@ -0,0 +1,89 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Objects;
+
+/**
+ * An immutable field or method mapping, as streamed by {@link Mappings#streamFields()} and
+ * {@link Mappings#streamMethods()}.
+ */
+public final class MemberMapping {
+
+  /** The name of the declaring class. */
+  private final String className;
+  /** The member name. */
+  private final String name;
+  /** The member descriptor, EF for fields mapped without a descriptor. */
+  private final String descriptor;
+  /** The mapped name. */
+  private final String mappedName;
+
+  /**
+   * Constructs a new member mapping.
+   *
+   * @param className the name of the declaring class
+   * @param name the member name
+   * @param descriptor the member descriptor
+   * @param mappedName the mapped name
+   */
+  MemberMapping(String className, String name, String descriptor, String mappedName) {
+    this.className = className;
+    this.name = name;
+    this.descriptor = descriptor;
+    this.mappedName = mappedName;
+  }
+
+  /**
+   * Returns the name of the class declaring the member.
+   *
+   * @return the class name in binary form
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the name of the member.
+   *
+   * @return the member name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the descriptor of the member, the same as passed to {@link Mappings#forAllFields(MemberMappingConsumer)}.
+   *
+   * @return the member descriptor
+   */
+  public String getDescriptor() {
+    return descriptor;
+  }
+
+  /**
+   * Returns the name the member is mapped to.
+   *
+   * @return the mapped name
+   */
+  public String getMappedName() {
+    return mappedName;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+    MemberMapping that = (MemberMapping) o;
+    return className.equals(that.className) && name.equals(that.name) && descriptor.equals(that.descriptor)
+        && Objects.equals(mappedName, that.mappedName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(className, name, descriptor, mappedName);
+  }
+
+  @Override
+  public String toString() {
+    return className + ' ' + name + ' ' + descriptor + " -> " + mappedName;
+  }
+}
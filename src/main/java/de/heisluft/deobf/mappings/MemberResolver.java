@@ -0,0 +1,218 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up members through the class hierarchy, so that members referenced via a subclass, e.g. at a call site, are
+ * found at the class declaring them. Supertypes are searched in the order of JVM member resolution: fields are looked
+ * up in the class itself, its superinterfaces and then its superclass, each recursively, while methods are looked up
+ * in the class and its superclasses first and then in all of their superinterfaces.
+ * <br>
+ * Results are memoized per referenced owner, name and descriptor, including members that could not be resolved, so
+ * the hierarchy is only walked once per member. The memo grows with the amount of distinct members looked up, so
+ * resolvers should live as long as the remapping they are used for. Class names and descriptors are remapped by the
+ * underlying mappings directly.
+ * <br>
+ * Resolvers are safe to use from multiple threads if their mappings and hierarchy provider are.
+ */
+public final class MemberResolver implements MappingsView {
+
+  /** The marker memoizing unresolved members, as concurrent maps cannot hold {@code null}. */
+  private static final String UNRESOLVED = new String("unresolved");
+
+  /** The mappings to look up members in. */
+  private final MappingsView mappings;
+  /** The provider of supertypes. */
+  private final ClassHierarchyProvider hierarchy;
+  /** The memoized mapped method names. */
+  private final Map<Member, String> methods = new ConcurrentHashMap<>();
+  /** The memoized mapped field names. */
+  private final Map<Member, String> fields = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new resolver.
+   *
+   * @param mappings the mappings to look up members in
+   * @param hierarchy the provider of supertypes
+   */
+  public MemberResolver(MappingsView mappings, ClassHierarchyProvider hierarchy) {
+    this.mappings = Objects.requireNonNull(mappings, "mappings");
+    this.hierarchy = Objects.requireNonNull(hierarchy, "hierarchy");
+  }
+
+  @Override
+  public String getClassName(String className) {
+    return mappings.getClassName(className);
+  }
+
+  /**
+   * Retrieves the mapped name of a method, which may be declared by a supertype of the given class.
+   *
+   * @param className the name of the class the method is referenced through
+   * @param methodName the methods name
+   * @param methodDescriptor the methods descriptor
+   * @return the mapped name or {@code null} if neither the class nor any supertype declares a mapped method
+   */
+  @Override
+  public String getMethodName(String className, String methodName, String methodDescriptor) {
+    Member member = new Member(className, methodName, methodDescriptor);
+    String mapped = methods.get(member);
+    if(mapped == null) {
+      mapped = resolveMethod(className, methodName, methodDescriptor);
+      String previous = methods.putIfAbsent(member, mapped == null ? UNRESOLVED : mapped);
+      if(previous != null) mapped = previous;
+    }
+    return mapped == UNRESOLVED ? null : mapped;
+  }
+
+  /**
+   * Retrieves the mapped name of a field, which may be declared by a supertype of the given class.
+   *
+   * @param className the name of the class the field is referenced through
+   * @param fieldName the fields name
+   * @param fieldDescriptor the fields descriptor
+   * @return the mapped name or {@code null} if neither the class nor any supertype declares a mapped field
+   */
+  @Override
+  public String getFieldName(String className, String fieldName, String fieldDescriptor) {
+    Member member = new Member(className, fieldName, fieldDescriptor);
+    String mapped = fields.get(member);
+    if(mapped == null) {
+      mapped = resolveField(className, fieldName, fieldDescriptor, new HashSet<>());
+      String previous = fields.putIfAbsent(member, mapped == null ? UNRESOLVED : mapped);
+      if(previous != null) mapped = previous;
+    }
+    return mapped == UNRESOLVED ? null : mapped;
+  }
+
+  @Override
+  public boolean hasClassMapping(String className) {
+    return mappings.hasClassMapping(className);
+  }
+
+  @Override
+  public boolean hasMethodMapping(String className, String methodName, String methodDescriptor) {
+    return getMethodName(className, methodName, methodDescriptor) != null;
+  }
+
+  @Override
+  public boolean hasFieldMapping(String className, String fieldName, String fieldDescriptor) {
+    return getFieldName(className, fieldName, fieldDescriptor) != null;
+  }
+
+  @Override
+  public String remapDescriptor(String descriptor) {
+    return mappings.remapDescriptor(descriptor);
+  }
+
+  /**
+   * Walks the hierarchy of a class for a mapped method, first up the superclasses, then through all superinterfaces.
+   *
+   * @param className the name of the class the method is referenced through
+   * @param name the method name
+   * @param desc the method descriptor
+   * @return the mapped name or {@code null} if no supertype declares a mapped method
+   */
+  private String resolveMethod(String className, String name, String desc) {
+    Set<String> visited = new HashSet<>();
+    Deque<String> interfaces = new ArrayDeque<>();
+    for(String c = className; c != null && visited.add(c); c = hierarchy.getSuperclass(c)) {
+      String mapped = mappings.getMethodName(c, name, desc);
+      if(mapped != null) return mapped;
+      addInterfaces(c, interfaces);
+    }
+    while(!interfaces.isEmpty()) {
+      String i = interfaces.poll();
+      if(!visited.add(i)) continue;
+      String mapped = mappings.getMethodName(i, name, desc);
+      if(mapped != null) return mapped;
+      addInterfaces(i, interfaces);
+    }
+    return null;
+  }
+
+  /**
+   * Walks the hierarchy of a class for a mapped field, searching the class, its superinterfaces and then its
+   * superclass.
+   *
+   * @param className the name of the class to search
+   * @param name the field name
+   * @param desc the field descriptor
+   * @param visited all classes searched so far
+   * @return the mapped name or {@code null} if no supertype declares a mapped field
+   */
+  private String resolveField(String className, String name, String desc, Set<String> visited) {
+    for(String c = className; c != null && visited.add(c); c = hierarchy.getSuperclass(c)) {
+      String mapped = mappings.getFieldName(c, name, desc);
+      if(mapped != null) return mapped;
+      Collection<String> interfaces = hierarchy.getInterfaces(c);
+      if(interfaces == null) continue;
+      for(String i : interfaces) {
+        mapped = resolveField(i, name, desc, visited);
+        if(mapped != null) return mapped;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Queues the direct superinterfaces of a class.
+   *
+   * @param className the name of the class
+   * @param queue the queue to add the interfaces to
+   */
+  private void addInterfaces(String className, Deque<String> queue) {
+    Collection<String> interfaces = hierarchy.getInterfaces(className);
+    if(interfaces != null) queue.addAll(interfaces);
+  }
+
+  /** A referenced member, the key of memoized results. */
+  private static final class Member {
+    /** The multiplier combining the hash codes of the components, like {@link Objects#hash(Object...)}. */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /** The name of the class the member is referenced through. */
+    private final String owner;
+    /** The member name. */
+    private final String name;
+    /** The member descriptor. */
+    private final String desc;
+    /** The hash code, computed once as members are looked up by hash repeatedly. */
+    private final int hash;
+
+    /**
+     * Constructs a new member key.
+     *
+     * @param owner the name of the class the member is referenced through
+     * @param name the member name
+     * @param desc the member descriptor
+     */
+    Member(String owner, String name, String desc) {
+      this.owner = owner;
+      this.name = name;
+      this.desc = desc;
+      // unlike Objects.hash, this does not allocate a varargs array for every lookup
+      hash = HASH_MULTIPLIER * (HASH_MULTIPLIER * owner.hashCode() + name.hashCode()) + desc.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      Member member = (Member) o;
+      return hash == member.hash && owner.equals(member.owner) && name.equals(member.name) && desc.equals(member.desc);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
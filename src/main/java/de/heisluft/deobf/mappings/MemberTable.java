@@ -0,0 +1,435 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Arrays;
+
+/**
+ * An internal open-addressing hash table mapping class members to values, such as their remapped names or the
+ * exceptions and parameters of methods. Members are keyed by the {@link SymbolTable} IDs of their name and
+ * descriptor, packed into a single long, so no key objects are allocated, neither for storing nor for looking up
+ * members.
+ * <br>
+ * Collisions are resolved by linear probing, removals shift back the following entries, so no tombstones are
+ * needed.
+ *
+ * @param <V> the type of the values
+ */
+final class MemberTable<V> {
+
+  /** The key marking an empty slot. Valid keys are never negative, as IDs are never negative. */
+  private static final long EMPTY = -1;
+  /** The minimum capacity of a table, must be a power of two. */
+  private static final int MIN_CAPACITY = 4;
+  /** The amount of bits an ID is shifted by when packing it as the upper half of a key. */
+  private static final int ID_BITS = 32;
+  /** The mask extracting the lower ID from a packed key. */
+  private static final long ID_MASK = 0xFFFFFFFFL;
+  /** The multiplier used for mixing keys, the 64 bit golden ratio. */
+  private static final long MIX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+  /** The numerator of the maximum load factor. */
+  private static final int LOAD_NUMERATOR = 3;
+  /** The denominator of the maximum load factor, must be a power of two. */
+  private static final int LOAD_DENOMINATOR = 4;
+  /** The multiplier used for mixing name hashes into filter bits, the 32 bit golden ratio. */
+  private static final int FILTER_MIX_MULTIPLIER = 0x9E3779B9;
+  /** The shift keeping the upper 6 bits of a mixed name hash, which select one of the 64 bits of the filter. */
+  private static final int FILTER_SHIFT = 26;
+
+  /** The packed member keys, {@link #EMPTY} for unused slots. */
+  private long[] keys;
+  /** The values, indexed like {@link #keys}. */
+  private V[] values;
+  /** The amount of entries. */
+  private int size;
+  /** A filter of the names recorded by {@link #recordName(String)}, one bit per name. */
+  private long nameFilter;
+
+  /** Constructs an empty table. */
+  MemberTable() {
+    keys = new long[MIN_CAPACITY];
+    values = newValues(MIN_CAPACITY);
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /**
+   * Copies the given table.
+   *
+   * @param toCopy the table to copy
+   */
+  MemberTable(MemberTable<V> toCopy) {
+    keys = toCopy.keys.clone();
+    values = toCopy.values.clone();
+    size = toCopy.size;
+    nameFilter = toCopy.nameFilter;
+  }
+
+  /**
+   * Returns the amount of entries.
+   *
+   * @return the amount of entries
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Retrieves the value of a member.
+   *
+   * @param nameId the ID of the member name, may be negative for unknown symbols
+   * @param descId the ID of the member descriptor, may be negative for unknown symbols
+   * @return the value or {@code null} if the member is not contained
+   */
+  V get(int nameId, int descId) {
+    if(nameId < 0 || descId < 0) return null;
+    int index = indexOf(pack(nameId, descId));
+    return index < 0 ? null : values[index];
+  }
+
+  /**
+   * Checks whether a member is contained.
+   *
+   * @param nameId the ID of the member name, may be negative for unknown symbols
+   * @param descId the ID of the member descriptor, may be negative for unknown symbols
+   * @return whether the member is contained
+   */
+  boolean containsKey(int nameId, int descId) {
+    return nameId >= 0 && descId >= 0 && indexOf(pack(nameId, descId)) >= 0;
+  }
+
+  /**
+   * Checks whether any member with a given name is contained, regardless of its descriptor.
+   *
+   * @param nameId the ID of the member name
+   * @return whether a member with that name is contained
+   */
+  boolean containsName(int nameId) {
+    for(long key : keys) if(key != EMPTY && (int) (key >>> ID_BITS) == nameId) return true;
+    return false;
+  }
+
+  /**
+   * Checks whether a name may have been recorded by {@link #recordName(String)}, without resolving its symbol ID.
+   * Looking up an ID touches the arrays of a symbol table shared by all members, so ruling out a name here saves the
+   * cache misses of most lookups of absent members.
+   *
+   * @param name the member name
+   * @return false if the name was never recorded, true if it may have been
+   */
+  boolean mayContainName(String name) {
+    return (nameFilter & nameBit(name)) != 0;
+  }
+
+  /**
+   * Records a member name for {@link #mayContainName(String)}. Tables queried through that method must record the
+   * names of all members put into them.
+   *
+   * @param name the member name
+   */
+  void recordName(String name) {
+    nameFilter |= nameBit(name);
+  }
+
+  /**
+   * Adds or replaces the value of a member.
+   *
+   * @param nameId the ID of the member name
+   * @param descId the ID of the member descriptor
+   * @param value the value
+   * @return the previous value or {@code null} if there was none
+   */
+  V put(int nameId, int descId, V value) {
+    long key = pack(nameId, descId);
+    int mask = keys.length - 1;
+    int index = mix(key) & mask;
+    for(long current = keys[index]; current != EMPTY; current = keys[index]) {
+      if(current == key) {
+        V previous = values[index];
+        values[index] = value;
+        return previous;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    if(++size * LOAD_DENOMINATOR > keys.length * LOAD_NUMERATOR) rehash(keys.length * 2);
+    return null;
+  }
+
+  /**
+   * Removes a member.
+   *
+   * @param nameId the ID of the member name
+   * @param descId the ID of the member descriptor
+   * @return the removed value or {@code null} if the member was not contained
+   */
+  V remove(int nameId, int descId) {
+    if(nameId < 0 || descId < 0) return null;
+    int index = indexOf(pack(nameId, descId));
+    if(index < 0) return null;
+    V previous = values[index];
+    int mask = keys.length - 1;
+    // shift back all following entries of the cluster which would be unreachable otherwise
+    for(int next = (index + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+      int home = mix(keys[next]) & mask;
+      // move the entry if the free slot lies cyclically between its home slot and its current slot
+      if(((next - home) & mask) >= ((next - index) & mask)) {
+        keys[index] = keys[next];
+        values[index] = values[next];
+        index = next;
+      }
+    }
+    keys[index] = EMPTY;
+    values[index] = null;
+    size--;
+    return previous;
+  }
+
+  /**
+   * Adds or replaces all entries of another table, which must use the same symbol table.
+   *
+   * @param other the table to add the entries of
+   */
+  void putAll(MemberTable<V> other) {
+    other.forEach(this::put);
+    nameFilter |= other.nameFilter;
+  }
+
+  /**
+   * Checks whether any entry matches a predicate.
+   *
+   * @param predicate the predicate to test
+   * @return whether any entry matches
+   */
+  boolean anyMatch(Predicate<? super V> predicate) {
+    for(int i = 0; i < keys.length; i++)
+      if(keys[i] != EMPTY && predicate.test((int) (keys[i] >>> ID_BITS), (int) (keys[i] & ID_MASK), values[i]))
+        return true;
+    return false;
+  }
+
+  /**
+   * Creates a new table containing all entries matching a predicate.
+   *
+   * @param predicate the predicate to test
+   * @return the filtered table
+   */
+  MemberTable<V> filter(Predicate<? super V> predicate) {
+    MemberTable<V> result = new MemberTable<>();
+    forEach((nameId, descId, value) -> {
+      if(predicate.test(nameId, descId, value)) result.put(nameId, descId, value);
+    });
+    result.nameFilter = nameFilter;
+    return result;
+  }
+
+  /**
+   * Applies a function to all entries.
+   *
+   * @param visitor the function to apply
+   */
+  void forEach(Visitor<? super V> visitor) {
+    long[] keys = this.keys;
+    V[] values = this.values;
+    for(int i = 0; i < keys.length; i++)
+      if(keys[i] != EMPTY) visitor.visit((int) (keys[i] >>> ID_BITS), (int) (keys[i] & ID_MASK), values[i]);
+  }
+
+  /**
+   * Applies a function to the entries of the given keys in their order.
+   *
+   * @param keys the keys of the entries, as returned by {@link #sortedKeys(SymbolTable)}
+   * @param visitor the function to apply
+   */
+  void forEach(long[] keys, Visitor<? super V> visitor) {
+    for(long key : keys) visitor.visit((int) (key >>> ID_BITS), (int) (key & ID_MASK), values[indexOf(key)]);
+  }
+
+  /**
+   * Returns the keys of all entries in ascending order of their member name and descriptor. Each symbol is looked up
+   * once and ranked among the names or descriptors of this table, so that the keys can be sorted by their ranks as
+   * primitives.
+   *
+   * @param symbols the table the IDs of this table refer to
+   * @return the sorted keys, see {@link #forEach(long[], Visitor)}
+   */
+  long[] sortedKeys(SymbolTable symbols) {
+    long[] sorted = new long[size];
+    int count = 0;
+    for(long key : keys) if(key != EMPTY) sorted[count++] = key;
+    int[] nameIds = new int[count];
+    int[] descIds = new int[count];
+    for(int i = 0; i < count; i++) {
+      nameIds[i] = (int) (sorted[i] >>> ID_BITS);
+      descIds[i] = (int) (sorted[i] & ID_MASK);
+    }
+    int[] nameRanks = rank(nameIds, symbols);
+    int[] descRanks = rank(descIds, symbols);
+    // packed ranks compare like the name and then the descriptor
+    for(int i = 0; i < count; i++) sorted[i] = pack(nameRanks[i], descRanks[i]);
+    Arrays.sort(sorted);
+    // the ID arrays now hold the ID of each rank
+    for(int i = 0; i < count; i++)
+      sorted[i] = pack(nameIds[(int) (sorted[i] >>> ID_BITS)], descIds[(int) (sorted[i] & ID_MASK)]);
+    return sorted;
+  }
+
+  /**
+   * Ranks symbols by {@link String#compareTo(String)}, equal symbols sharing their rank.
+   *
+   * @param ids the IDs of the symbols to rank, replaced by the ID of each rank
+   * @param symbols the table the IDs refer to
+   * @return the rank of each symbol, indexed like ids
+   */
+  private static int[] rank(int[] ids, SymbolTable symbols) {
+    String[] names = new String[ids.length];
+    for(int i = 0; i < ids.length; i++) names[i] = symbols.get(ids[i]);
+    String[] distinct = names.clone();
+    Arrays.sort(distinct);
+    int count = 0;
+    // interned symbols are equal if and only if they are the same instance
+    for(String name : distinct) if(count == 0 || distinct[count - 1] != name) distinct[count++] = name;
+    int[] ranks = new int[ids.length];
+    int[] original = ids.clone();
+    for(int i = 0; i < ids.length; i++) {
+      ranks[i] = Arrays.binarySearch(distinct, 0, count, names[i]);
+      ids[ranks[i]] = original[i];
+    }
+    return ranks;
+  }
+
+  /**
+   * Finds the slot of a key.
+   *
+   * @param key the packed key
+   * @return the slot index or {@code -1} if the key is not contained
+   */
+  private int indexOf(long key) {
+    long[] keys = this.keys;
+    int mask = keys.length - 1;
+    int index = mix(key) & mask;
+    for(long current = keys[index]; current != EMPTY; current = keys[index]) {
+      if(current == key) return index;
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Moves all entries to new arrays of the given capacity.
+   *
+   * @param capacity the new capacity, must be a power of two
+   */
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    V[] oldValues = values;
+    keys = new long[capacity];
+    values = newValues(capacity);
+    Arrays.fill(keys, EMPTY);
+    int mask = capacity - 1;
+    for(int i = 0; i < oldKeys.length; i++) {
+      if(oldKeys[i] == EMPTY) continue;
+      int index = mix(oldKeys[i]) & mask;
+      while(keys[index] != EMPTY) index = (index + 1) & mask;
+      keys[index] = oldKeys[i];
+      values[index] = oldValues[i];
+    }
+  }
+
+  /**
+   * Creates a value array.
+   *
+   * @param capacity the capacity of the array
+   * @param <V> the type of the values
+   * @return the array, only ever exposing its elements as values
+   */
+  @SuppressWarnings("unchecked")
+  private static <V> V[] newValues(int capacity) {
+    return (V[]) new Object[capacity];
+  }
+
+  /**
+   * Packs the IDs of a member into a key.
+   *
+   * @param nameId the ID of the member name
+   * @param descId the ID of the member descriptor
+   * @return the packed key
+   */
+  static long pack(int nameId, int descId) {
+    return ((long) nameId << ID_BITS) | (descId & ID_MASK);
+  }
+
+  /**
+   * Extracts the member name ID from a packed key.
+   *
+   * @param key the packed key
+   * @return the ID of the member name
+   */
+  static int nameId(long key) {
+    return (int) (key >>> ID_BITS);
+  }
+
+  /**
+   * Extracts the member descriptor ID from a packed key.
+   *
+   * @param key the packed key
+   * @return the ID of the member descriptor
+   */
+  static int descId(long key) {
+    return (int) (key & ID_MASK);
+  }
+
+  /**
+   * Computes the filter bit of a name.
+   *
+   * @param name the member name
+   * @return a long with the single bit of the name set
+   */
+  private static long nameBit(String name) {
+    return 1L << (name.hashCode() * FILTER_MIX_MULTIPLIER >>> FILTER_SHIFT);
+  }
+
+  /**
+   * Mixes all bits of a key into the upper bits of its hash, which are then folded into the lower ones.
+   *
+   * @param key the key to hash
+   * @return the hash of the key
+   */
+  static int mix(long key) {
+    long hash = key * MIX_MULTIPLIER;
+    return (int) (hash ^ (hash >>> ID_BITS));
+  }
+
+  /**
+   * A function receiving the entries of a table.
+   *
+   * @param <V> the type of the values
+   */
+  @FunctionalInterface
+  interface Visitor<V> {
+    /**
+     * Receives a single entry.
+     *
+     * @param nameId the ID of the member name
+     * @param descId the ID of the member descriptor
+     * @param value the value
+     */
+    void visit(int nameId, int descId, V value);
+  }
+
+  /**
+   * A predicate on the entries of a table.
+   *
+   * @param <V> the type of the values
+   */
+  @FunctionalInterface
+  interface Predicate<V> {
+    /**
+     * Tests a single entry.
+     *
+     * @param nameId the ID of the member name
+     * @param descId the ID of the member descriptor
+     * @param value the value
+     * @return whether the entry matches
+     */
+    boolean test(int nameId, int descId, V value);
+  }
+}
@@ -0,0 +1,99 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/** The immutable exceptions and parameters of a method, as streamed by {@link Mappings#streamExtraData()}. */
+public final class MethodExtraData {
+
+  /** The name of the declaring class. */
+  private final String className;
+  /** The method name. */
+  private final String methodName;
+  /** The method descriptor. */
+  private final String descriptor;
+  /** The method extra data. */
+  private final MdExtra extra;
+
+  /**
+   * Constructs a new entry.
+   *
+   * @param className the name of the declaring class
+   * @param methodName the method name
+   * @param descriptor the method descriptor
+   * @param extra the extra data of the method, which must not be modified anymore
+   */
+  MethodExtraData(String className, String methodName, String descriptor, MdExtra extra) {
+    this.className = className;
+    this.methodName = methodName;
+    this.descriptor = descriptor;
+    this.extra = extra;
+  }
+
+  /**
+   * Returns the name of the class declaring the method.
+   *
+   * @return the class name in binary form
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the name of the method.
+   *
+   * @return the method name
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+
+  /**
+   * Returns the descriptor of the method.
+   *
+   * @return the method descriptor
+   */
+  public String getDescriptor() {
+    return descriptor;
+  }
+
+  /**
+   * Returns the exceptions of the method.
+   *
+   * @return an unmodifiable set of exception class names, never {@code null}
+   */
+  public Set<String> getExceptions() {
+    return Collections.unmodifiableSet(extra.exceptions);
+  }
+
+  /**
+   * Returns the parameter names of the method.
+   *
+   * @return an unmodifiable list of parameter names, never {@code null}
+   */
+  public List<String> getParameters() {
+    return Collections.unmodifiableList(extra.parameters);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+    MethodExtraData that = (MethodExtraData) o;
+    return className.equals(that.className) && methodName.equals(that.methodName)
+        && descriptor.equals(that.descriptor) && extra.equals(that.extra);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(className, methodName, descriptor, extra);
+  }
+
+  @Override
+  public String toString() {
+    return className + ' ' + methodName + ' ' + descriptor + " (exceptions: " + extra.exceptions + ", parameters: "
+        + extra.parameters + ')';
+  }
+}
@@ -0,0 +1,167 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * An internal matcher for package relocations. Relocation patterns are compiled once when they are added.
+ * <br>
+ * Patterns of the form {@code ^some/pkg/[^\/]+$}, as created by the RGS handler from {@code .class} globs,
+ * only match classes directly inside a literal package. These are stored in a prefix trie, so their lookup cost
+ * only depends on the length of the class name. All other patterns fall back to precompiled regular expressions.
+ */
+final class PackageRelocations {
+
+  /** The regex prefix of plain package relocations. */
+  private static final String PLAIN_PREFIX = "^";
+  /** The regex suffix of plain package relocations, matching all classes directly within the package. */
+  private static final String PLAIN_SUFFIX = "[^\\/]+$";
+  /** All characters with a special meaning within regular expressions. */
+  private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+  /** All relocations, mapped as follows: pattern -&gt; relocated package name. */
+  private final Map<String, String> relocations = new LinkedHashMap<>();
+  /** All relocations that are not plain packages, mapped by their pattern string. */
+  private final Map<String, Pattern> regexes = new LinkedHashMap<>();
+  /** The root of the prefix trie of plain package relocations. */
+  private final Node root = new Node();
+
+  /** Constructs an empty instance. */
+  PackageRelocations() {}
+
+  /**
+   * Adds a relocation, replacing any previous relocation for the same pattern.
+   *
+   * @param pattern the regex matching all classes to relocate
+   * @param target the relocated package name
+   */
+  void put(String pattern, String target) {
+    relocations.put(pattern, target);
+    String pkg = plainPackage(pattern);
+    if(pkg != null) root.insert(pkg).target = target;
+    else regexes.computeIfAbsent(pattern, Pattern::compile);
+  }
+
+  /**
+   * Adds all relocations of another instance. Compiled patterns are shared, as they are immutable.
+   *
+   * @param other the relocations to add
+   */
+  void putAll(PackageRelocations other) {
+    other.relocations.forEach((pattern, target) -> {
+      relocations.put(pattern, target);
+      Pattern regex = other.regexes.get(pattern);
+      if(regex != null) regexes.put(pattern, regex);
+      else root.insert(plainPackage(pattern)).target = target;
+    });
+  }
+
+  /**
+   * Finds the relocated package name for a given class.
+   *
+   * @param className the binary name of the class
+   * @return the relocated package name or {@code null} if no relocation matches
+   */
+  String find(String className) {
+    int lastSlash = className.lastIndexOf('/');
+    if(lastSlash < className.length() - 1) {
+      Node node = root;
+      for(int i = 0; i <= lastSlash && node != null; i++) node = node.child(className.charAt(i));
+      if(node != null && node.target != null) return node.target;
+    }
+    for(Map.Entry<String, Pattern> regex : regexes.entrySet())
+      if(regex.getValue().matcher(className).matches()) return relocations.get(regex.getKey());
+    return null;
+  }
+
+  /**
+   * Applies a method to all relocations.
+   *
+   * @param consumer the function to apply, receiving the pattern and the relocated package name
+   */
+  void forEach(BiConsumer<String, String> consumer) {
+    relocations.forEach(consumer);
+  }
+
+  /**
+   * Extracts the package from a plain package relocation pattern.
+   *
+   * @param pattern the pattern to inspect
+   * @return the package name including its trailing slash (or the empty String for the default package),
+   *     or {@code null} if the pattern is not a plain package relocation
+   */
+  private static String plainPackage(String pattern) {
+    if(!pattern.startsWith(PLAIN_PREFIX) || !pattern.endsWith(PLAIN_SUFFIX)) return null;
+    if(pattern.length() < PLAIN_PREFIX.length() + PLAIN_SUFFIX.length()) return null;
+    String pkg = pattern.substring(PLAIN_PREFIX.length(), pattern.length() - PLAIN_SUFFIX.length());
+    if(!pkg.isEmpty() && !pkg.endsWith("/")) return null;
+    for(int i = 0; i < pkg.length(); i++) if(REGEX_META_CHARS.indexOf(pkg.charAt(i)) >= 0) return null;
+    return pkg;
+  }
+
+  /** A node of the package prefix trie, children are kept sorted by their character. */
+  private static final class Node {
+    /** The characters leading to the children of this node, sorted. */
+    private char[] keys = new char[0];
+    /** The children of this node, indexed like {@link #keys}. */
+    private Node[] children = new Node[0];
+    /** The relocated package name for the package ending at this node, may be {@code null}. */
+    private String target;
+
+    /**
+     * Retrieves the child reached by a given character.
+     *
+     * @param c the character to follow
+     * @return the child or {@code null} if there is none
+     */
+    Node child(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      return index < 0 ? null : children[index];
+    }
+
+    /**
+     * Retrieves the node for a given package, creating all missing nodes along the way.
+     *
+     * @param pkg the package to insert
+     * @return the node for the package
+     */
+    Node insert(String pkg) {
+      Node node = this;
+      for(int i = 0; i < pkg.length(); i++) {
+        char c = pkg.charAt(i);
+        int index = Arrays.binarySearch(node.keys, c);
+        if(index < 0) {
+          index = -index - 1;
+          Node child = new Node();
+          node.keys = insertAt(node.keys, index, c);
+          Node[] newChildren = new Node[node.children.length + 1];
+          System.arraycopy(node.children, 0, newChildren, 0, index);
+          System.arraycopy(node.children, index, newChildren, index + 1, node.children.length - index);
+          newChildren[index] = child;
+          node.children = newChildren;
+        }
+        node = node.children[index];
+      }
+      return node;
+    }
+
+    /**
+     * Inserts a character into a copy of an array.
+     *
+     * @param array the array to copy
+     * @param index the index to insert at
+     * @param c the character to insert
+     * @return the new array
+     */
+    private static char[] insertAt(char[] array, int index, char c) {
+      char[] result = new char[array.length + 1];
+      System.arraycopy(array, 0, result, 0, index);
+      System.arraycopy(array, index, result, index + 1, array.length - index);
+      result[index] = c;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Transforms the per-class entries of a map on a fork-join pool. The entries are split into slices, each result is
+ * written to its own slot of a shared array, so workers never contend, and once all slices are done the results are
+ * merged by the calling thread in the iteration order of the map. Merging therefore behaves exactly like transforming
+ * sequentially, and the merged maps need not be thread safe.
+ * <br>
+ * Transformations only read their source mappings, which is safe as mappings are never modified once built. Interning
+ * into a {@link SymbolTable} is thread safe.
+ */
+final class PerClassTask extends RecursiveAction {
+
+  /** The minimum amount of entries to transform in parallel, smaller maps are transformed sequentially. */
+  private static final int MIN_PARALLEL_SIZE = 1 << 8;
+  /** The maximum amount of entries transformed by a single task without splitting it any further. */
+  private static final int SLICE_SIZE = 1 << 6;
+  /** Tasks are never serialized. */
+  private static final long serialVersionUID = 1L;
+
+  /** The keys of all entries. */
+  private final transient Object[] keys;
+  /** The values of all entries. */
+  private final transient Object[] values;
+  /** The results, indexed like {@link #keys}. */
+  private final transient Object[] results;
+  /** The transformation to apply to every entry. */
+  private final transient BiFunction<Object, Object, Object> transform;
+  /** The index of the first entry of this slice. */
+  private final int from;
+  /** The index after the last entry of this slice. */
+  private final int to;
+
+  /**
+   * Constructs a new task for a slice of entries.
+   *
+   * @param keys the keys of all entries
+   * @param values the values of all entries
+   * @param results the array to store all results in
+   * @param transform the transformation to apply to every entry
+   * @param from the index of the first entry of the slice
+   * @param to the index after the last entry of the slice
+   */
+  private PerClassTask(Object[] keys, Object[] values, Object[] results, BiFunction<Object, Object, Object> transform,
+      int from, int to) {
+    this.keys = keys;
+    this.values = values;
+    this.results = results;
+    this.transform = transform;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Transforms all entries of a map and merges the results in iteration order.
+   *
+   * @param source the map to transform
+   * @param pool the pool to transform on, {@code null} to transform sequentially
+   * @param transform the transformation computing the result for a key and its value
+   * @param merge receives every key with its result on the calling thread
+   * @param <V> the type of values
+   * @param <R> the type of results
+   */
+  @SuppressWarnings("unchecked")
+  static <V, R> void transform(Map<String, V> source, ForkJoinPool pool, BiFunction<String, V, R> transform,
+      BiConsumer<String, R> merge) {
+    if(pool == null || pool.getParallelism() == 1 || source.size() < MIN_PARALLEL_SIZE) {
+      source.forEach((key, value) -> merge.accept(key, transform.apply(key, value)));
+      return;
+    }
+    Object[] keys = new Object[source.size()];
+    Object[] values = new Object[keys.length];
+    int[] index = {0};
+    source.forEach((key, value) -> {
+      keys[index[0]] = key;
+      values[index[0]++] = value;
+    });
+    Object[] results = new Object[keys.length];
+    BiFunction<Object, Object, Object> erased = (key, value) -> transform.apply((String) key, (V) value);
+    pool.invoke(new PerClassTask(keys, values, results, erased, 0, keys.length));
+    for(int i = 0; i < keys.length; i++) merge.accept((String) keys[i], (R) results[i]);
+  }
+
+  @Override
+  protected void compute() {
+    if(to - from <= SLICE_SIZE) {
+      for(int i = from; i < to; i++) results[i] = transform.apply(keys[i], values[i]);
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    invokeAll(
+        new PerClassTask(keys, values, results, transform, from, middle),
+        new PerClassTask(keys, values, results, transform, middle, to)
+    );
+  }
+}
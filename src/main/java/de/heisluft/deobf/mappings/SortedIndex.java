@@ -0,0 +1,72 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The sorted order of all entries of a Mappings instance, built once on first sorted iteration and kept for the
+ * lifetime of the instance, which is safe as Mappings are never modified once handed out.
+ * <br>
+ * Only references to class names and the packed member keys of each class are stored, so an index takes far less
+ * memory than the entries themselves. Classes are ordered by name, members by name and then descriptor, all Strings
+ * are compared by {@link String#compareTo(String)}.
+ */
+final class SortedIndex {
+
+  /** The names of all mapped classes in ascending order. */
+  final String[] classes;
+  /** The names of all classes declaring field mappings in ascending order. */
+  final String[] fieldClasses;
+  /** The sorted field keys of each class, indexed like {@link #fieldClasses}. */
+  final long[][] fieldKeys;
+  /** The names of all classes declaring method mappings in ascending order. */
+  final String[] methodClasses;
+  /** The sorted method keys of each class, indexed like {@link #methodClasses}. */
+  final long[][] methodKeys;
+  /** The names of all classes declaring exceptions or parameters of methods in ascending order. */
+  final String[] extraClasses;
+  /** The sorted keys of the methods with exceptions or parameters of each class, indexed like {@link #extraClasses}. */
+  final long[][] extraKeys;
+
+  /**
+   * Builds the index of the given mappings.
+   *
+   * @param mappings the mappings to index
+   */
+  SortedIndex(Mappings mappings) {
+    classes = sortedKeys(mappings.classes);
+    fieldClasses = sortedKeys(mappings.fields);
+    fieldKeys = sortedMembers(mappings.fields, fieldClasses, mappings.symbols);
+    methodClasses = sortedKeys(mappings.methods);
+    methodKeys = sortedMembers(mappings.methods, methodClasses, mappings.symbols);
+    extraClasses = sortedKeys(mappings.extraData);
+    extraKeys = sortedMembers(mappings.extraData, extraClasses, mappings.symbols);
+  }
+
+  /**
+   * Sorts the keys of a map.
+   *
+   * @param map the map
+   * @return the keys in ascending order
+   */
+  private static String[] sortedKeys(Map<String, ?> map) {
+    String[] keys = map.keySet().toArray(new String[0]);
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Sorts the member keys of each class.
+   *
+   * @param tables the member tables mapped by class name
+   * @param classNames the sorted class names
+   * @param symbols the table the member keys refer to
+   * @return the sorted member keys, indexed like classNames
+   */
+  private static long[][] sortedMembers(Map<String, ? extends MemberTable<?>> tables, String[] classNames,
+      SymbolTable symbols) {
+    long[][] keys = new long[classNames.length][];
+    for(int i = 0; i < classNames.length; i++) keys[i] = tables.get(classNames[i]).sortedKeys(symbols);
+    return keys;
+  }
+}
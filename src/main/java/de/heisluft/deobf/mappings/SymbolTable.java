@@ -0,0 +1,217 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe table of interned names and descriptors, each identified by a dense int ID.
+ * Mappings store their members as packed pairs of these IDs, and all Strings they hand out are the interned
+ * instances of this table.
+ * <br>
+ * A table can be shared by many Mappings instances, e.g. by passing it to {@link MappingsBuilder#MappingsBuilder(
+ * SymbolTable)}. Mappings of different versions of the same program share most of their names, so each of those is
+ * only stored once. Symbols are never removed, so a shared table grows with all Mappings ever built from it.
+ * <br>
+ * Lookups never block: they read optimistically and only fall back to a read lock if a concurrent insertion
+ * interfered.
+ */
+public final class SymbolTable {
+
+  /** The initial capacity of the symbol array. */
+  private static final int INITIAL_CAPACITY = 64;
+  /** The amount of bits the upper half of a hash is shifted by when spreading it. */
+  private static final int HASH_SPREAD_SHIFT = 16;
+  /** The multiplier {@link String#hashCode()} applies per character. */
+  private static final int STRING_HASH_MULTIPLIER = 31;
+  /** The multiplier used for mixing hash codes, the 32 bit golden ratio. */
+  private static final int MIX_MULTIPLIER = 0x9E3779B9;
+
+  /** The lock guarding all mutable state. */
+  private final StampedLock lock = new StampedLock();
+  /** All symbols indexed by their ID. */
+  private String[] symbols = new String[INITIAL_CAPACITY];
+  /** The open-addressing hash table of symbol IDs, each stored as {@code id + 1}, so that 0 marks empty slots. */
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  /** The amount of interned symbols. */
+  private int size;
+
+  /** Constructs an empty symbol table. */
+  public SymbolTable() {}
+
+  /**
+   * Returns the amount of interned symbols.
+   *
+   * @return the amount of interned symbols
+   */
+  public int size() {
+    long stamp = lock.tryOptimisticRead();
+    int result = size;
+    if(lock.validate(stamp)) return result;
+    stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Interns a symbol, assigning it a new ID if it is not yet known.
+   *
+   * @param symbol the symbol to intern
+   * @return the ID of the symbol
+   */
+  int intern(String symbol) {
+    int id = find(symbol);
+    if(id >= 0) return id;
+    long stamp = lock.writeLock();
+    try {
+      int hash = spread(symbol.hashCode());
+      int mask = slots.length - 1;
+      int index = hash & mask;
+      for(int slot = slots[index]; slot != 0; slot = slots[index]) {
+        if(symbols[slot - 1].equals(symbol)) return slot - 1;
+        index = (index + 1) & mask;
+      }
+      id = size;
+      if(id == symbols.length) grow();
+      symbols[id] = symbol;
+      insertSlot(slots, hash, id);
+      size++;
+      return id;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Interns a symbol, returning the interned instance. Use this to deduplicate Strings stored outside of
+   * ID-based tables.
+   *
+   * @param symbol the symbol to intern, may be {@code null}
+   * @return the interned instance equal to symbol or {@code null} if symbol is {@code null}
+   */
+  String canonical(String symbol) {
+    return symbol == null ? null : get(intern(symbol));
+  }
+
+  /**
+   * Finds the ID of a symbol without interning it.
+   *
+   * @param symbol the symbol to look up
+   * @return the ID of the symbol or {@code -1} if it was never interned
+   */
+  int find(String symbol) {
+    return find(symbol, spread(symbol.hashCode()));
+  }
+
+  /**
+   * Finds the ID of a symbol given as any character sequence, e.g. a reused StringBuilder or a view into a buffer,
+   * without interning it. Nothing is allocated, the hash code is computed the way {@link String#hashCode()} does.
+   *
+   * @param symbol the symbol to look up
+   * @return the ID of the symbol or {@code -1} if it was never interned
+   */
+  int find(CharSequence symbol) {
+    if(symbol instanceof String) return find((String) symbol);
+    int hash = 0;
+    for(int i = 0, length = symbol.length(); i < length; i++) hash = STRING_HASH_MULTIPLIER * hash + symbol.charAt(i);
+    return find(symbol, spread(hash));
+  }
+
+  /**
+   * Finds the ID of a symbol with a precomputed hash.
+   *
+   * @param symbol the symbol to look up
+   * @param hash the spread hash of the symbol
+   * @return the ID of the symbol or {@code -1} if it was never interned
+   */
+  private int find(CharSequence symbol, int hash) {
+    long stamp = lock.tryOptimisticRead();
+    int id = probe(slots, symbols, hash, symbol);
+    if(lock.validate(stamp)) return id;
+    stamp = lock.readLock();
+    try {
+      return probe(slots, symbols, hash, symbol);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Retrieves the symbol for a given ID.
+   *
+   * @param id an ID previously returned by {@link #intern(String)}
+   * @return the interned symbol
+   */
+  String get(int id) {
+    long stamp = lock.tryOptimisticRead();
+    String[] symbols = this.symbols;
+    String symbol = id < symbols.length ? symbols[id] : null;
+    if(symbol != null && lock.validate(stamp)) return symbol;
+    stamp = lock.readLock();
+    try {
+      return this.symbols[id];
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Doubles the capacity of this table, rehashing all symbols. Must be called while holding the write lock. */
+  private void grow() {
+    String[] newSymbols = new String[symbols.length * 2];
+    System.arraycopy(symbols, 0, newSymbols, 0, symbols.length);
+    int[] newSlots = new int[newSymbols.length * 2];
+    for(int i = 0; i < size; i++) insertSlot(newSlots, spread(newSymbols[i].hashCode()), i);
+    symbols = newSymbols;
+    slots = newSlots;
+  }
+
+  /**
+   * Searches a hash table for a symbol. As this may be called without holding a lock, it must tolerate seeing
+   * inconsistent state, in which case the result is discarded by the caller.
+   *
+   * @param slots the hash table to search
+   * @param symbols the symbols indexed by ID
+   * @param hash the spread hash of the symbol
+   * @param symbol the symbol to look up
+   * @return the ID of the symbol or {@code -1} if it was not found
+   */
+  private static int probe(int[] slots, String[] symbols, int hash, CharSequence symbol) {
+    int mask = slots.length - 1;
+    int index = hash & mask;
+    for(int i = 0; i < slots.length; i++) {
+      int slot = slots[index];
+      if(slot == 0 || slot > symbols.length) return -1;
+      String candidate = symbols[slot - 1];
+      if(candidate != null && candidate.contentEquals(symbol)) return slot - 1;
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Inserts an ID into a hash table.
+   *
+   * @param slots the hash table to insert into
+   * @param hash the spread hash of the symbol
+   * @param id the ID of the symbol
+   */
+  private static void insertSlot(int[] slots, int hash, int id) {
+    int mask = slots.length - 1;
+    int index = hash & mask;
+    while(slots[index] != 0) index = (index + 1) & mask;
+    slots[index] = id + 1;
+  }
+
+  /**
+   * Mixes a hash code, so that similar symbols like {@code func_1} and {@code func_2}, whose hash codes only differ in
+   * their lowest bits, do not end up in neighbouring slots and form long probe sequences.
+   *
+   * @param hash the hash code to mix
+   * @return the mixed hash code
+   */
+  private static int spread(int hash) {
+    int mixed = hash * MIX_MULTIPLIER;
+    return mixed ^ (mixed >>> HASH_SPREAD_SHIFT);
+  }
+}
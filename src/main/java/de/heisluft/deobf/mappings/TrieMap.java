@@ -0,0 +1,631 @@
+package de.heisluft.deobf.mappings;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An internal hash array mapped trie, a map that can be snapshotted in constant time.
+ * <br>
+ * Each node remembers the edit token of the map that created it. A map only modifies nodes carrying its own token in
+ * place and copies all other nodes along the path to the modified entry. {@link #snapshot()} hands out the current
+ * nodes to an immutable map and gives this map a new token, so both share all nodes until this map is modified again.
+ * Modifying a map after taking a snapshot therefore costs O(changes) instead of copying the whole map.
+ * <br>
+ * Keys must not be {@code null}, values may be.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class TrieMap<K, V> extends AbstractMap<K, V> {
+
+  /** The amount of hash bits consumed per trie level. */
+  private static final int BITS_PER_LEVEL = 5;
+  /** The mask extracting the hash bits of a single trie level. */
+  private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+  /** The amount of bits the upper half of a hash is shifted by when spreading it. */
+  private static final int HASH_SPREAD_SHIFT = 16;
+  /** A marker for absent values, as values may be {@code null}. */
+  private static final Object NOT_FOUND = new Object();
+
+  /** The root node, {@code null} if this map is empty. */
+  private Node root;
+  /** The amount of entries. */
+  private int size;
+  /** The edit token of this map, {@code null} if this map is immutable. */
+  private Object edit;
+
+  /** Constructs an empty, mutable map. */
+  TrieMap() {
+    this(null, 0, new Object());
+  }
+
+  /**
+   * Constructs a map from existing nodes.
+   *
+   * @param root the root node, may be {@code null}
+   * @param size the amount of entries
+   * @param edit the edit token, {@code null} for immutable maps
+   */
+  private TrieMap(Node root, int size, Object edit) {
+    this.root = root;
+    this.size = size;
+    this.edit = edit;
+  }
+
+  /**
+   * Creates an immutable snapshot of this map in constant time. This map stays mutable, but will no longer modify any
+   * of its current nodes in place.
+   *
+   * @return the snapshot
+   */
+  TrieMap<K, V> snapshot() {
+    if(edit != null) edit = new Object();
+    return new TrieMap<>(root, size, null);
+  }
+
+  /**
+   * Creates a mutable copy of this map in constant time. The copy shares all nodes with this map, so this map must
+   * not be modified anymore, which holds for all maps of built mappings.
+   *
+   * @return the mutable copy
+   */
+  TrieMap<K, V> mutableCopy() {
+    return new TrieMap<>(root, size, new Object());
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return find(key, NOT_FOUND) != NOT_FOUND;
+  }
+
+  @Override
+  public V get(Object key) {
+    return find(key, null);
+  }
+
+  @Override
+  public V getOrDefault(Object key, V defaultValue) {
+    return find(key, defaultValue);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    Objects.requireNonNull(key, "key must not be null");
+    checkMutable();
+    Box box = new Box();
+    Node node = root == null ? new BitmapNode(edit, 0, new Object[0]) : root;
+    root = node.assoc(edit, 0, hash(key), key, value, box);
+    if(!box.found) size++;
+    return box.value();
+  }
+
+  @Override
+  public V remove(Object key) {
+    checkMutable();
+    if(key == null || root == null) return null;
+    Box box = new Box();
+    root = root.without(edit, 0, hash(key), key, box);
+    if(box.found) size--;
+    return box.value();
+  }
+
+  @Override
+  public void clear() {
+    checkMutable();
+    root = null;
+    size = 0;
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    if(root != null) root.forEach(action);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Looks up the value of a key.
+   *
+   * @param key the key to look up
+   * @param notFound the value to return if the key is absent
+   * @param <T> the type of notFound
+   * @return the value or notFound
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T find(Object key, T notFound) {
+    if(key == null || root == null) return notFound;
+    return (T) root.find(0, hash(key), key, notFound);
+  }
+
+  /** Ensures that this map may be modified. */
+  private void checkMutable() {
+    if(edit == null) throw new UnsupportedOperationException("snapshots are immutable");
+  }
+
+  /**
+   * Computes the spread hash code of a key.
+   *
+   * @param key the key
+   * @return the hash
+   */
+  private static int hash(Object key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> HASH_SPREAD_SHIFT);
+  }
+
+  /**
+   * Computes the bit representing a hash within the bitmap of a node.
+   *
+   * @param hash the hash
+   * @param shift the amount of hash bits consumed by the levels above
+   * @return the bit
+   */
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & LEVEL_MASK);
+  }
+
+  /**
+   * Creates a node holding two entries.
+   *
+   * @param edit the edit token of the new node
+   * @param shift the amount of hash bits consumed by the levels above
+   * @param key1 the first key
+   * @param val1 the first value
+   * @param hash2 the hash of the second key
+   * @param key2 the second key
+   * @param val2 the second value
+   * @return the new node
+   */
+  private static Node createNode(Object edit, int shift, Object key1, Object val1, int hash2, Object key2,
+      Object val2) {
+    int hash1 = hash(key1);
+    if(hash1 == hash2) return new CollisionNode(edit, hash1, new Object[]{key1, val1, key2, val2});
+    Box box = new Box();
+    return new BitmapNode(edit, 0, new Object[0])
+        .assoc(edit, shift, hash1, key1, val1, box)
+        .assoc(edit, shift, hash2, key2, val2, box);
+  }
+
+  /**
+   * Copies an array, leaving out a single key-value pair.
+   *
+   * @param array the array to copy
+   * @param index the index of the key to leave out
+   * @return the new array
+   */
+  private static Object[] removePair(Object[] array, int index) {
+    Object[] result = new Object[array.length - 2];
+    System.arraycopy(array, 0, result, 0, index);
+    System.arraycopy(array, index + 2, result, index, result.length - index);
+    return result;
+  }
+
+  /** Receives the previous value of a modified entry. */
+  private static final class Box {
+    /** Whether the key was present before the modification. */
+    private boolean found;
+    /** The previous value. */
+    private Object previous;
+
+    /**
+     * Records the previous value of a key.
+     *
+     * @param previous the previous value
+     */
+    void found(Object previous) {
+      this.found = true;
+      this.previous = previous;
+    }
+
+    /**
+     * Returns the previous value.
+     *
+     * @param <V> the type of values
+     * @return the previous value or {@code null} if the key was absent
+     */
+    @SuppressWarnings("unchecked")
+    <V> V value() {
+      return (V) previous;
+    }
+  }
+
+  /** A node of the trie. */
+  private abstract static class Node {
+    /** The edit token of the map that created this node. */
+    protected final Object edit;
+
+    /**
+     * Constructs a node.
+     *
+     * @param edit the edit token of the map creating this node
+     */
+    Node(Object edit) {
+      this.edit = edit;
+    }
+
+    /**
+     * Checks whether a map may modify this node in place.
+     *
+     * @param edit the edit token of the map
+     * @return whether this node is owned by the map
+     */
+    final boolean isEditable(Object edit) {
+      return edit != null && this.edit == edit;
+    }
+
+    /**
+     * Looks up the value of a key.
+     *
+     * @param shift the amount of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key the key
+     * @param notFound the value to return if the key is absent
+     * @return the value or notFound
+     */
+    abstract Object find(int shift, int hash, Object key, Object notFound);
+
+    /**
+     * Adds or replaces an entry.
+     *
+     * @param edit the edit token of the modifying map
+     * @param shift the amount of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key the key
+     * @param val the value
+     * @param box receives the previous value
+     * @return the node replacing this node, this node if it was modified in place
+     */
+    abstract Node assoc(Object edit, int shift, int hash, Object key, Object val, Box box);
+
+    /**
+     * Removes an entry.
+     *
+     * @param edit the edit token of the modifying map
+     * @param shift the amount of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key the key
+     * @param box receives the removed value
+     * @return the node replacing this node, {@code null} if it became empty
+     */
+    abstract Node without(Object edit, int shift, int hash, Object key, Box box);
+
+    /**
+     * Applies a function to all entries below this node.
+     *
+     * @param action the function to apply
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     */
+    abstract <K, V> void forEach(BiConsumer<? super K, ? super V> action);
+
+    /**
+     * Returns the amount of key-value or key-node pairs within this node.
+     *
+     * @return the amount of pairs
+     */
+    abstract int pairCount();
+
+    /**
+     * Returns the key of a pair, {@code null} if the pair holds a child node.
+     *
+     * @param pair the index of the pair
+     * @return the key or {@code null}
+     */
+    abstract Object keyAt(int pair);
+
+    /**
+     * Returns the value or child node of a pair.
+     *
+     * @param pair the index of the pair
+     * @return the value or child node
+     */
+    abstract Object valueAt(int pair);
+  }
+
+  /** A node dispatching on the hash bits of its level, storing pairs of key and value or {@code null} and child. */
+  private static final class BitmapNode extends Node {
+    /** The set of hash bit combinations present in this node. */
+    private int bitmap;
+    /** The pairs, ordered by their hash bits. */
+    private Object[] array;
+
+    /**
+     * Constructs a node.
+     *
+     * @param edit the edit token of the map creating this node
+     * @param bitmap the set of hash bit combinations present
+     * @param array the pairs
+     */
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      super(edit);
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    /**
+     * Computes the pair index of a bit.
+     *
+     * @param bit the bit
+     * @return the index of the pair within the array, not yet multiplied by two
+     */
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key, Object notFound) {
+      int bit = bitpos(hash, shift);
+      if((bitmap & bit) == 0) return notFound;
+      int idx = index(bit) * 2;
+      Object keyOrNull = array[idx];
+      if(keyOrNull == null) return ((Node) array[idx + 1]).find(shift + BITS_PER_LEVEL, hash, key, notFound);
+      return key.equals(keyOrNull) ? array[idx + 1] : notFound;
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, Object key, Object val, Box box) {
+      int bit = bitpos(hash, shift);
+      int idx = index(bit) * 2;
+      if((bitmap & bit) != 0) {
+        Object keyOrNull = array[idx];
+        Object valOrNode = array[idx + 1];
+        if(keyOrNull == null) {
+          Node node = ((Node) valOrNode).assoc(edit, shift + BITS_PER_LEVEL, hash, key, val, box);
+          return node == valOrNode ? this : set(edit, idx + 1, node);
+        }
+        if(key.equals(keyOrNull)) {
+          box.found(valOrNode);
+          return val == valOrNode ? this : set(edit, idx + 1, val);
+        }
+        Node node = createNode(edit, shift + BITS_PER_LEVEL, keyOrNull, valOrNode, hash, key, val);
+        BitmapNode result = (BitmapNode) set(edit, idx, null);
+        result.array[idx + 1] = node;
+        return result;
+      }
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, idx);
+      newArray[idx] = key;
+      newArray[idx + 1] = val;
+      System.arraycopy(array, idx, newArray, idx + 2, array.length - idx);
+      if(!isEditable(edit)) return new BitmapNode(edit, bitmap | bit, newArray);
+      bitmap |= bit;
+      array = newArray;
+      return this;
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key, Box box) {
+      int bit = bitpos(hash, shift);
+      if((bitmap & bit) == 0) return this;
+      int idx = index(bit) * 2;
+      Object keyOrNull = array[idx];
+      Object valOrNode = array[idx + 1];
+      if(keyOrNull == null) {
+        Node node = ((Node) valOrNode).without(edit, shift + BITS_PER_LEVEL, hash, key, box);
+        if(node == valOrNode) return this;
+        if(node != null) return set(edit, idx + 1, node);
+      } else if(key.equals(keyOrNull)) {
+        box.found(valOrNode);
+      } else return this;
+      if(bitmap == bit) return null;
+      if(!isEditable(edit)) return new BitmapNode(edit, bitmap ^ bit, removePair(array, idx));
+      bitmap ^= bit;
+      array = removePair(array, idx);
+      return this;
+    }
+
+    /**
+     * Sets an array element, copying this node if it is not owned by the modifying map.
+     *
+     * @param edit the edit token of the modifying map
+     * @param index the array index
+     * @param value the new element
+     * @return the modified node
+     */
+    private Node set(Object edit, int index, Object value) {
+      BitmapNode node = isEditable(edit) ? this : new BitmapNode(edit, bitmap, array.clone());
+      node.array[index] = value;
+      return node;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    <K, V> void forEach(BiConsumer<? super K, ? super V> action) {
+      for(int i = 0; i < array.length; i += 2) {
+        if(array[i] == null) ((Node) array[i + 1]).forEach(action);
+        else action.accept((K) array[i], (V) array[i + 1]);
+      }
+    }
+
+    @Override
+    int pairCount() {
+      return array.length / 2;
+    }
+
+    @Override
+    Object keyAt(int pair) {
+      return array[pair * 2];
+    }
+
+    @Override
+    Object valueAt(int pair) {
+      return array[pair * 2 + 1];
+    }
+  }
+
+  /** A node holding entries whose keys share the same full hash. */
+  private static final class CollisionNode extends Node {
+    /** The shared hash of all keys. */
+    private final int hash;
+    /** The key-value pairs. */
+    private Object[] array;
+
+    /**
+     * Constructs a node.
+     *
+     * @param edit the edit token of the map creating this node
+     * @param hash the shared hash of all keys
+     * @param array the key-value pairs
+     */
+    CollisionNode(Object edit, int hash, Object[] array) {
+      super(edit);
+      this.hash = hash;
+      this.array = array;
+    }
+
+    /**
+     * Finds the array index of a key.
+     *
+     * @param key the key
+     * @return the index or {@code -1} if the key is absent
+     */
+    private int indexOf(Object key) {
+      for(int i = 0; i < array.length; i += 2) if(key.equals(array[i])) return i;
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key, Object notFound) {
+      int idx = indexOf(key);
+      return idx < 0 ? notFound : array[idx + 1];
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, Object key, Object val, Box box) {
+      if(hash != this.hash) {
+        // nest this node below a bitmap node dispatching on the differing hashes
+        return new BitmapNode(edit, bitpos(this.hash, shift), new Object[]{null, this})
+            .assoc(edit, shift, hash, key, val, box);
+      }
+      int idx = indexOf(key);
+      if(idx >= 0) {
+        box.found(array[idx + 1]);
+        if(array[idx + 1] == val) return this;
+        CollisionNode node = isEditable(edit) ? this : new CollisionNode(edit, hash, array.clone());
+        node.array[idx + 1] = val;
+        return node;
+      }
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = val;
+      if(!isEditable(edit)) return new CollisionNode(edit, hash, newArray);
+      array = newArray;
+      return this;
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key, Box box) {
+      int idx = indexOf(key);
+      if(idx < 0) return this;
+      box.found(array[idx + 1]);
+      if(array.length == 2) return null;
+      if(!isEditable(edit)) return new CollisionNode(edit, hash, removePair(array, idx));
+      array = removePair(array, idx);
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    <K, V> void forEach(BiConsumer<? super K, ? super V> action) {
+      for(int i = 0; i < array.length; i += 2) action.accept((K) array[i], (V) array[i + 1]);
+    }
+
+    @Override
+    int pairCount() {
+      return array.length / 2;
+    }
+
+    @Override
+    Object keyAt(int pair) {
+      return array[pair * 2];
+    }
+
+    @Override
+    Object valueAt(int pair) {
+      return array[pair * 2 + 1];
+    }
+  }
+
+  /** Iterates all entries depth-first, keeping the path of nodes and pair indices on a stack. */
+  private final class EntryIterator implements Iterator<Entry<K, V>> {
+    /** The nodes on the path to the next entry. */
+    private final Deque<Node> nodes = new ArrayDeque<>();
+    /** The index of the next pair to visit for each node on the path, innermost first. */
+    private int[] indices = new int[BITS_PER_LEVEL];
+    /** The next entry, {@code null} if there is none. */
+    private Entry<K, V> next;
+
+    /** Constructs a new iterator, positioned before the first entry. */
+    EntryIterator() {
+      if(root != null) nodes.push(root);
+      advance();
+    }
+
+    /** Moves to the next entry. */
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while(!nodes.isEmpty()) {
+        int depth = nodes.size() - 1;
+        Node node = nodes.peek();
+        int pair = indices[depth];
+        if(pair == node.pairCount()) {
+          nodes.pop();
+          continue;
+        }
+        indices[depth]++;
+        Object key = node.keyAt(pair);
+        if(key != null) {
+          next = new SimpleImmutableEntry<>((K) key, (V) node.valueAt(pair));
+          return;
+        }
+        if(depth + 1 == indices.length) {
+          int[] newIndices = new int[indices.length * 2];
+          System.arraycopy(indices, 0, newIndices, 0, indices.length);
+          indices = newIndices;
+        }
+        indices[depth + 1] = 0;
+        nodes.push((Node) node.valueAt(pair));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if(next == null) throw new NoSuchElementException();
+      Entry<K, V> result = next;
+      advance();
+      return result;
+    }
+  }
+}
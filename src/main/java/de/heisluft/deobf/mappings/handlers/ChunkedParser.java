@@ -0,0 +1,188 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import de.heisluft.deobf.mappings.MappingsHandler;
+import de.heisluft.deobf.mappings.SymbolTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Parses line based formats in parallel, shared by the builtin handlers of formats whose lines are independent.
+ * <br>
+ * The file is memory-mapped and split into chunks at line boundaries. Each chunk is parsed into partial mappings on a
+ * fork-join pool while the partial mappings are merged in file order with {@link MappingsBuilder#addAll(Mappings)},
+ * which resolves duplicates exactly like sequential parsing. All partial mappings share one symbol table, so merging
+ * never reinterns names, and classes only present in a single chunk are shared instead of copied.
+ * <br>
+ * Messages about skipped lines are collected per chunk and printed in file order. If any chunk contains a malformed
+ * line, the file is parsed again sequentially, so that the same exception is thrown for the same line as by sequential
+ * parsing. Any other failure is a bug and is rethrown as is.
+ */
+final class ChunkedParser {
+
+  /** The minimum size of files to parse in parallel, smaller files are parsed sequentially. */
+  private static final long MIN_PARALLEL_SIZE = 1 << 20;
+  /** The minimum size of a chunk. */
+  private static final int MIN_CHUNK_SIZE = 1 << 18;
+  /** The amount of chunks per worker thread, so that uneven chunks still keep all workers busy. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** This class should not be instantiated. */
+  private ChunkedParser() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Parses a file in parallel, falling back to sequential parsing for small files, single threaded pools and malformed
+   * input.
+   *
+   * @param input the file to parse
+   * @param pool the pool to parse on
+   * @param parser the parser for the lines of a chunk
+   * @param handler the handler to parse sequentially with
+   * @return the parsed mappings
+   * @throws IOException if the file could not be read
+   */
+  static Mappings parse(Path input, ForkJoinPool pool, LineParser parser, MappingsHandler handler)
+      throws IOException {
+    ByteBuffer content = pool.getParallelism() > 1 ? map(input) : null;
+    if(content == null) return handler.parseMappings(input);
+    int size = content.limit();
+    int[] bounds = split(content, (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD,
+        size / MIN_CHUNK_SIZE)));
+    if(bounds.length <= 2) return handler.parseMappings(input);
+    SymbolTable symbols = new SymbolTable();
+    List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+    for(int i = 1; i < bounds.length; i++) {
+      ByteBuffer chunk = content.duplicate();
+      chunk.limit(bounds[i]);
+      chunk.position(bounds[i - 1]);
+      tasks.add(new ChunkTask(chunk.slice(), parser, symbols));
+    }
+    tasks.forEach(pool::execute);
+    MappingsBuilder builder = new MappingsBuilder(symbols);
+    try {
+      for(ChunkTask task : tasks) builder.addAll(task.join());
+    } catch(UncheckedIOException e) {
+      // a chunk is malformed, parse sequentially to report the line within the whole file
+      tasks.forEach(task -> task.cancel(false));
+      return handler.parseMappings(input);
+    } catch(RuntimeException | Error e) {
+      tasks.forEach(task -> task.cancel(false));
+      throw e;
+    }
+    for(ChunkTask task : tasks) System.out.print(task.log);
+    return builder.build();
+  }
+
+  /**
+   * Memory-maps a file if it is large enough to be parsed in parallel.
+   *
+   * @param input the file to map
+   * @return the mapped content or {@code null} if the file should be parsed sequentially
+   * @throws IOException if the file could not be read
+   */
+  private static ByteBuffer map(Path input) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(input, StandardOpenOption.READ);
+    } catch(UnsupportedOperationException e) {
+      return null;
+    }
+    try(FileChannel c = channel) {
+      long size = c.size();
+      if(size < MIN_PARALLEL_SIZE || size > Integer.MAX_VALUE) return null;
+      return c.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /**
+   * Splits content into chunks at line boundaries. Each chunk but the last ends right after a line terminator, a
+   * {@code \r\n} is never split. Chunks that would be empty are left out, so there may be fewer chunks than requested.
+   *
+   * @param content the content to split
+   * @param chunks the amount of chunks to split into
+   * @return the chunk boundaries, starting with 0 and ending with the size of the content
+   */
+  static int[] split(ByteBuffer content, int chunks) {
+    int size = content.limit();
+    int[] bounds = new int[chunks + 1];
+    int count = 1;
+    for(int i = 1; i < chunks; i++) {
+      int bound = Math.max(bounds[count - 1], (int) ((long) size * i / chunks));
+      while(bound < size && content.get(bound) != '\n' && content.get(bound) != '\r') bound++;
+      if(bound < size && content.get(bound++) == '\r' && bound < size && content.get(bound) == '\n') bound++;
+      if(bound < size && bound > bounds[count - 1]) bounds[count++] = bound;
+    }
+    bounds[count++] = size;
+    int[] result = new int[count];
+    System.arraycopy(bounds, 0, result, 0, count);
+    return result;
+  }
+
+  /** Parses the lines of a chunk into a builder. */
+  @FunctionalInterface
+  interface LineParser {
+    /**
+     * Parses all lines of a tokenizer.
+     *
+     * @param lines the tokenizer to read from
+     * @param builder the builder to add all entries to
+     * @param log receives messages about skipped lines
+     * @throws IOException if a line is malformed
+     */
+    void parse(LineTokenizer lines, MappingsBuilder builder, Consumer<String> log) throws IOException;
+  }
+
+  /** Parses a single chunk into partial mappings. */
+  private static final class ChunkTask extends RecursiveTask<Mappings> {
+    /** Tasks are never serialized. */
+    private static final long serialVersionUID = 1L;
+
+    /** The content of the chunk. */
+    private final transient ByteBuffer chunk;
+    /** The parser for the lines of the chunk. */
+    private final transient LineParser parser;
+    /** The symbol table shared by all partial mappings. */
+    private final transient SymbolTable symbols;
+    /** The messages about skipped lines, set once the chunk is parsed. */
+    private String log;
+
+    /**
+     * Constructs a new task.
+     *
+     * @param chunk the content of the chunk
+     * @param parser the parser for the lines of the chunk
+     * @param symbols the symbol table shared by all partial mappings
+     */
+    ChunkTask(ByteBuffer chunk, LineParser parser, SymbolTable symbols) {
+      this.chunk = chunk;
+      this.parser = parser;
+      this.symbols = symbols;
+    }
+
+    @Override
+    protected Mappings compute() {
+      StringBuilder messages = new StringBuilder();
+      MappingsBuilder builder = new MappingsBuilder(symbols);
+      try(LineTokenizer lines = new LineTokenizer(chunk)) {
+        parser.parse(lines, builder, messages::append);
+      } catch(IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      log = messages.toString();
+      return builder.build();
+    }
+  }
+}
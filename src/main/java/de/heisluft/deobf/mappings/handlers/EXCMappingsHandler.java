@@ -5,38 +5,92 @@ import de.heisluft.deobf.mappings.MappingsBuilder;
 import de.heisluft.deobf.mappings.MappingsHandler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
- * A MappingsHandler for reading EXC files. These contain Parameter and exception data only.
+ * A MappingsHandler for reading and writing EXC files. These contain Parameter and exception data only.
  */
 public final class EXCMappingsHandler implements MappingsHandler {
   @Override
   public Mappings parseMappings(Path input) throws IOException {
     MappingsBuilder b = new MappingsBuilder();
-    List<String> lines = Files.readAllLines(input);
-    for (String line : lines) {
-      int dot = line.indexOf('.'),
-          openBrace = line.indexOf('('),
-          eqSign = line.indexOf('='),
-          vertBar = line.indexOf('|');
-      String cName = line.substring(0, dot);
-      String mName = line.substring(dot + 1, openBrace);
-      String mDesc = line.substring(openBrace, eqSign);
-      b.addExceptions(cName, mName, mDesc, Arrays.asList(line.substring(eqSign + 1, vertBar).split(",")));
-      b.setParameters(cName, mName, mDesc, Arrays.asList(line.substring(vertBar + 1).split(",")));
+    // the builder copies both lists, so they are reused for all lines
+    List<String> exceptions = new ArrayList<>();
+    List<String> parameters = new ArrayList<>();
+    try(LineTokenizer line = LineTokenizer.open(input)) {
+      for(int lCounter = 0; line.next(); lCounter++) {
+        int length = line.lineLength(),
+            dot = line.lineIndexOf('.', 0, length),
+            openBrace = line.lineIndexOf('(', 0, length),
+            eqSign = line.lineIndexOf('=', 0, length),
+            vertBar = line.lineIndexOf('|', 0, length);
+        if(dot < 0 || openBrace <= dot || eqSign < openBrace || vertBar <= eqSign)
+          throw new IOException("Error reading line " + lCounter + ": Expected class.method(desc)=exceptions|params");
+        String cName = line.line(0, dot);
+        String mName = line.line(dot + 1, openBrace);
+        String mDesc = line.line(openBrace, eqSign);
+        b.addExceptions(cName, mName, mDesc, split(line, eqSign + 1, vertBar, exceptions));
+        b.setParameters(cName, mName, mDesc, split(line, vertBar + 1, length, parameters));
+      }
     }
     return b.build();
   }
 
+  /**
+   * Splits a part of the current line at commas, like {@code line.substring(begin, end).split(",")}, except that an
+   * empty part yields an empty list instead of a single empty String.
+   *
+   * @param line the tokenizer positioned at the line
+   * @param begin the byte index within the line to start at
+   * @param end the byte index within the line to end at
+   * @param into the list to clear and fill with the parts
+   * @return into
+   */
+  private static List<String> split(LineTokenizer line, int begin, int end, List<String> into) {
+    into.clear();
+    if(begin == end) return into;
+    int comma = line.lineIndexOf(',', begin, end);
+    // without any comma, split returns the input
+    if(comma < 0) {
+      into.add(line.line(begin, end));
+      return into;
+    }
+    for(int start = begin; start <= end; comma = line.lineIndexOf(',', start, end)) {
+      int stop = comma < 0 ? end : comma;
+      into.add(line.line(start, stop));
+      start = stop + 1;
+    }
+    // like split, drop trailing empty parts
+    while(!into.isEmpty() && into.get(into.size() - 1).isEmpty()) into.remove(into.size() - 1);
+    return into;
+  }
+
   @Override
   public String fileExt() {
     return "exc";
   }
 
+  @Override
+  public void writeMappings(Mappings mappings, Path to) throws IOException {
+    List<String> lines = new ArrayList<>();
+    mappings.streamExtraData().forEach(extra -> {
+      if(extra.getExceptions().isEmpty() && extra.getParameters().isEmpty()) return;
+      List<String> exceptions = new ArrayList<>(extra.getExceptions());
+      exceptions.sort(Comparator.naturalOrder());
+      lines.add(extra.getClassName() + "." + extra.getMethodName() + extra.getDescriptor() + "="
+          + String.join(",", exceptions) + "|" + String.join(",", extra.getParameters()));
+    });
+    try(LineWriter out = new LineWriter(to)) {
+      out.writeSorted(lines);
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
   @Override
   public boolean supportsExceptionData() {
     return true;
@@ -5,14 +5,10 @@ import de.heisluft.deobf.mappings.MappingsBuilder;
 import de.heisluft.deobf.mappings.MappingsHandler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * A mappings handler that is able to read and write FRG2 mappings.
@@ -34,34 +30,46 @@ public final class FRG2MappingsHandler implements MappingsHandler {
   @Override
   public Mappings parseMappings(Path input) throws IOException {
     MappingsBuilder builder = new MappingsBuilder();
-    List<String> lines = Files.readAllLines(input);
-    for(String line : lines) {
-      String[] split = line.split(" ");
-      int len = split.length;
-      if(len == 2) builder.addClassMapping(split[FRG2_ENTITY_CLASS_NAME_INDEX], split[FRG2_MAPPED_CLASS_NAME_INDEX]);
+    try(LineTokenizer lines = LineTokenizer.open(input)) {
+      parse(lines, builder, System.out::print);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public Mappings parseMappings(Path input, ForkJoinPool pool) throws IOException {
+    return ChunkedParser.parse(input, pool, this::parse, this);
+  }
+
+  /**
+   * Parses all lines of a tokenizer into a builder.
+   *
+   * @param line the tokenizer to read from
+   * @param builder the builder to add all entries to
+   * @param log receives messages about skipped lines
+   * @throws IOException if the input could not be read
+   */
+  private void parse(LineTokenizer line, MappingsBuilder builder, Consumer<String> log) throws IOException {
+    while(line.next()) {
+      int len = line.size();
+      if(len == 2)
+        builder.addClassMapping(line.get(FRG2_ENTITY_CLASS_NAME_INDEX), line.get(FRG2_MAPPED_CLASS_NAME_INDEX));
       else if(len > FRG2_MEMBER_MAPPED_NAME_INDEX) {
-        String clsName = split[FRG2_ENTITY_CLASS_NAME_INDEX];
-        String obfName = split[FRG2_MEMBER_NAME_INDEX];
-        String obfDesc = split[FRG2_MEMBER_DESC_INDEX];
-        String rName = split[FRG2_MEMBER_MAPPED_NAME_INDEX];
+        String clsName = line.get(FRG2_ENTITY_CLASS_NAME_INDEX);
+        String obfName = line.get(FRG2_MEMBER_NAME_INDEX);
+        String obfDesc = line.get(FRG2_MEMBER_DESC_INDEX);
         if(obfDesc.charAt(0) != '(') {
-          builder.addFieldMapping(clsName, obfName, obfDesc, rName);
+          builder.addFieldMapping(clsName, obfName, obfDesc, line.get(FRG2_MEMBER_MAPPED_NAME_INDEX));
         } else {
-          if(!";".equals(rName)) builder.addMethodMapping(clsName, obfName, obfDesc, rName);
-          if(split.length > FRG2_METHOD_EXCEPTIONS_BEGIN_INDEX) {
-            builder.addExceptions(
-                clsName,
-                obfName,
-                obfDesc,
-                Arrays.asList(split).subList(FRG2_METHOD_EXCEPTIONS_BEGIN_INDEX, split.length)
-            );
-          }
+          if(!line.fieldEquals(FRG2_MEMBER_MAPPED_NAME_INDEX, ";"))
+            builder.addMethodMapping(clsName, obfName, obfDesc, line.get(FRG2_MEMBER_MAPPED_NAME_INDEX));
+          if(len > FRG2_METHOD_EXCEPTIONS_BEGIN_INDEX)
+            builder.addExceptions(clsName, obfName, obfDesc, line.fields(FRG2_METHOD_EXCEPTIONS_BEGIN_INDEX));
         }
       } else {
-        System.out.print("Not operating on line '" + line + "'!");
+        log.accept("Not operating on line '" + line.line() + "'!");
       }
     }
-    return builder.build();
   }
 
   @Override
@@ -81,32 +89,21 @@ public final class FRG2MappingsHandler implements MappingsHandler {
 
   @Override
   public void writeMappings(Mappings mappings, Path to) throws IOException {
-    List<String> lines = new ArrayList<>();
-    mappings.forAllClasses((k, v) -> lines.add(k + " " + v));
-    lines.sort(Comparator.naturalOrder());
-    List<String> fLines = new ArrayList<>();
-    mappings.forAllFields((clsName, obfName, obfDesc, deobfName) ->
-      fLines.add(clsName + " " + obfName + " " + obfDesc + " " + deobfName)
-    );
-    fLines.sort(Comparator.naturalOrder());
-    lines.addAll(fLines);
-    List<String> mLines = new ArrayList<>();
-    Set<String> addedExceptions = new HashSet<>();
-    mappings.forAllMethods((clsName, obfName, obfDesc, deobfName) -> {
-      StringBuilder line = new StringBuilder(clsName + " " + obfName + " " + obfDesc + " " + deobfName);
-      if(mappings.hasExceptionsFor(clsName, obfName, obfDesc)) addedExceptions.add(clsName + obfName + obfDesc);
-      mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
-      mLines.add(line.toString());
-    });
-    mappings.forAllExceptions((clsName, obfName, obfDesc, data) -> {
-      if(addedExceptions.contains(clsName + obfName + obfDesc)) return;
-      StringBuilder line = new StringBuilder(clsName + " " + obfName + " " + obfDesc + " ;");
-      data.stream().sorted().forEach(s -> line.append(" ").append(s));
-      mLines.add(line.toString());
-    });
-    mLines.sort(Comparator.naturalOrder());
-    lines.addAll(mLines);
-
-    Files.write(to, lines);
+    try(LineWriter out = new LineWriter(to)) {
+      mappings.forAllClassesSorted((k, v) -> out.write(k + " " + v));
+      mappings.forAllFieldsSorted((clsName, obfName, obfDesc, deobfName) ->
+        out.write(clsName + " " + obfName + " " + obfDesc + " " + deobfName)
+      );
+      // exception data of unmapped methods is written in order with the method lines, with ; as mapped name
+      mappings.forAllMethodsAndExtraDataSorted((clsName, obfName, obfDesc, deobfName) -> {
+        String mapped = deobfName == null ? ";" : deobfName;
+        StringBuilder line = new StringBuilder(clsName + " " + obfName + " " + obfDesc + " " + mapped);
+        mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
+        out.write(line.toString());
+      });
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
   }
+
 }
@@ -5,12 +5,12 @@ import de.heisluft.deobf.mappings.MappingsBuilder;
 import de.heisluft.deobf.mappings.MappingsHandler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * A mappings handler that is able to read and write FRG(2) mappings.
@@ -38,45 +38,56 @@ public final class FRGMappingsHandler implements MappingsHandler {
   @Override
   public Mappings parseMappings(Path input) throws IOException {
     MappingsBuilder builder = new MappingsBuilder();
-    List<String> lines = Files.readAllLines(input);
-    for(String line : lines) {
-      String[] split = line.split(" ");
-      String mappingType = split[FRG_MAPPING_TYPE_INDEX];
-      switch(mappingType) {
-        case "MD:":
-          if(split.length < FRG_MIN_DESC_MAPPING_LEN) throw new IllegalArgumentException(
-              "Not enough arguments supplied. (" + line + "), expected at least 4 got" + (split.length - 1)
-          );
-          String clsName = split[FRG_ENTITY_CLASS_NAME_INDEX];
-          String obfName = split[FRG_DESC_NAME_INDEX];
-          String obfDesc = split[FRG_DESC_INDEX];
-          String rName = split[FRG_DESC_MAPPED_NAME_INDEX];
-          builder.addMethodMapping(clsName, obfName, obfDesc, rName);
-          if(split.length > FRG_MIN_DESC_MAPPING_LEN) builder.addExceptions(clsName, obfName, obfDesc,
-              Arrays.asList(split).subList(FRG_MIN_DESC_MAPPING_LEN, split.length));
-          break;
-        case "FD:":
-          if(split.length != FRG_FIELD_MAPPING_LEN) throw new IllegalArgumentException(
-              "Illegal amount of Arguments supplied. (" + line + "), expected 3 got" + (split.length - 1)
-          );
-          builder.addFieldMapping(split[FRG_ENTITY_CLASS_NAME_INDEX], split[FRG_DESC_NAME_INDEX],
-              split[FRG_MAPPED_FIELD_NAME_INDEX]);
-          break;
-        case "CL:":
-          if(split.length != FRG_CLASS_MAPPING_LEN) throw new IllegalArgumentException(
-              "Illegal amount of Arguments supplied. (" + line + "), expected 2 got" + (split.length - 1)
-          );
-          builder.addClassMapping(split[FRG_ENTITY_CLASS_NAME_INDEX],
-              split[FRG_MAPPED_CLASS_NAME_INDEX]);
-          break;
-        default:
-          System.out.print("Not operating on line '" + line + "'!");
-          break;
-      }
+    try(LineTokenizer lines = LineTokenizer.open(input)) {
+      parse(lines, builder, System.out::print);
     }
     return builder.build();
   }
 
+  @Override
+  public Mappings parseMappings(Path input, ForkJoinPool pool) throws IOException {
+    return ChunkedParser.parse(input, pool, this::parse, this);
+  }
+
+  /**
+   * Parses all lines of a tokenizer into a builder.
+   *
+   * @param line the tokenizer to read from
+   * @param builder the builder to add all entries to
+   * @param log receives messages about skipped lines
+   * @throws IOException if the input could not be read
+   */
+  private void parse(LineTokenizer line, MappingsBuilder builder, Consumer<String> log) throws IOException {
+    while(line.next()) {
+      if(line.fieldEquals(FRG_MAPPING_TYPE_INDEX, "MD:")) {
+        if(line.size() < FRG_MIN_DESC_MAPPING_LEN) throw new IllegalArgumentException(
+            "Not enough arguments supplied. (" + line.line() + "), expected at least 4 got" + (line.size() - 1)
+        );
+        String clsName = line.get(FRG_ENTITY_CLASS_NAME_INDEX);
+        String obfName = line.get(FRG_DESC_NAME_INDEX);
+        String obfDesc = line.get(FRG_DESC_INDEX);
+        String rName = line.get(FRG_DESC_MAPPED_NAME_INDEX);
+        builder.addMethodMapping(clsName, obfName, obfDesc, rName);
+        if(line.size() > FRG_MIN_DESC_MAPPING_LEN)
+          builder.addExceptions(clsName, obfName, obfDesc, line.fields(FRG_MIN_DESC_MAPPING_LEN));
+      } else if(line.fieldEquals(FRG_MAPPING_TYPE_INDEX, "FD:")) {
+        if(line.size() != FRG_FIELD_MAPPING_LEN) throw new IllegalArgumentException(
+            "Illegal amount of Arguments supplied. (" + line.line() + "), expected 3 got" + (line.size() - 1)
+        );
+        builder.addFieldMapping(line.get(FRG_ENTITY_CLASS_NAME_INDEX), line.get(FRG_DESC_NAME_INDEX),
+            line.get(FRG_MAPPED_FIELD_NAME_INDEX));
+      } else if(line.fieldEquals(FRG_MAPPING_TYPE_INDEX, "CL:")) {
+        if(line.size() != FRG_CLASS_MAPPING_LEN) throw new IllegalArgumentException(
+            "Illegal amount of Arguments supplied. (" + line.line() + "), expected 2 got" + (line.size() - 1)
+        );
+        builder.addClassMapping(line.get(FRG_ENTITY_CLASS_NAME_INDEX),
+            line.get(FRG_MAPPED_CLASS_NAME_INDEX));
+      } else {
+        log.accept("Not operating on line '" + line.line() + "'!");
+      }
+    }
+  }
+
   @Override
   public String fileExt() {
     return "frg";
@@ -89,17 +100,23 @@ public final class FRGMappingsHandler implements MappingsHandler {
 
   @Override
   public void writeMappings(Mappings mappings, Path to) throws IOException {
-    List<String> lines = new ArrayList<>();
-    mappings.forAllClasses((k, v) -> lines.add("CL: " + k + " " + v));
-    mappings.forAllFields((clsName, obfName, obfDesc, deobfName) ->
-      lines.add("FD: " + clsName + " " + obfName + " " + deobfName)
-    );
-    mappings.forAllMethods((clsName, obfName, obfDesc, deobfName) -> {
-      StringBuilder line = new StringBuilder("MD: " + clsName + " " + obfName + " " + obfDesc + " " + deobfName);
-      mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
-      lines.add(line.toString());
-    });
-    lines.sort(Comparator.naturalOrder());
-    Files.write(to, lines);
+    try(LineWriter out = new LineWriter(to)) {
+      mappings.forAllClassesSorted((k, v) -> out.write("CL: " + k + " " + v));
+      // descriptors are not written, so fields sharing a name are ordered by their mapped name instead
+      List<String> sameName = new ArrayList<>();
+      mappings.forAllFieldsSorted((clsName, obfName, obfDesc, deobfName) -> {
+        String prefix = "FD: " + clsName + " " + obfName + " ";
+        if(!sameName.isEmpty() && !sameName.get(0).startsWith(prefix)) out.writeSorted(sameName);
+        sameName.add(prefix + deobfName);
+      });
+      out.writeSorted(sameName);
+      mappings.forAllMethodsSorted((clsName, obfName, obfDesc, deobfName) -> {
+        StringBuilder line = new StringBuilder("MD: " + clsName + " " + obfName + " " + obfDesc + " " + deobfName);
+        mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
+        out.write(line.toString());
+      });
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
   }
 }
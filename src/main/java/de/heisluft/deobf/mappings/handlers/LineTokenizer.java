@@ -0,0 +1,438 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A streaming tokenizer for line based mapping formats, shared by the builtin handlers.
+ * <br>
+ * The input is read in chunks into a reusable buffer and split into lines and space separated fields, of which only
+ * the offsets are recorded. Strings are only created for the fields a handler actually retrieves, so neither the
+ * lines of a file nor arrays of their fields are ever held in memory.
+ * <br>
+ * Lines are terminated by {@code \n}, {@code \r} or {@code \r\n}, like for {@link Files#readAllLines(Path)}. Fields
+ * follow the semantics of {@code line.split(" ")}: consecutive spaces yield empty fields, trailing empty fields are
+ * dropped. Fields are decoded as UTF-8. Line breaks and spaces never occur within multi-byte UTF-8 sequences, so lines
+ * can be split without decoding them.
+ * <br>
+ * Large files are memory-mapped instead of read, see {@link #open(Path)}. Mapping files avoids copying their content
+ * into the heap altogether. Names are decoded straight from the mapped bytes, and recently decoded ASCII names are
+ * reused from a small cache, as class names and descriptors repeat on many lines. A String is therefore only created
+ * for the first occurrence of a name, which is the instance the builder stores.
+ */
+final class LineTokenizer implements Closeable {
+
+  /** The initial size of the read buffer, grown if a single line does not fit. */
+  private static final int BUFFER_SIZE = 1 << 16;
+  /** The initial capacity of the field offset arrays. */
+  private static final int INITIAL_FIELD_CAPACITY = 8;
+  /** The minimum size of files to memory-map, smaller files are read in chunks. */
+  private static final long MAP_THRESHOLD = 1 << 24;
+  /** The amount of slots of the name cache, must be a power of two. */
+  private static final int NAME_CACHE_SIZE = 1 << 12;
+  /** The amount of bits the upper half of a hash is shifted by when spreading it. */
+  private static final int HASH_SPREAD_SHIFT = 16;
+  /** The multiplier of {@link String#hashCode()}. */
+  private static final int HASH_MULTIPLIER = 31;
+
+  /** The channel to read from, {@code null} if the whole input is already in the buffer. */
+  private final ReadableByteChannel channel;
+  /** Recently decoded ASCII names, indexed by their spread hash. */
+  private final String[] names = new String[NAME_CACHE_SIZE];
+  /** The buffer for copying bytes out of buffers without a backing array, grown as needed. */
+  private byte[] scratch = new byte[INITIAL_FIELD_CAPACITY];
+  /** The read buffer, holding valid data from index 0 to {@link #limit}. */
+  private ByteBuffer buffer;
+  /** The index of the first byte not yet consumed by a line. */
+  private int position;
+  /** The amount of valid bytes within the buffer. */
+  private int limit;
+  /** Whether the channel is exhausted. */
+  private boolean eof;
+  /** Whether the last line was terminated by {@code \r}, so that a following {@code \n} must be skipped. */
+  private boolean pendingCr;
+
+  /** The index of the first byte of the current line. */
+  private int lineStart;
+  /** The index after the last byte of the current line. */
+  private int lineEnd;
+  /** Whether the current line contains a space. */
+  private boolean hasSeparator;
+  /** The start indices of all fields of the current line. */
+  private int[] starts = new int[INITIAL_FIELD_CAPACITY];
+  /** The end indices of all fields of the current line. */
+  private int[] ends = new int[INITIAL_FIELD_CAPACITY];
+  /** The amount of fields of the current line. */
+  private int size;
+
+  /**
+   * Constructs a new tokenizer.
+   *
+   * @param channel the channel to read from, closed along with this tokenizer
+   */
+  LineTokenizer(ReadableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  /**
+   * Constructs a new tokenizer over input that is already fully available, e.g. a memory-mapped file.
+   *
+   * @param bytes the input, ranging from index 0 to the limit of the buffer
+   */
+  LineTokenizer(ByteBuffer bytes) {
+    this.channel = null;
+    this.buffer = bytes;
+    this.limit = bytes.limit();
+    this.eof = true;
+  }
+
+  /**
+   * Opens a tokenizer for a file. Files of at least 16 MiB on the default file system are memory-mapped, as long as
+   * they fit into a single mapping. The mapping is released once the tokenizer is garbage collected.
+   *
+   * @param path the file to read
+   * @return the tokenizer, which must be closed after use
+   * @throws IOException if the file could not be opened
+   */
+  static LineTokenizer open(Path path) throws IOException {
+    ReadableByteChannel channel = Files.newByteChannel(path);
+    if(!(channel instanceof FileChannel)) return new LineTokenizer(channel);
+    try {
+      long size = ((FileChannel) channel).size();
+      if(size < MAP_THRESHOLD || size > Integer.MAX_VALUE) return new LineTokenizer(channel);
+      LineTokenizer tokenizer = new LineTokenizer(((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, 0, size));
+      channel.close();
+      return tokenizer;
+    } catch(IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Advances to the next line.
+   *
+   * @return whether there was another line
+   * @throws IOException if the input could not be read
+   */
+  boolean next() throws IOException {
+    if(pendingCr) {
+      pendingCr = false;
+      if(position == limit && !eof) fill(position);
+      if(position < limit && buffer.get(position) == '\n') position++;
+    }
+    int scan = position;
+    while(true) {
+      while(scan < limit) {
+        byte b = buffer.get(scan);
+        if(b == '\n' || b == '\r') break;
+        scan++;
+      }
+      if(scan < limit || eof) break;
+      scan = fill(scan);
+    }
+    if(position == limit && eof) return false;
+    lineStart = position;
+    lineEnd = scan;
+    if(scan < limit) {
+      pendingCr = buffer.get(scan) == '\r';
+      position = scan + 1;
+    } else position = scan;
+    tokenize();
+    return true;
+  }
+
+  /**
+   * Returns the amount of fields of the current line.
+   *
+   * @return the amount of fields
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the length of a field in bytes, which equals its length in chars for ASCII content.
+   *
+   * @param field the index of the field
+   * @return the length of the field
+   */
+  int length(int field) {
+    checkField(field);
+    return ends[field] - starts[field];
+  }
+
+  /**
+   * Decodes a field.
+   *
+   * @param field the index of the field
+   * @return the field
+   */
+  String get(int field) {
+    checkField(field);
+    return decode(starts[field], ends[field]);
+  }
+
+  /**
+   * Decodes a part of a field, like {@code get(field).substring(begin, end)} for ASCII content.
+   *
+   * @param field the index of the field
+   * @param begin the byte index within the field to start at
+   * @param end the byte index within the field to end at
+   * @return the decoded part
+   */
+  String get(int field, int begin, int end) {
+    checkField(field);
+    int start = starts[field];
+    if(begin < 0 || end > ends[field] - start || begin > end)
+      throw new StringIndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + length(field));
+    return decode(start + begin, start + end);
+  }
+
+  /**
+   * Decodes all fields starting from a given index.
+   *
+   * @param from the index of the first field
+   * @return the list of decoded fields, empty if there are no such fields
+   */
+  List<String> fields(int from) {
+    List<String> result = new ArrayList<>(Math.max(0, size - from));
+    for(int i = from; i < size; i++) result.add(decode(starts[i], ends[i]));
+    return result;
+  }
+
+  /**
+   * Compares a field to a String without decoding it.
+   *
+   * @param field the index of the field
+   * @param ascii the String to compare to, which must only consist of ASCII characters
+   * @return whether the field equals the String
+   */
+  boolean fieldEquals(int field, String ascii) {
+    checkField(field);
+    int start = starts[field];
+    if(ends[field] - start != ascii.length()) return false;
+    for(int i = 0; i < ascii.length(); i++) if(buffer.get(start + i) != ascii.charAt(i)) return false;
+    return true;
+  }
+
+  /**
+   * Finds the last occurrence of an ASCII character within a field.
+   *
+   * @param field the index of the field
+   * @param c the character to search for
+   * @return the byte index within the field or {@code -1} if the field does not contain c
+   */
+  int lastIndexOf(int field, char c) {
+    checkField(field);
+    int start = starts[field];
+    for(int i = ends[field] - 1; i >= start; i--) if(buffer.get(i) == c) return i - start;
+    return -1;
+  }
+
+  /**
+   * Checks whether the current line contains a space, i.e. consists of more than one field before dropping trailing
+   * empty fields.
+   *
+   * @return whether the current line contains a space
+   */
+  boolean hasSeparator() {
+    return hasSeparator;
+  }
+
+  /**
+   * Checks whether the current line is empty.
+   *
+   * @return whether the current line is empty
+   */
+  boolean lineIsEmpty() {
+    return lineStart == lineEnd;
+  }
+
+  /**
+   * Checks whether the current line starts with an ASCII character.
+   *
+   * @param c the character to test for
+   * @return whether the current line starts with c
+   */
+  boolean lineStartsWith(char c) {
+    return lineStart < lineEnd && buffer.get(lineStart) == c;
+  }
+
+  /**
+   * Returns the length of the current line in bytes, for formats that are not split by spaces.
+   *
+   * @return the length of the current line
+   */
+  int lineLength() {
+    return lineEnd - lineStart;
+  }
+
+  /**
+   * Finds the first occurrence of an ASCII character within a range of the current line.
+   *
+   * @param c the character to search for
+   * @param from the byte index within the line to start at
+   * @param to the byte index within the line to stop at
+   * @return the byte index within the line or {@code -1} if the range does not contain c
+   */
+  int lineIndexOf(char c, int from, int to) {
+    for(int i = lineStart + from; i < lineStart + to; i++) if(buffer.get(i) == c) return i - lineStart;
+    return -1;
+  }
+
+  /**
+   * Decodes a part of the current line, like {@code line().substring(begin, end)} for ASCII content.
+   *
+   * @param begin the byte index within the line to start at
+   * @param end the byte index within the line to end at
+   * @return the decoded part
+   */
+  String line(int begin, int end) {
+    if(begin < 0 || end > lineEnd - lineStart || begin > end)
+      throw new StringIndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + lineLength());
+    return decode(lineStart + begin, lineStart + end);
+  }
+
+  /**
+   * Decodes the whole current line, e.g. for error messages.
+   *
+   * @return the current line
+   */
+  String line() {
+    return decodeUtf8(lineStart, lineEnd);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(channel != null) channel.close();
+  }
+
+  /**
+   * Reads more data, moving the unconsumed data to the start of the buffer first.
+   *
+   * @param scan the index up to which the current line has been scanned
+   * @return the adjusted scan index
+   * @throws IOException if the input could not be read
+   */
+  private int fill(int scan) throws IOException {
+    int shift = position;
+    buffer.limit(limit);
+    buffer.position(position);
+    buffer.compact();
+    if(!buffer.hasRemaining()) {
+      ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+      buffer.flip();
+      grown.put(buffer);
+      buffer = grown;
+    }
+    if(channel.read(buffer) < 0) eof = true;
+    limit = buffer.position();
+    position = 0;
+    return scan - shift;
+  }
+
+  /** Records the field offsets of the current line. */
+  private void tokenize() {
+    size = 0;
+    hasSeparator = false;
+    int start = lineStart;
+    for(int i = lineStart; i < lineEnd; i++) {
+      if(buffer.get(i) != ' ') continue;
+      addField(start, i);
+      start = i + 1;
+      hasSeparator = true;
+    }
+    addField(start, lineEnd);
+    // like String.split, drop trailing empty fields, but keep the line itself if it contains no separator
+    if(hasSeparator) while(size > 0 && starts[size - 1] == ends[size - 1]) size--;
+  }
+
+  /**
+   * Records the offsets of a field.
+   *
+   * @param start the start index of the field
+   * @param end the end index of the field
+   */
+  private void addField(int start, int end) {
+    if(size == starts.length) {
+      int[] newStarts = new int[size * 2];
+      int[] newEnds = new int[size * 2];
+      System.arraycopy(starts, 0, newStarts, 0, size);
+      System.arraycopy(ends, 0, newEnds, 0, size);
+      starts = newStarts;
+      ends = newEnds;
+    }
+    starts[size] = start;
+    ends[size++] = end;
+  }
+
+  /**
+   * Ensures that a field exists.
+   *
+   * @param field the index of the field
+   */
+  private void checkField(int field) {
+    if(field < 0 || field >= size) throw new ArrayIndexOutOfBoundsException(field);
+  }
+
+  /**
+   * Decodes a name, reusing a cached instance if the same ASCII name was decoded recently.
+   *
+   * @param start the start index
+   * @param end the end index
+   * @return the decoded name
+   */
+  private String decode(int start, int end) {
+    int hash = 0;
+    for(int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+      if(b < 0) return decodeUtf8(start, end);
+      hash = HASH_MULTIPLIER * hash + b;
+    }
+    // for ASCII content, hash equals the hash code of the decoded String
+    int slot = (hash ^ (hash >>> HASH_SPREAD_SHIFT)) & (NAME_CACHE_SIZE - 1);
+    String cached = names[slot];
+    if(cached != null && cached.hashCode() == hash && matches(cached, start, end)) return cached;
+    return names[slot] = decodeUtf8(start, end);
+  }
+
+  /**
+   * Checks whether an ASCII String consists of the given bytes.
+   *
+   * @param ascii the String to compare
+   * @param start the start index
+   * @param end the end index
+   * @return whether the String matches
+   */
+  private boolean matches(String ascii, int start, int end) {
+    if(ascii.length() != end - start) return false;
+    for(int i = start; i < end; i++) if(buffer.get(i) != ascii.charAt(i - start)) return false;
+    return true;
+  }
+
+  /**
+   * Decodes a range of the buffer as UTF-8.
+   *
+   * @param start the start index
+   * @param end the end index
+   * @return the decoded String
+   */
+  private String decodeUtf8(int start, int end) {
+    if(buffer.hasArray())
+      return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+    int length = end - start;
+    if(scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+    for(int i = 0; i < length; i++) scratch[i] = buffer.get(start + i);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,68 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes lines straight to a buffered file, for writers that produce their lines within callbacks such as
+ * {@link de.heisluft.deobf.mappings.Mappings#forAllClassesSorted(java.util.function.BiConsumer)}. Lines are encoded
+ * in UTF-8 and terminated by the line separator of the platform, just like {@link Files#write(Path, Iterable,
+ * java.nio.file.OpenOption...)} does.
+ * <br>
+ * As callbacks cannot throw checked exceptions, {@link #write(String)} wraps them into an {@link UncheckedIOException},
+ * writers are expected to unwrap it again.
+ */
+final class LineWriter implements Closeable {
+
+  /** The writer all lines are written to. */
+  private final BufferedWriter out;
+
+  /**
+   * Opens a file for writing, truncating it if it exists.
+   *
+   * @param to the file to write to
+   * @throws IOException if the file could not be opened
+   */
+  LineWriter(Path to) throws IOException {
+    out = Files.newBufferedWriter(to);
+  }
+
+  /**
+   * Writes a line.
+   *
+   * @param line the line to write, without line separator
+   * @throws UncheckedIOException if the line could not be written
+   */
+  void write(String line) {
+    try {
+      out.write(line);
+      out.newLine();
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Sorts lines, writes them and clears the list. Formats without field descriptors use this to order fields sharing a
+   * name by their mapped name.
+   *
+   * @param lines the lines to write
+   * @throws UncheckedIOException if a line could not be written
+   */
+  void writeSorted(List<String> lines) {
+    lines.sort(Comparator.naturalOrder());
+    lines.forEach(this::write);
+    lines.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,353 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import de.heisluft.deobf.mappings.MappingsHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mappings handler that is able to read and write MBIN mappings, a compact binary snapshot of everything
+ * {@link Mappings} hold. Loading a snapshot is much faster than parsing text formats, as no lines need to be split
+ * and every name is only decoded once.
+ * <br>
+ * All numbers are big endian u4. A file starts with the magic {@code "MBIN"}, followed by the u2 major and u2 minor
+ * format version. The rest of the file is a sequence of sections, each consisting of a u1 tag, the u4 byte length
+ * of its content and the content itself, so that readers can skip sections they do not know. The first section is
+ * the string table: the amount of strings, followed by each string as its u4 byte length and its UTF-8 bytes. All
+ * other sections start with their amount of records, followed by the records, which reference strings by their index
+ * within the table, or by {@code -1} for {@code null}. Names and descriptors identifying a record are never
+ * {@code null}.
+ * <ul>
+ * <li>Packages: pattern, relocated package</li>
+ * <li>Classes: class name, mapped name</li>
+ * <li>Fields: class name, field name, descriptor (EF if none), mapped name</li>
+ * <li>Methods: class name, method name, descriptor, mapped name</li>
+ * <li>Method extra data: class name, method name, descriptor, amount of exceptions, exceptions,
+ * amount of parameters, parameters</li>
+ * </ul>
+ */
+public final class MBINMappingsHandler implements MappingsHandler {
+
+  /** The magic number every file starts with, "MBIN" in ASCII. */
+  private static final int MAGIC = 0x4D42494E;
+  /** The major format version, readers reject files with other major versions. */
+  private static final int MAJOR_VERSION = 1;
+  /** The minor format version, bumped when adding sections older readers can skip. */
+  private static final int MINOR_VERSION = 0;
+
+  /** The tag of the string table section. */
+  private static final byte STRINGS = 1;
+  /** The tag of the package relocation section. */
+  private static final byte PACKAGES = 2;
+  /** The tag of the class mapping section. */
+  private static final byte CLASSES = 3;
+  /** The tag of the field mapping section. */
+  private static final byte FIELDS = 4;
+  /** The tag of the method mapping section. */
+  private static final byte METHODS = 5;
+  /** The tag of the method extra data section. */
+  private static final byte EXTRA_DATA = 6;
+
+  /** The string index representing {@code null}. */
+  private static final int NULL_INDEX = -1;
+
+  @Override
+  public Mappings parseMappings(Path input) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(input));
+    try {
+      if(in.getInt() != MAGIC) throw new IOException("Not an MBIN file");
+      int major = in.getShort();
+      int minor = in.getShort();
+      if(major != MAJOR_VERSION)
+        throw new IOException("Unsupported MBIN version " + major + "." + minor + ", expected " + MAJOR_VERSION);
+      MappingsBuilder builder = new MappingsBuilder();
+      String[] strings = null;
+      while(in.hasRemaining()) {
+        byte tag = in.get();
+        int length = in.getInt();
+        if(length < 0 || length > in.remaining()) throw new IOException("Section " + tag + " is truncated");
+        int end = in.position() + length;
+        if(tag == STRINGS) strings = readStrings(in);
+        else if(tag >= PACKAGES && tag <= EXTRA_DATA) {
+          if(strings == null) throw new IOException("Section " + tag + " precedes the string table");
+          readRecords(in, tag, strings, builder);
+        }
+        if(in.position() > end) throw new IOException("Section " + tag + " exceeds its length");
+        in.position(end);
+      }
+      return builder.build();
+    } catch(BufferUnderflowException e) {
+      throw new IOException("Unexpected end of file", e);
+    }
+  }
+
+  /**
+   * Reads the string table section.
+   *
+   * @param in the buffer positioned at the start of the section content
+   * @return all strings of the table
+   * @throws IOException if the table is malformed
+   */
+  private static String[] readStrings(ByteBuffer in) throws IOException {
+    int count = in.getInt();
+    if(count < 0 || count > in.remaining() / Integer.BYTES) throw new IOException("Invalid string count " + count);
+    String[] strings = new String[count];
+    byte[] bytes = in.array();
+    for(int i = 0; i < count; i++) {
+      int length = in.getInt();
+      if(length < 0 || length > in.remaining()) throw new IOException("String " + i + " is truncated");
+      strings[i] = new String(bytes, in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+      in.position(in.position() + length);
+    }
+    return strings;
+  }
+
+  /**
+   * Reads all records of a section into a builder.
+   *
+   * @param in the buffer positioned at the start of the section content
+   * @param tag the tag of the section
+   * @param strings the string table
+   * @param builder the builder to add all records to
+   * @throws IOException if a record is malformed
+   */
+  private static void readRecords(ByteBuffer in, byte tag, String[] strings, MappingsBuilder builder)
+      throws IOException {
+    int count = in.getInt();
+    for(int i = 0; i < count; i++) {
+      if(tag == PACKAGES) builder.addPackageRelocation(key(in, strings), string(in, strings));
+      else if(tag == CLASSES) builder.addClassMapping(key(in, strings), string(in, strings));
+      else if(tag == FIELDS)
+        builder.addFieldMapping(key(in, strings), key(in, strings), key(in, strings), string(in, strings));
+      else if(tag == METHODS)
+        builder.addMethodMapping(key(in, strings), key(in, strings), key(in, strings), string(in, strings));
+      else {
+        String cName = key(in, strings);
+        String mName = key(in, strings);
+        String mDesc = key(in, strings);
+        builder.addExceptions(cName, mName, mDesc, strings(in, strings));
+        builder.setParameters(cName, mName, mDesc, strings(in, strings));
+      }
+    }
+  }
+
+  /**
+   * Reads a string reference.
+   *
+   * @param in the buffer to read from
+   * @param strings the string table
+   * @return the referenced string, may be {@code null}
+   * @throws IOException if the reference is out of bounds
+   */
+  private static String string(ByteBuffer in, String[] strings) throws IOException {
+    int index = in.getInt();
+    if(index == NULL_INDEX) return null;
+    if(index < 0 || index >= strings.length) throw new IOException("Invalid string index " + index);
+    return strings[index];
+  }
+
+  /**
+   * Reads a string reference that is part of a key and therefore must not be {@code null}.
+   *
+   * @param in the buffer to read from
+   * @param strings the string table
+   * @return the referenced string
+   * @throws IOException if the reference is out of bounds or {@code null}
+   */
+  private static String key(ByteBuffer in, String[] strings) throws IOException {
+    String key = string(in, strings);
+    if(key == null) throw new IOException("Invalid string index " + NULL_INDEX + " for a key");
+    return key;
+  }
+
+  /**
+   * Reads a list of string references, prefixed by its size.
+   *
+   * @param in the buffer to read from
+   * @param strings the string table
+   * @return the referenced strings
+   * @throws IOException if the list is malformed
+   */
+  private static List<String> strings(ByteBuffer in, String[] strings) throws IOException {
+    int size = in.getInt();
+    if(size < 0 || size > in.remaining() / Integer.BYTES) throw new IOException("Invalid list size " + size);
+    String[] result = new String[size];
+    for(int i = 0; i < size; i++) result[i] = string(in, strings);
+    return Arrays.asList(result);
+  }
+
+  @Override
+  public void writeMappings(Mappings mappings, Path to) throws IOException {
+    StringTable strings = new StringTable();
+    Section packages = new Section(PACKAGES);
+    mappings.forAllPackages((pattern, target) -> packages.add(strings, pattern, target));
+    Section classes = new Section(CLASSES);
+    mappings.forAllClasses((name, renamed) -> classes.add(strings, name, renamed));
+    Section fields = new Section(FIELDS);
+    mappings.forAllFields((cName, name, desc, renamed) -> fields.add(strings, cName, name, desc, renamed));
+    Section methods = new Section(METHODS);
+    mappings.forAllMethods((cName, name, desc, renamed) -> methods.add(strings, cName, name, desc, renamed));
+    Section extraData = new Section(EXTRA_DATA);
+    mappings.forAllExceptions((cName, name, desc, exceptions) -> {
+      extraData.add(strings, cName, name, desc);
+      extraData.addAll(strings, exceptions);
+      extraData.addAll(strings, mappings.getParameters(cName, name, desc));
+    });
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(to)))) {
+      out.writeInt(MAGIC);
+      out.writeShort(MAJOR_VERSION);
+      out.writeShort(MINOR_VERSION);
+      strings.writeTo(out);
+      for(Section section : new Section[]{packages, classes, fields, methods, extraData}) section.writeTo(out);
+    }
+  }
+
+  @Override
+  public String fileExt() {
+    return "mbin";
+  }
+
+  @Override
+  public boolean supportsExceptionData() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsParameterData() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsFieldDescriptors() {
+    return true;
+  }
+
+  /** Assigns indices to strings in the order they are first referenced. */
+  private static final class StringTable {
+    /** The index of every string. */
+    private final Map<String, Integer> indices = new HashMap<>();
+    /** All strings, ordered by their index. */
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Retrieves the index of a string, adding it to the table if absent.
+     *
+     * @param string the string, may be {@code null}
+     * @return the index of the string
+     */
+    int indexOf(String string) {
+      if(string == null) return NULL_INDEX;
+      return indices.computeIfAbsent(string, s -> {
+        strings.add(s);
+        return strings.size() - 1;
+      });
+    }
+
+    /**
+     * Writes the string table section.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream could not be written to
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+      int length = Integer.BYTES;
+      List<byte[]> encoded = new ArrayList<>(strings.size());
+      for(String string : strings) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        encoded.add(bytes);
+        length += Integer.BYTES + bytes.length;
+      }
+      out.writeByte(STRINGS);
+      out.writeInt(length);
+      out.writeInt(encoded.size());
+      for(byte[] bytes : encoded) {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /** The records of a section, buffered until the string table is complete. */
+  private static final class Section {
+    /** The tag of this section. */
+    private final byte tag;
+    /** The encoded records. */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    /** The stream encoding records into {@link #bytes}. */
+    private final DataOutputStream records = new DataOutputStream(bytes);
+    /** The amount of records. */
+    private int count;
+
+    /**
+     * Constructs a new empty section.
+     *
+     * @param tag the tag of the section
+     */
+    Section(byte tag) {
+      this.tag = tag;
+    }
+
+    /**
+     * Starts a new record with the given string references.
+     *
+     * @param table the string table
+     * @param values the referenced strings, may contain {@code null}
+     */
+    void add(StringTable table, String... values) {
+      count++;
+      for(String value : values) writeInt(table.indexOf(value));
+    }
+
+    /**
+     * Appends a list of string references prefixed by its size to the current record.
+     *
+     * @param table the string table
+     * @param values the referenced strings
+     */
+    void addAll(StringTable table, Collection<String> values) {
+      writeInt(values.size());
+      for(String value : values) writeInt(table.indexOf(value));
+    }
+
+    /**
+     * Writes this section.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream could not be written to
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+      out.writeByte(tag);
+      out.writeInt(Integer.BYTES + bytes.size());
+      out.writeInt(count);
+      bytes.writeTo(out);
+    }
+
+    /**
+     * Writes a u4 to the records.
+     *
+     * @param value the value to write
+     */
+    private void writeInt(int value) {
+      try {
+        records.writeInt(value);
+      } catch(IOException e) {
+        throw new IllegalStateException("In-memory streams never fail", e);
+      }
+    }
+  }
+}
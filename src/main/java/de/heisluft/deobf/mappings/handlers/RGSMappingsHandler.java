@@ -5,9 +5,10 @@ import de.heisluft.deobf.mappings.MappingsBuilder;
 import de.heisluft.deobf.mappings.MappingsHandler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -31,39 +32,41 @@ public final class RGSMappingsHandler implements MappingsHandler {
   private static final int RG_FIELD_MAPPING_LEN = 3;
   private static final int RG_METHOD_MAPPING_LEN = 4;
 
+  /** The start of package relocation patterns that can be written as a glob. */
+  private static final String GLOB_PATTERN_PREFIX = "^";
+  /** The end of package relocation patterns that can be written as a glob, matching all classes of the package. */
+  private static final String GLOB_PATTERN_SUFFIX = "[^\\/]+$";
+
   @Override
   public Mappings parseMappings(Path path) throws IOException {
     MappingsBuilder mappings = new MappingsBuilder();
-    List<String> lines = Files.readAllLines(path);
     List<String> globs = new ArrayList<>();
-    for(String line : lines) {
-      if(line.startsWith("#") || line.isEmpty()) continue;
-      String[] words = line.split(" ");
-      if(words.length < RG_CLASS_LEN)
-        throw new IllegalArgumentException("Directive given with no arguments! (line '" + line + "')");
-      switch(words[RG_COMMAND_TYPE_INDEX]) {
-        case ".class":
-          if(words.length > RG_CLASS_LEN) break;
-          globs.add(words[RG_OBF_NAME_INDEX]);
-          break;
-        case ".class_map":
-          if(words.length < RG_CLASS_MAPPING_LEN)
-            throw new IllegalArgumentException(argMismatch(line, RG_CLASS_MAPPING_LEN - 1, words.length - 1));
-          mappings.addClassMapping(words[RG_OBF_NAME_INDEX], words[RG_DEOBF_NAME_INDEX]);
-          break;
-        case ".field_map":
-          if(words.length < RG_FIELD_MAPPING_LEN)
-            throw new IllegalArgumentException(argMismatch(line, RG_FIELD_MAPPING_LEN - 1, words.length - 1));
-          String[] fd = splitAt(words[RG_OBF_NAME_INDEX], words[RG_OBF_NAME_INDEX].lastIndexOf('/'));
-          mappings.addFieldMapping(fd[0], fd[1], words[RG_DEOBF_NAME_INDEX]);
-          break;
-        case ".method_map":
-          if(words.length < RG_METHOD_MAPPING_LEN)
-            throw new IllegalArgumentException(argMismatch(line, RG_METHOD_MAPPING_LEN - 1, words.length - 1));
-          String[] md = splitAt(words[RG_OBF_NAME_INDEX], words[RG_OBF_NAME_INDEX].lastIndexOf('/'));
-          mappings.addMethodMapping(md[0], md[1], words[RG_METHOD_DESC_INDEX], words[RG_METHOD_DEOBF_NAME_INDEX]);
-          break;
-        default: //explicit continue
+    try(LineTokenizer line = LineTokenizer.open(path)) {
+      while(line.next()) {
+        if(line.lineStartsWith('#') || line.lineIsEmpty()) continue;
+        int words = line.size();
+        if(words < RG_CLASS_LEN)
+          throw new IllegalArgumentException("Directive given with no arguments! (line '" + line.line() + "')");
+        if(line.fieldEquals(RG_COMMAND_TYPE_INDEX, ".class")) {
+          if(words <= RG_CLASS_LEN) globs.add(line.get(RG_OBF_NAME_INDEX));
+        } else if(line.fieldEquals(RG_COMMAND_TYPE_INDEX, ".class_map")) {
+          if(words < RG_CLASS_MAPPING_LEN)
+            throw new IllegalArgumentException(argMismatch(line.line(), RG_CLASS_MAPPING_LEN - 1, words - 1));
+          mappings.addClassMapping(line.get(RG_OBF_NAME_INDEX), line.get(RG_DEOBF_NAME_INDEX));
+        } else if(line.fieldEquals(RG_COMMAND_TYPE_INDEX, ".field_map")) {
+          if(words < RG_FIELD_MAPPING_LEN)
+            throw new IllegalArgumentException(argMismatch(line.line(), RG_FIELD_MAPPING_LEN - 1, words - 1));
+          int slash = line.lastIndexOf(RG_OBF_NAME_INDEX, '/');
+          mappings.addFieldMapping(line.get(RG_OBF_NAME_INDEX, 0, slash),
+              line.get(RG_OBF_NAME_INDEX, slash + 1, line.length(RG_OBF_NAME_INDEX)), line.get(RG_DEOBF_NAME_INDEX));
+        } else if(line.fieldEquals(RG_COMMAND_TYPE_INDEX, ".method_map")) {
+          if(words < RG_METHOD_MAPPING_LEN)
+            throw new IllegalArgumentException(argMismatch(line.line(), RG_METHOD_MAPPING_LEN - 1, words - 1));
+          int slash = line.lastIndexOf(RG_OBF_NAME_INDEX, '/');
+          mappings.addMethodMapping(line.get(RG_OBF_NAME_INDEX, 0, slash),
+              line.get(RG_OBF_NAME_INDEX, slash + 1, line.length(RG_OBF_NAME_INDEX)),
+              line.get(RG_METHOD_DESC_INDEX), line.get(RG_METHOD_DEOBF_NAME_INDEX));
+        }
       }
     }
     for(int i = 0; i < globs.size(); i++) {
@@ -79,21 +82,44 @@ public final class RGSMappingsHandler implements MappingsHandler {
     return "rgs";
   }
 
-  private String argMismatch(String line, int expected, int actual) {
-    return "Error on line '" + line + "'. Expected at least " + expected + " arguments, got " + actual;
-  }
-
   /**
-   * Splits a String at the given index.
-   *
-   * @param toSplit
-   *     the String to be split
-   * @param index
-   *     the index on which to split on
-   *
-   * @return the pair of split halves
+   * {@inheritDoc}
+   * <br>
+   * Package relocations are written as pairs of {@code .class} globs. Only relocations of whole packages can be
+   * expressed like that, i.e. patterns as produced by parsing RGS files. All other relocations are left out.
    */
-  private static String[] splitAt(String toSplit, int index) {
-    return new String[]{toSplit.substring(0, index), toSplit.substring(index + 1)};
+  @Override
+  public void writeMappings(Mappings mappings, Path to) throws IOException {
+    try(LineWriter out = new LineWriter(to)) {
+      List<String> globs = new ArrayList<>();
+      mappings.forAllPackages((pattern, target) -> {
+        if(!pattern.startsWith(GLOB_PATTERN_PREFIX) || !pattern.endsWith(GLOB_PATTERN_SUFFIX)) return;
+        String pkg = pattern.substring(GLOB_PATTERN_PREFIX.length(), pattern.length() - GLOB_PATTERN_SUFFIX.length());
+        globs.add(".class " + pkg + "* " + target);
+      });
+      globs.sort(Comparator.naturalOrder());
+      for(String glob : globs) {
+        int space = glob.lastIndexOf(' ');
+        out.write(glob.substring(0, space));
+        out.write(".class " + glob.substring(space + 1) + "**");
+      }
+      mappings.forAllClassesSorted((name, renamed) -> out.write(".class_map " + name + " " + renamed));
+      // descriptors are not written, so fields sharing a name are ordered by their mapped name instead
+      List<String> sameName = new ArrayList<>();
+      mappings.forAllFieldsSorted((cName, name, desc, renamed) -> {
+        String prefix = ".field_map " + cName + "/" + name + " ";
+        if(!sameName.isEmpty() && !sameName.get(0).startsWith(prefix)) out.writeSorted(sameName);
+        sameName.add(prefix + renamed);
+      });
+      out.writeSorted(sameName);
+      mappings.forAllMethodsSorted((cName, name, desc, renamed) ->
+          out.write(".method_map " + cName + "/" + name + " " + desc + " " + renamed));
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private String argMismatch(String line, int expected, int actual) {
+    return "Error on line '" + line + "'. Expected at least " + expected + " arguments, got " + actual;
   }
 }
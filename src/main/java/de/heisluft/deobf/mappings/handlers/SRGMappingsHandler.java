@@ -5,12 +5,15 @@ import de.heisluft.deobf.mappings.MappingsBuilder;
 import de.heisluft.deobf.mappings.MappingsHandler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
- * A MappingsHandler capable of reading SRG files.
+ * A MappingsHandler capable of reading and writing SRG files. Package relocations are neither read nor written.
  */
 //TODO: Implement Packages
 public final class SRGMappingsHandler implements MappingsHandler {
@@ -28,54 +31,60 @@ public final class SRGMappingsHandler implements MappingsHandler {
   @Override
   public Mappings parseMappings(Path input) throws IOException {
     MappingsBuilder builder = new MappingsBuilder();
-    List<String> lines = Files.readAllLines(input);
+    try(LineTokenizer lines = LineTokenizer.open(input)) {
+      parse(lines, builder, System.out::print);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public Mappings parseMappings(Path input, ForkJoinPool pool) throws IOException {
+    return ChunkedParser.parse(input, pool, this::parse, this);
+  }
+
+  /**
+   * Parses all lines of a tokenizer into a builder.
+   *
+   * @param line the tokenizer to read from
+   * @param builder the builder to add all entries to
+   * @param log receives messages about skipped lines, unused as this format never skips lines
+   * @throws IOException if a line is malformed
+   */
+  private void parse(LineTokenizer line, MappingsBuilder builder, Consumer<String> log) throws IOException {
     int lCounter = 0;
-    for (String line : lines) {
-      if(!line.contains(" ")) throw parseError(lCounter, "Line does not contain command");
-      String[] split = line.split(" ");
-      String cmd = split[SRG_MAPPING_TYPE_INDEX];
-      switch (cmd) {
-        case "CL:":
-          if (split.length != SRG_CLASS_MAPPING_LEN)
-            throw parseError(lCounter, "Class mappings need 2 arguments, " + (split.length - 1) + " given");
-          builder.addClassMapping(split[SRG_OBFED_INDEX], split[SRG_DEOBFED_INDEX]);
-          break;
-        case "MD:":
-          if (split.length != SRG_METHOD_MAPPING_LEN)
-            throw parseError(lCounter, "Method mappings need 3 arguments, " + (split.length - 1) + " given");
-          String obfName = split[SRG_OBFED_INDEX];
-          String deobfName = split[SRG_MD_DEOBFED_INDEX];
-          if(!obfName.contains("/") || !deobfName.contains("/"))
-            throw parseError(lCounter, "Class member names must contain slash");
-          int lastSlash = obfName.lastIndexOf('/');
-          builder.addMethodMapping(
-              obfName.substring(0, lastSlash),
-              obfName.substring(lastSlash + 1),
-              split[SRG_MD_DESCRIPTOR_INDEX],
-              deobfName.substring(deobfName.lastIndexOf('/') + 1)
-          );
-          break;
-        case "FD:":
-          if (split.length != SRG_FIELD_MAPPING_LEN)
-            throw parseError(lCounter, "Field mappings need 3 arguments, " + (split.length - 1) + " given");
-          obfName = split[SRG_OBFED_INDEX];
-          deobfName = split[SRG_DEOBFED_INDEX];
-          if(!obfName.contains("/") || !deobfName.contains("/"))
-            throw parseError(lCounter, "Class member names must contain slash");
-          lastSlash = obfName.lastIndexOf('/');
-          builder.addFieldMapping(
-              obfName.substring(0, lastSlash),
-              obfName.substring(lastSlash + 1),
-              deobfName.substring(deobfName.lastIndexOf('/') + 1)
-          );
-          break;
-        case "PK:":
-          break;
-        default: throw parseError(lCounter, "Unknown entry '" + cmd + "'");
-      }
+    while(line.next()) {
+      if(!line.hasSeparator()) throw parseError(lCounter, "Line does not contain command");
+      if(line.fieldEquals(SRG_MAPPING_TYPE_INDEX, "CL:")) {
+        if(line.size() != SRG_CLASS_MAPPING_LEN)
+          throw parseError(lCounter, "Class mappings need 2 arguments, " + (line.size() - 1) + " given");
+        builder.addClassMapping(line.get(SRG_OBFED_INDEX), line.get(SRG_DEOBFED_INDEX));
+      } else if(line.fieldEquals(SRG_MAPPING_TYPE_INDEX, "MD:")) {
+        if(line.size() != SRG_METHOD_MAPPING_LEN)
+          throw parseError(lCounter, "Method mappings need 3 arguments, " + (line.size() - 1) + " given");
+        int lastSlash = line.lastIndexOf(SRG_OBFED_INDEX, '/');
+        int deobfSlash = line.lastIndexOf(SRG_MD_DEOBFED_INDEX, '/');
+        if(lastSlash < 0 || deobfSlash < 0) throw parseError(lCounter, "Class member names must contain slash");
+        builder.addMethodMapping(
+            line.get(SRG_OBFED_INDEX, 0, lastSlash),
+            line.get(SRG_OBFED_INDEX, lastSlash + 1, line.length(SRG_OBFED_INDEX)),
+            line.get(SRG_MD_DESCRIPTOR_INDEX),
+            line.get(SRG_MD_DEOBFED_INDEX, deobfSlash + 1, line.length(SRG_MD_DEOBFED_INDEX))
+        );
+      } else if(line.fieldEquals(SRG_MAPPING_TYPE_INDEX, "FD:")) {
+        if(line.size() != SRG_FIELD_MAPPING_LEN)
+          throw parseError(lCounter, "Field mappings need 3 arguments, " + (line.size() - 1) + " given");
+        int lastSlash = line.lastIndexOf(SRG_OBFED_INDEX, '/');
+        int deobfSlash = line.lastIndexOf(SRG_DEOBFED_INDEX, '/');
+        if(lastSlash < 0 || deobfSlash < 0) throw parseError(lCounter, "Class member names must contain slash");
+        builder.addFieldMapping(
+            line.get(SRG_OBFED_INDEX, 0, lastSlash),
+            line.get(SRG_OBFED_INDEX, lastSlash + 1, line.length(SRG_OBFED_INDEX)),
+            line.get(SRG_DEOBFED_INDEX, deobfSlash + 1, line.length(SRG_DEOBFED_INDEX))
+        );
+      } else if(!line.fieldEquals(SRG_MAPPING_TYPE_INDEX, "PK:"))
+        throw parseError(lCounter, "Unknown entry '" + line.get(SRG_MAPPING_TYPE_INDEX) + "'");
       lCounter++;
     }
-    return builder.build();
   }
 
   private IOException parseError(int lCounter, String message) {
@@ -86,4 +95,23 @@ public final class SRGMappingsHandler implements MappingsHandler {
   public String fileExt() {
     return "srg";
   }
+
+  @Override
+  public void writeMappings(Mappings mappings, Path to) throws IOException {
+    try(LineWriter out = new LineWriter(to)) {
+      mappings.forAllClassesSorted((name, renamed) -> out.write("CL: " + name + " " + renamed));
+      // descriptors are not written, so fields sharing a name are ordered by their mapped name instead
+      List<String> sameName = new ArrayList<>();
+      mappings.forAllFieldsSorted((cName, name, desc, renamed) -> {
+        String prefix = "FD: " + cName + "/" + name + " ";
+        if(!sameName.isEmpty() && !sameName.get(0).startsWith(prefix)) out.writeSorted(sameName);
+        sameName.add(prefix + mappings.getClassName(cName) + "/" + renamed);
+      });
+      out.writeSorted(sameName);
+      mappings.forAllMethodsSorted((cName, name, desc, renamed) -> out.write("MD: " + cName + "/" + name + " " + desc
+          + " " + mappings.getClassName(cName) + "/" + renamed + " " + mappings.remapDescriptor(desc)));
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
 }
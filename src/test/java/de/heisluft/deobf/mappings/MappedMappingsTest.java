@@ -0,0 +1,81 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MappedMappingsTest {
+
+  /** Class names encoded with one to four bytes per char, sorting differently as UTF-8 and as UTF-16. */
+  private static final String[] NAMES = {
+      "a/A", "a/\u00e9", "a/\u0800x", "a/\uffff", "a/\ud83d\ude00", "a/\ud83d", "a/AB", "a/", "b/\u00ff"
+  };
+  /** The offset of the class table offset within the index header. */
+  private static final int CLASS_TABLE_OFFSET = 20;
+
+  /** The directory to write indices to. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void lookupsMatchMappings() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addPackageRelocation("^r/[^/]+$", "relocated/");
+    for(int i = 0; i < NAMES.length; i++) {
+      if(i % 2 == 0) builder.addClassMapping(NAMES[i], "m/" + NAMES[i]);
+      builder.addMethodMapping(NAMES[i], "m\u00e9", "(L" + NAMES[i] + ";)V", "method" + i);
+      builder.addFieldMapping(NAMES[i], "f", "L" + NAMES[i] + ";", "field" + i);
+    }
+    Mappings mappings = builder.build();
+    Path file = dir.resolve("index.midx");
+    MappedMappings.write(mappings, file);
+    MappedMappings mapped = MappedMappings.open(file);
+    for(String name : NAMES) {
+      for(String probe : new String[]{name, name + "x", "r/" + name.substring(2)}) {
+        assertEquals(mappings.getClassName(probe), mapped.getClassName(probe), probe);
+        assertEquals(mappings.hasClassMapping(probe), mapped.hasClassMapping(probe), probe);
+        String desc = "(L" + probe + ";)V";
+        assertEquals(mappings.getMethodName(probe, "m\u00e9", desc), mapped.getMethodName(probe, "m\u00e9", desc));
+        String fDesc = "L" + probe + ";";
+        assertEquals(mappings.getFieldName(probe, "f", fDesc), mapped.getFieldName(probe, "f", fDesc));
+        assertEquals(mappings.remapDescriptor(desc), mapped.remapDescriptor(desc));
+      }
+    }
+    assertTrue(mapped.hasMethodMapping("a/\ud83d\ude00", "m\u00e9", "(La/\ud83d\ude00;)V"));
+    assertFalse(mapped.hasMethodMapping("a/\ud83d\ude00", "m\u00e8", "(La/\ud83d\ude00;)V"));
+  }
+
+  @Test
+  void outOfBoundsStringReferenceIsRejected() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addClassMapping("a/A", "b/B");
+    Path file = dir.resolve("corrupt.midx");
+    MappedMappings.write(builder.build(), file);
+    ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(file));
+    index.putInt(index.getInt(CLASS_TABLE_OFFSET), index.limit());
+    Files.write(file, index.array());
+    IOException e = assertThrows(IOException.class, () -> MappedMappings.open(file));
+    assertTrue(e.getMessage().startsWith("String reference " + index.limit()), e.getMessage());
+  }
+
+  @Test
+  void nullKeyIsRejected() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addClassMapping("a/A", "b/B");
+    Path file = dir.resolve("null.midx");
+    MappedMappings.write(builder.build(), file);
+    ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(file));
+    index.putInt(index.getInt(CLASS_TABLE_OFFSET), -1);
+    Files.write(file, index.array());
+    assertThrows(IOException.class, () -> MappedMappings.open(file));
+  }
+}
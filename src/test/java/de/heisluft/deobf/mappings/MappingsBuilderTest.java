@@ -0,0 +1,92 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+final class MappingsBuilderTest {
+
+  @Test
+  void builtMappingsAreUnaffectedByLaterMutation() {
+    MappingsBuilder builder = populatedBuilder();
+    Mappings built = builder.build();
+    List<String> expected = dump(built);
+    mutate(builder);
+    assertEquals(expected, dump(built));
+    assertNotEquals(expected, dump(builder.build()));
+  }
+
+  @Test
+  void mutatingCopyLeavesSourceUnchanged() {
+    Mappings source = populatedBuilder().build();
+    List<String> expected = dump(source);
+    MappingsBuilder copy = new MappingsBuilder(source);
+    mutate(copy);
+    Mappings mutated = copy.build();
+    assertEquals(expected, dump(source));
+    assertEquals("b/Renamed", mutated.getClassName("a/A"));
+    assertEquals("a/B", source.getClassName("a/A"));
+    assertFalse(source.hasMethodMapping("a/A", "added", "()V"));
+  }
+
+  /**
+   * Creates a builder with entries of all kinds.
+   *
+   * @return the builder
+   */
+  private static MappingsBuilder populatedBuilder() {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addPackageRelocation("a/", "b/");
+    builder.addClassMapping("a/A", "a/B");
+    builder.addClassMapping("a/C", "a/D");
+    builder.addFieldMapping("a/A", "f", "I", "field");
+    builder.addFieldMapping("a/A", "g", Mappings.EMPTY_FIELD_DESCRIPTOR, "other");
+    builder.addMethodMapping("a/A", "m", "()V", "method");
+    builder.addMethodMapping("a/C", "m", "(I)V", "method");
+    builder.addExceptions("a/A", "m", "()V", Collections.singleton("java/io/IOException"));
+    builder.setParameters("a/A", "m", "(I)V", Arrays.asList("first"));
+    return builder;
+  }
+
+  /**
+   * Modifies entries of all kinds, both existing and new ones.
+   *
+   * @param builder the builder to modify
+   */
+  private static void mutate(MappingsBuilder builder) {
+    builder.addPackageRelocation("c/", "d/");
+    builder.addClassMapping("a/A", "b/Renamed");
+    builder.addFieldMapping("a/A", "f", "I", "renamed");
+    builder.addFieldMapping("a/C", "f", "I", "added");
+    builder.addMethodMapping("a/A", "m", "()V", "renamed");
+    builder.addMethodMapping("a/A", "added", "()V", "added");
+    builder.addExceptions("a/A", "m", "()V", Collections.singleton("java/lang/Exception"));
+    builder.setParameters("a/A", "m", "(I)V", Arrays.asList("renamed"));
+  }
+
+  /**
+   * Lists all entries of mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllPackages((name, relocated) -> lines.add("PK " + name + ' ' + relocated));
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.streamExtraData().forEach(extra -> lines.add("EX " + extra.getClassName() + ' ' + extra.getMethodName()
+        + extra.getDescriptor() + ' ' + new TreeSet<>(extra.getExceptions()) + ' ' + extra.getParameters()));
+    Collections.sort(lines);
+    return lines;
+  }
+}
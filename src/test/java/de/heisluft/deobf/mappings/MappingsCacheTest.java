@@ -0,0 +1,111 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+final class MappingsCacheTest {
+
+  /** The weight of a cache holding any amount of files. */
+  private static final long UNBOUNDED = Long.MAX_VALUE;
+  /** The amount of hours to move a modification time by. */
+  private static final long HOURS_MODIFIED = 1;
+  /** The misses of the eviction test: parsing three files and reparsing the evicted one. */
+  private static final int EVICTION_MISSES = 4;
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void unchangedFilesAreHits() throws IOException {
+    Path file = write("a.srg", "A");
+    MappingsCache cache = new MappingsCache(UNBOUNDED);
+    Mappings parsed = cache.parseMappings(file);
+    assertSame(parsed, cache.parseMappings(file));
+    assertEquals(1, cache.hitCount());
+    assertEquals(1, cache.missCount());
+    assertEquals(Files.size(file), cache.weight());
+  }
+
+  @Test
+  void touchedFilesAreRehashedNotReparsed() throws IOException {
+    Path file = write("a.srg", "A");
+    MappingsCache cache = new MappingsCache(UNBOUNDED);
+    Mappings parsed = cache.parseMappings(file);
+    FileTime modified = Files.getLastModifiedTime(file);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + TimeUnit.HOURS.toMillis(HOURS_MODIFIED)));
+    assertSame(parsed, cache.parseMappings(file));
+    // copies share the entry of their content
+    assertSame(parsed, cache.parseMappings(Files.copy(file, dir.resolve("copy.srg"))));
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.missCount());
+    Files.write(file, Collections.singletonList("CL: a/A b/Changed"), StandardCharsets.UTF_8);
+    assertEquals("b/Changed", cache.parseMappings(file).getClassName("a/A"));
+    assertEquals(2, cache.missCount());
+  }
+
+  @Test
+  void leastRecentlyUsedFilesAreEvictedByWeight() throws IOException {
+    Path a = write("a.srg", "A");
+    Path b = write("b.srg", "B");
+    Path c = write("c.srg", "C");
+    MappingsCache cache = new MappingsCache(Files.size(a) + Files.size(b));
+    Mappings parsedA = cache.parseMappings(a);
+    Mappings parsedB = cache.parseMappings(b);
+    assertSame(parsedA, cache.parseMappings(a));
+    cache.parseMappings(c);
+    assertEquals(cache.maximumWeight(), cache.weight());
+    assertSame(parsedA, cache.parseMappings(a));
+    Mappings reparsedB = cache.parseMappings(b);
+    assertNotSame(parsedB, reparsedB);
+    assertEquals("b/B", reparsedB.getClassName("a/B"));
+    assertEquals(2, cache.hitCount());
+    assertEquals(EVICTION_MISSES, cache.missCount());
+  }
+
+  @Test
+  void persistedMappingsAreLoaded() throws IOException {
+    Path file = write("a.srg", "A");
+    Path persisted = dir.resolve("persisted");
+    new MappingsCache(UNBOUNDED, persisted).parseMappings(file);
+    Path mbin;
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(persisted, "*.mbin")) {
+      mbin = files.iterator().next();
+    }
+    // replaces the persisted mappings, so that they can be told apart from the parsed ones
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addClassMapping("a/A", "b/Persisted");
+    MappingsHandlers.findHandler("mbin").writeMappings(builder.build(), mbin);
+    MappingsCache restarted = new MappingsCache(UNBOUNDED, persisted);
+    assertEquals("b/Persisted", restarted.parseMappings(file).getClassName("a/A"));
+    assertEquals(1, restarted.missCount());
+    assertEquals("b/Persisted", restarted.parseMappings(file).getClassName("a/A"));
+    assertEquals(1, restarted.hitCount());
+  }
+
+  /**
+   * Writes an SRG file mapping a single class {@code a/<name>} to {@code b/<name>}.
+   *
+   * @param fileName the name of the file
+   * @param name the simple name of the class
+   * @return the path of the file
+   * @throws IOException if the file could not be written
+   */
+  private Path write(String fileName, String name) throws IOException {
+    return Files.write(dir.resolve(fileName), Collections.singletonList("CL: a/" + name + " b/" + name),
+        StandardCharsets.UTF_8);
+  }
+}
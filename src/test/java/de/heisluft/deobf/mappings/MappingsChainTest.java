@@ -0,0 +1,89 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+final class MappingsChainTest {
+
+  @Test
+  void membersMappedOnlyByLaterLinksAreFound() {
+    MappingsBuilder first = new MappingsBuilder();
+    first.addClassMapping("a/A", "b/B");
+    first.addMethodMapping("a/A", "n", "()V", "n1");
+    MappingsBuilder second = new MappingsBuilder();
+    // later links are queried with the owner and descriptor as mapped by the preceding links
+    second.addMethodMapping("b/B", "m", "(Lb/B;)V", "m2");
+    second.addMethodMapping("b/B", "n1", "()V", "n2");
+    second.addFieldMapping("b/B", "f", "Lb/B;", "f2");
+    second.addFieldMapping("b/B", "g", "g2");
+    MappingsChain chain = MappingsChain.of(first.build(), second.build());
+    assertEquals("m2", chain.getMethodName("a/A", "m", "(La/A;)V"));
+    assertEquals("n2", chain.getMethodName("a/A", "n", "()V"));
+    assertEquals("f2", chain.getFieldName("a/A", "f", "La/A;"));
+    assertEquals("g2", chain.getFieldName("a/A", "g", "I"));
+    assertNull(chain.getMethodName("a/A", "m", "()V"));
+    assertNull(chain.getFieldName("a/A", "h", "I"));
+  }
+
+  @Test
+  void descriptorlessFieldsStayDescriptorless() {
+    MappingsBuilder first = new MappingsBuilder();
+    first.addClassMapping("a/A", "b/B");
+    first.addFieldMapping("a/A", "f", "f1");
+    MappingsBuilder second = new MappingsBuilder();
+    second.addFieldMapping("b/B", "f1", "f2");
+    MappingsChain chain = MappingsChain.of(first.build(), second.build());
+    assertEquals(Mappings.EMPTY_FIELD_DESCRIPTOR, chain.remapDescriptor(Mappings.EMPTY_FIELD_DESCRIPTOR));
+    Mappings materialized = chain.materialize();
+    List<String> fields = new ArrayList<>();
+    materialized.forAllFields((cName, name, desc, mapped) -> fields.add(cName + ' ' + name + desc + ' ' + mapped));
+    assertEquals(Collections.singletonList("a/A f" + Mappings.EMPTY_FIELD_DESCRIPTOR + " f2"), fields);
+    assertEquals("f2", materialized.getFieldName("a/A", "f", "J"));
+  }
+
+  @Test
+  void materializeEqualsConversion() {
+    MappingsBuilder first = new MappingsBuilder();
+    first.addClassMapping("a/A", "b/B");
+    first.addClassMapping("a/C", "b/D");
+    first.addClassMapping("a/E", "b/E");
+    first.addFieldMapping("a/A", "f", "La/C;", "f1");
+    first.addFieldMapping("a/A", "g", "g1");
+    first.addFieldMapping("a/C", "h", "I", "h1");
+    first.addMethodMapping("a/A", "m", "(La/C;)La/A;", "m1");
+    first.addMethodMapping("a/C", "n", "()V", "n1");
+    first.addMethodMapping("a/E", "o", "(La/E;)V", "o1");
+    MappingsBuilder second = new MappingsBuilder();
+    second.addClassMapping("b/B", "c/B");
+    second.addClassMapping("b/D", "c/D");
+    second.addFieldMapping("b/B", "f1", "Lb/D;", "f2");
+    second.addFieldMapping("b/B", "g1", "g2");
+    second.addMethodMapping("b/B", "m1", "(Lb/D;)Lb/B;", "m2");
+    second.addMethodMapping("b/D", "n1", "()V", "n2");
+    second.addMethodMapping("b/D", "unrelated", "()V", "ignored");
+    Mappings a = first.build();
+    Mappings b = second.build();
+    assertEquals(dump(a.generateConversionMethods(b)), dump(MappingsChain.of(a, b).materialize()));
+  }
+
+  /**
+   * Lists all class and member mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    Collections.sort(lines);
+    return lines;
+  }
+}
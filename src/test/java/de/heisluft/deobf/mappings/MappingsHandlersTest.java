@@ -0,0 +1,48 @@
+package de.heisluft.deobf.mappings;
+
+import de.heisluft.deobf.mappings.handlers.FRGMappingsHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MappingsHandlersTest {
+
+  /** The directory holding the services file. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void brokenProvidersAreSkipped() throws IOException {
+    Path services = Files.createDirectories(dir.resolve("META-INF").resolve("services"));
+    Files.write(services.resolve(MappingsHandler.class.getName()), Arrays.asList("de.heisluft.deobf.mappings.Missing",
+        String.class.getName(), FRGMappingsHandler.class.getName()), StandardCharsets.UTF_8);
+    // hides the services files of the class path, so that only the file above is read
+    ClassLoader classes = new ClassLoader(MappingsHandlersTest.class.getClassLoader()) {
+      @Override
+      public Enumeration<URL> getResources(String name) {
+        return Collections.emptyEnumeration();
+      }
+    };
+    Map<String, MappingsHandler> handlers = new HashMap<>();
+    try(URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, classes)) {
+      MappingsHandlers.loadHandlers(ServiceLoader.load(MappingsHandler.class, loader), handlers);
+    }
+    assertEquals(Collections.singleton("frg"), handlers.keySet());
+    assertTrue(handlers.get("frg") instanceof FRGMappingsHandler);
+  }
+}
@@ -0,0 +1,26 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+final class MappingsTest {
+
+  @Test
+  void reverseLookupsDoNotGrowSymbolTable() {
+    SymbolTable symbols = new SymbolTable();
+    MappingsBuilder builder = new MappingsBuilder(symbols);
+    builder.addFieldMapping("a/A", "f", "I", "field");
+    builder.addFieldMapping("a/A", "g", Mappings.EMPTY_FIELD_DESCRIPTOR, "other");
+    builder.addMethodMapping("a/A", "m", "()V", "method");
+    Mappings mappings = builder.build();
+    int size = symbols.size();
+    assertEquals("f", mappings.getOriginalFieldName("a/A", "field", "I"));
+    assertEquals("g", mappings.getOriginalFieldName("a/A", "other", "J"));
+    assertEquals("m", mappings.getOriginalMethodName("a/A", "method", "()V"));
+    assertNull(mappings.getOriginalMethodName("a/A", "unknown", "()V"));
+    assertNull(mappings.getOriginalFieldName("a/A", "unknown", "I"));
+    assertEquals(size, symbols.size());
+  }
+}
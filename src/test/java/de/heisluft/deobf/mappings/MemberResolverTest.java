@@ -0,0 +1,123 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MemberResolverTest {
+
+  @Test
+  void fieldsSearchInterfacesBeforeSuperclass() {
+    Hierarchy hierarchy = new Hierarchy().extend("C", "S").implement("C", "I").implement("I", "J");
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addFieldMapping("S", "f", "I", "fromSuperclass");
+    builder.addFieldMapping("J", "f", "I", "fromSuperinterface");
+    builder.addFieldMapping("S", "g", "I", "fromSuperclass");
+    builder.addFieldMapping("C", "h", "I", "fromClass");
+    builder.addFieldMapping("I", "h", "I", "fromInterface");
+    MemberResolver resolver = new MemberResolver(builder.build(), hierarchy);
+    assertEquals("fromSuperinterface", resolver.getFieldName("C", "f", "I"));
+    assertEquals("fromSuperclass", resolver.getFieldName("C", "g", "I"));
+    assertEquals("fromClass", resolver.getFieldName("C", "h", "I"));
+  }
+
+  @Test
+  void methodsSearchSuperclassesBeforeInterfaces() {
+    Hierarchy hierarchy = new Hierarchy().extend("C", "S").extend("S", "T").implement("C", "I").implement("S", "J");
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addMethodMapping("T", "m", "()V", "fromSuperclass");
+    builder.addMethodMapping("I", "m", "()V", "fromInterface");
+    builder.addMethodMapping("J", "n", "()V", "fromSuperclassInterface");
+    builder.addMethodMapping("C", "o", "()V", "fromClass");
+    builder.addMethodMapping("S", "o", "()V", "fromSuperclass");
+    MemberResolver resolver = new MemberResolver(builder.build(), hierarchy);
+    assertEquals("fromSuperclass", resolver.getMethodName("C", "m", "()V"));
+    assertEquals("fromSuperclassInterface", resolver.getMethodName("C", "n", "()V"));
+    assertEquals("fromClass", resolver.getMethodName("C", "o", "()V"));
+    assertNull(resolver.getMethodName("C", "m", "(I)V"));
+  }
+
+  @Test
+  void unresolvedMembersAreMemoized() {
+    Hierarchy hierarchy = new Hierarchy().extend("C", "S").implement("C", "I");
+    MemberResolver resolver = new MemberResolver(new MappingsBuilder().build(), hierarchy);
+    assertNull(resolver.getMethodName("C", "m", "()V"));
+    assertNull(resolver.getFieldName("C", "f", "I"));
+    int queries = hierarchy.queries;
+    assertNull(resolver.getMethodName("C", "m", "()V"));
+    assertNull(resolver.getFieldName("C", "f", "I"));
+    assertEquals(queries, hierarchy.queries);
+    // another descriptor is another member
+    assertNull(resolver.getMethodName("C", "m", "(I)V"));
+    assertTrue(hierarchy.queries > queries);
+  }
+
+  @Test
+  void cyclicHierarchiesTerminate() {
+    Hierarchy hierarchy = new Hierarchy().extend("A", "B").extend("B", "A").implement("A", "I").implement("I", "J")
+        .implement("J", "I");
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addMethodMapping("J", "m", "()V", "fromInterface");
+    builder.addFieldMapping("J", "f", "I", "fromInterface");
+    MemberResolver resolver = new MemberResolver(builder.build(), hierarchy);
+    assertEquals("fromInterface", resolver.getMethodName("B", "m", "()V"));
+    assertEquals("fromInterface", resolver.getFieldName("B", "f", "I"));
+    assertNull(resolver.getMethodName("B", "n", "()V"));
+    assertNull(resolver.getFieldName("B", "g", "I"));
+  }
+
+  /** A hierarchy of declared supertypes, counting the queries made to it. */
+  private static final class Hierarchy implements ClassHierarchyProvider {
+    /** The amount of queries made. */
+    int queries;
+    /** The superclasses by class name. */
+    private final Map<String, String> superclasses = new HashMap<>();
+    /** The superinterfaces by class name. */
+    private final Map<String, List<String>> interfaces = new HashMap<>();
+
+    /**
+     * Declares the superclass of a class.
+     *
+     * @param className the name of the class
+     * @param superclass the name of the superclass
+     * @return this hierarchy
+     */
+    Hierarchy extend(String className, String superclass) {
+      superclasses.put(className, superclass);
+      return this;
+    }
+
+    /**
+     * Adds a superinterface to a class.
+     *
+     * @param className the name of the class
+     * @param name the name of the superinterface
+     * @return this hierarchy
+     */
+    Hierarchy implement(String className, String name) {
+      interfaces.computeIfAbsent(className, k -> new ArrayList<>()).add(name);
+      return this;
+    }
+
+    @Override
+    public String getSuperclass(String className) {
+      queries++;
+      return superclasses.get(className);
+    }
+
+    @Override
+    public Collection<String> getInterfaces(String className) {
+      queries++;
+      return interfaces.getOrDefault(className, Collections.emptyList());
+    }
+  }
+}
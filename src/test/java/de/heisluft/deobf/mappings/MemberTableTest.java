@@ -0,0 +1,171 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MemberTableTest {
+
+  /** The capacity of a table holding {@link #FILLERS} entries, see the load factor of {@link MemberTable}. */
+  private static final int CAPACITY = 64;
+  /** The amount of entries needed to grow an empty table to {@link #CAPACITY}. */
+  private static final int FILLERS = 25;
+  /** The first slot fillers are homed in, keeping the first slots free. */
+  private static final int FILLERS_START = CAPACITY / 4;
+  /** The slot after the last one fillers are homed in, keeping the last slots free. */
+  private static final int FILLERS_END = CAPACITY / 2;
+  /** The amount of entries homed in the last slots, so that their probe cluster wraps around to the first slots. */
+  private static final int WRAPPING = 6;
+  /** The amount of random operations in the reference test. */
+  private static final int OPERATIONS = 100_000;
+  /** The range of IDs in the reference test, small enough to produce many collisions and removals. */
+  private static final int ID_RANGE = 40;
+
+  @Test
+  void removeShiftsBackWrappedCluster() {
+    MemberTable<String> table = new MemberTable<>();
+    Map<Long, String> reference = new HashMap<>();
+    // fill the middle of the table, keeping the first and the last slots free
+    for(int id = 0; reference.size() < FILLERS; id++) {
+      int home = home(id, 0);
+      if(home < FILLERS_START || home >= FILLERS_END) continue;
+      put(table, reference, id, 0);
+    }
+    // home a cluster in the last two slots, which has to wrap around to the first slots of the table
+    List<Integer> wrapping = new ArrayList<>();
+    for(int id = 0; wrapping.size() < WRAPPING; id++) {
+      if(home(id, 1) < CAPACITY - 2) continue;
+      wrapping.add(id);
+      put(table, reference, id, 1);
+    }
+    assertMatches(reference, table);
+    // removing from the start of the cluster has to shift back the entries that wrapped around
+    for(int i = 0; i < wrapping.size(); i += 2) {
+      assertEquals(reference.remove(MemberTable.pack(wrapping.get(i), 1)), table.remove(wrapping.get(i), 1));
+      assertMatches(reference, table);
+    }
+    assertNull(table.remove(wrapping.get(0), 1));
+    // grow the table, so that the remaining entries are rehashed
+    for(int id = 0; reference.size() < CAPACITY; id++) put(table, reference, id, 2);
+    assertMatches(reference, table);
+    for(int id : wrapping) {
+      assertEquals(reference.remove(MemberTable.pack(id, 1)), table.remove(id, 1));
+      assertMatches(reference, table);
+    }
+  }
+
+  @Test
+  void matchesReferenceUnderRandomOperations() {
+    Random random = new Random(0);
+    MemberTable<String> table = new MemberTable<>();
+    Map<Long, String> reference = new HashMap<>();
+    for(int i = 0; i < OPERATIONS; i++) {
+      int nameId = random.nextInt(ID_RANGE);
+      int descId = random.nextInt(ID_RANGE);
+      if(random.nextBoolean()) {
+        String value = "v" + i;
+        assertEquals(reference.put(MemberTable.pack(nameId, descId), value), table.put(nameId, descId, value));
+      } else assertEquals(reference.remove(MemberTable.pack(nameId, descId)), table.remove(nameId, descId));
+      assertEquals(reference.size(), table.size());
+    }
+    assertMatches(reference, table);
+  }
+
+  @Test
+  void sortedKeysFollowSymbolOrder() {
+    Random random = new Random(0);
+    SymbolTable symbols = new SymbolTable();
+    MemberTable<String> table = new MemberTable<>();
+    List<String[]> expected = new ArrayList<>();
+    for(int i = 0; i < ID_RANGE; i++) {
+      // short random names, so that members share names and interning order differs from symbol order
+      String name = Integer.toString(random.nextInt(ID_RANGE), Character.MAX_RADIX);
+      String desc = "(" + (char) ('A' + random.nextInt(ID_RANGE)) + ")V";
+      if(table.put(symbols.intern(name), symbols.intern(desc), name) == null) expected.add(new String[]{name, desc});
+    }
+    expected.sort(Comparator.<String[], String>comparing(member -> member[0]).thenComparing(member -> member[1]));
+    List<String[]> sorted = new ArrayList<>();
+    table.forEach(table.sortedKeys(symbols), (nameId, descId, value) ->
+        sorted.add(new String[]{symbols.get(nameId), symbols.get(descId)})
+    );
+    assertEquals(expected.size(), sorted.size());
+    for(int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), sorted.get(i));
+  }
+
+  @Test
+  void unknownSymbolsAreNeverContained() {
+    MemberTable<String> table = new MemberTable<>();
+    table.put(0, 0, "a");
+    assertNull(table.get(-1, 0));
+    assertFalse(table.containsKey(0, -1));
+    assertNull(table.remove(-1, -1));
+    assertTrue(table.containsKey(0, 0));
+  }
+
+  @Test
+  void recordedNamesAreNeverRuledOut() {
+    MemberTable<String> table = new MemberTable<>();
+    assertFalse(table.mayContainName("a"));
+    List<String> names = new ArrayList<>();
+    for(int i = 0; i < FILLERS; i++) {
+      names.add("m" + i);
+      table.put(i, 0, "m" + i);
+      table.recordName("m" + i);
+    }
+    MemberTable<String> joined = new MemberTable<>();
+    joined.putAll(table);
+    List<MemberTable<String>> copies = Arrays.asList(table, new MemberTable<>(table), table.filter((n, d, v) -> false),
+        joined);
+    for(MemberTable<String> copy : copies) for(String name : names) assertTrue(copy.mayContainName(name));
+  }
+
+  /**
+   * Computes the home slot of a member in a table of {@link #CAPACITY}.
+   *
+   * @param nameId the ID of the member name
+   * @param descId the ID of the member descriptor
+   * @return the home slot
+   */
+  private static int home(int nameId, int descId) {
+    return MemberTable.mix(MemberTable.pack(nameId, descId)) & (CAPACITY - 1);
+  }
+
+  /**
+   * Puts an entry into both a table and its reference.
+   *
+   * @param table the table
+   * @param reference the reference
+   * @param nameId the ID of the member name
+   * @param descId the ID of the member descriptor
+   */
+  private static void put(MemberTable<String> table, Map<Long, String> reference, int nameId, int descId) {
+    String value = nameId + ":" + descId;
+    assertEquals(reference.put(MemberTable.pack(nameId, descId), value), table.put(nameId, descId, value));
+  }
+
+  /**
+   * Checks that a table contains exactly the entries of a reference.
+   *
+   * @param reference the expected entries by packed key
+   * @param table the table to check
+   */
+  private static void assertMatches(Map<Long, String> reference, MemberTable<String> table) {
+    assertEquals(reference.size(), table.size());
+    reference.forEach((key, value) -> assertEquals(value, table.get((int) (key >>> Integer.SIZE), key.intValue())));
+    Map<Long, String> visited = new HashMap<>();
+    table.forEach((nameId, descId, value) -> visited.put(MemberTable.pack(nameId, descId), value));
+    assertEquals(reference, visited);
+  }
+}
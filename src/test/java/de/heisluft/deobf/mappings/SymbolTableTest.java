@@ -0,0 +1,109 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+final class SymbolTableTest {
+
+  /** The amount of threads interning symbols concurrently. */
+  private static final int WRITERS = 4;
+  /** The amount of threads looking up symbols while they are interned. */
+  private static final int READERS = 2;
+  /** The amount of distinct symbols, enough to grow the table many times. */
+  private static final int SYMBOLS = 20_000;
+
+  @Test
+  void internReturnsStableIds() {
+    SymbolTable table = new SymbolTable();
+    int a = table.intern("a");
+    int b = table.intern("b");
+    assertNotEquals(a, b);
+    assertEquals(a, table.intern(new String("a")));
+    assertEquals(b, table.find("b"));
+    assertEquals(-1, table.find("c"));
+    assertEquals(2, table.size());
+  }
+
+  @Test
+  void findAcceptsCharSequences() {
+    SymbolTable table = new SymbolTable();
+    int id = table.intern("func_1234_a");
+    StringBuilder probe = new StringBuilder("func_1234_");
+    assertEquals(-1, table.find(probe));
+    assertEquals(id, table.find(probe.append('a')));
+  }
+
+  @Test
+  void canonicalReturnsInternedInstance() {
+    SymbolTable table = new SymbolTable();
+    String first = new String("name");
+    table.intern(first);
+    assertSame(first, table.canonical(new String("name")));
+    assertSame(first, table.get(table.find("name")));
+  }
+
+  @Test
+  void concurrentInternAndFind() throws Exception {
+    SymbolTable table = new SymbolTable();
+    Set<String> interned = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for(int w = 0; w < WRITERS; w++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          // all writers intern the same symbols in different orders, so insertions of one symbol race each other
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for(int i = 0; i < SYMBOLS; i++) {
+            String symbol = "sym" + random.nextInt(SYMBOLS);
+            int id = table.intern(symbol);
+            assertEquals(symbol, table.get(id));
+            interned.add(symbol);
+          }
+          return null;
+        }));
+      }
+      for(int r = 0; r < READERS; r++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for(int i = 0; i < SYMBOLS; i++) {
+            String symbol = "sym" + random.nextInt(SYMBOLS);
+            int id = table.find(symbol);
+            // a symbol may not be interned yet, but if it is found, its ID must be correct
+            if(id >= 0) assertEquals(symbol, table.get(id));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for(Future<?> future : futures) future.get();
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(interned.size(), table.size());
+    Set<Integer> ids = new HashSet<>();
+    for(String symbol : interned) {
+      int id = table.find(symbol);
+      assertEquals(symbol, table.get(id));
+      assertEquals(id, table.intern(symbol));
+      ids.add(id);
+    }
+    assertEquals(interned.size(), ids.size());
+  }
+}
@@ -0,0 +1,164 @@
+package de.heisluft.deobf.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class TrieMapTest {
+
+  /** The amount of random operations in the reference test. */
+  private static final int OPERATIONS = 50_000;
+  /** The range of keys in the reference test, small enough to produce many removals. */
+  private static final int KEY_RANGE = 5_000;
+  /** One in this many operations of the snapshot reference test is a removal. */
+  private static final int REMOVAL_ODDS = 3;
+  /** The amount of operations between snapshots in the reference test. */
+  private static final int SNAPSHOT_INTERVAL = 5_000;
+  /** The amount of keys sharing a full hash in the collision tests. */
+  private static final int COLLIDING = 5;
+  /** The hash shared by all colliding keys. */
+  private static final int SHARED_HASH = 42;
+
+  @Test
+  void snapshotIsUnaffectedByLaterMutation() {
+    TrieMap<String, Integer> map = new TrieMap<>();
+    for(int i = 0; i < KEY_RANGE; i++) map.put("k" + i, i);
+    Map<String, Integer> expected = new HashMap<>(map);
+    TrieMap<String, Integer> snapshot = map.snapshot();
+    for(int i = 0; i < KEY_RANGE; i += 2) map.remove("k" + i);
+    for(int i = 1; i < KEY_RANGE; i += 2) map.put("k" + i, -i);
+    map.put("new", 0);
+    assertEquals(expected, snapshot);
+    assertEquals(expected.size(), snapshot.size());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.put("k0", 0));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("k0"));
+  }
+
+  @Test
+  void mutatingCopyLeavesSourceUnchanged() {
+    TrieMap<String, Integer> source = new TrieMap<>();
+    for(int i = 0; i < KEY_RANGE; i++) source.put("k" + i, i);
+    TrieMap<String, Integer> built = source.snapshot();
+    Map<String, Integer> expected = new HashMap<>(built);
+    TrieMap<String, Integer> copy = built.mutableCopy();
+    for(int i = 0; i < KEY_RANGE; i += 2) copy.remove("k" + i);
+    for(int i = 1; i < KEY_RANGE; i += 2) copy.put("k" + i, -i);
+    copy.put("new", 0);
+    assertEquals(expected, built);
+    assertEquals(KEY_RANGE / 2 + 1, copy.size());
+    assertEquals(Integer.valueOf(-1), copy.get("k1"));
+    assertEquals(Integer.valueOf(1), built.get("k1"));
+  }
+
+  @Test
+  void collidingKeysCanBeRemoved() {
+    TrieMap<Collider, Integer> map = new TrieMap<>();
+    map.put(new Collider("other", 0), -1);
+    for(int i = 0; i < COLLIDING; i++) assertNull(map.put(new Collider("c" + i, SHARED_HASH), i));
+    assertEquals(COLLIDING + 1, map.size());
+    for(int i = 0; i < COLLIDING; i++) assertEquals(Integer.valueOf(i), map.get(new Collider("c" + i, SHARED_HASH)));
+    assertNull(map.get(new Collider("missing", SHARED_HASH)));
+    assertNull(map.remove(new Collider("missing", SHARED_HASH)));
+    TrieMap<Collider, Integer> snapshot = map.snapshot();
+    // remove down to a single colliding key and then to none, so that the collision node collapses
+    for(int i = 0; i < COLLIDING; i++) {
+      assertEquals(Integer.valueOf(i), map.remove(new Collider("c" + i, SHARED_HASH)));
+      assertFalse(map.containsKey(new Collider("c" + i, SHARED_HASH)));
+      for(int j = i + 1; j < COLLIDING; j++)
+        assertEquals(Integer.valueOf(j), map.get(new Collider("c" + j, SHARED_HASH)));
+      assertEquals(COLLIDING - i, map.size());
+    }
+    assertEquals(Integer.valueOf(-1), map.get(new Collider("other", 0)));
+    assertEquals(Integer.valueOf(-1), map.remove(new Collider("other", 0)));
+    assertTrue(map.isEmpty());
+    map.put(new Collider("c0", SHARED_HASH), 0);
+    assertEquals(1, map.size());
+    // the snapshot shares the collision node, which must not have been modified in place
+    assertEquals(COLLIDING + 1, snapshot.size());
+    for(int i = 0; i < COLLIDING; i++)
+      assertEquals(Integer.valueOf(i), snapshot.get(new Collider("c" + i, SHARED_HASH)));
+  }
+
+  @Test
+  void matchesReferenceUnderRandomOperations() {
+    Random random = new Random(0);
+    TrieMap<String, Integer> map = new TrieMap<>();
+    Map<String, Integer> reference = new HashMap<>();
+    List<TrieMap<String, Integer>> snapshots = new ArrayList<>();
+    List<Map<String, Integer>> expectedSnapshots = new ArrayList<>();
+    for(int i = 0; i < OPERATIONS; i++) {
+      String key = "k" + random.nextInt(KEY_RANGE);
+      if(random.nextInt(REMOVAL_ODDS) == 0) assertEquals(reference.remove(key), map.remove(key));
+      else assertEquals(reference.put(key, i), map.put(key, i));
+      assertEquals(reference.size(), map.size());
+      if(i % SNAPSHOT_INTERVAL == 0) {
+        snapshots.add(map.snapshot());
+        expectedSnapshots.add(new HashMap<>(reference));
+      }
+    }
+    assertEquals(reference, map);
+    assertConsistentIteration(map);
+    for(int i = 0; i < snapshots.size(); i++) {
+      assertEquals(expectedSnapshots.get(i), snapshots.get(i));
+      assertConsistentIteration(snapshots.get(i));
+    }
+  }
+
+  /**
+   * Checks that iteration visits every entry exactly once, and that {@link TrieMap#forEach} and the entry set
+   * iterate in the same order. The order itself is determined by the trie and differs from the order of HashMap.
+   *
+   * @param map the map to check
+   */
+  private static void assertConsistentIteration(TrieMap<String, Integer> map) {
+    List<String> iterated = new ArrayList<>();
+    map.entrySet().forEach(entry -> iterated.add(entry.getKey() + '=' + entry.getValue()));
+    List<String> visited = new ArrayList<>();
+    map.forEach((key, value) -> visited.add(key + '=' + value));
+    assertEquals(iterated, visited);
+    assertEquals(map.size(), iterated.size());
+    Set<String> distinct = new HashSet<>(iterated);
+    assertEquals(iterated.size(), distinct.size());
+  }
+
+  /** A key with a fixed hash code, so that distinct keys can share a full hash. */
+  private static final class Collider {
+    /** The name distinguishing keys of the same hash. */
+    private final String name;
+    /** The hash code. */
+    private final int hash;
+
+    /**
+     * Constructs a new key.
+     *
+     * @param name the name distinguishing keys of the same hash
+     * @param hash the hash code
+     */
+    Collider(String name, int hash) {
+      this.name = name;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Collider && name.equals(((Collider) o).name) && hash == ((Collider) o).hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
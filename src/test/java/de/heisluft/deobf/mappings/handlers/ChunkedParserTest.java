@@ -0,0 +1,177 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import de.heisluft.deobf.mappings.MappingsHandler;
+import de.heisluft.deobf.mappings.MappingsHandlers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class ChunkedParserTest {
+
+  /** The amount of classes of the parsed mappings, enough for files far above the parallel parsing threshold. */
+  private static final int CLASSES = 12_000;
+  /** The amount of fields and methods per class. */
+  private static final int MEMBERS = 3;
+  /** The parallelism of the pool to parse on. */
+  private static final int PARALLELISM = 4;
+  /** The largest amount of chunks to split the small inputs into, more than they have bytes. */
+  private static final int MAX_CHUNKS = 20;
+
+  /** The directory to write the parsed files to. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void splitNeverSeparatesLineTerminators() {
+    for(String separator : new String[]{"\n", "\r\n", "\r"}) {
+      for(String end : new String[]{"", separator}) {
+        byte[] content = String.join(separator, "ab", "", "cde", "f", "last line").concat(end)
+            .getBytes(StandardCharsets.UTF_8);
+        for(int chunks = 1; chunks <= MAX_CHUNKS; chunks++) {
+          int[] bounds = ChunkedParser.split(ByteBuffer.wrap(content), chunks);
+          assertEquals(0, bounds[0]);
+          assertEquals(content.length, bounds[bounds.length - 1]);
+          for(int i = 1; i < bounds.length - 1; i++) {
+            int bound = bounds[i];
+            assertTrue(bound > bounds[i - 1], "bounds must increase");
+            // chunks end right after a terminator, never between \r and \n, and the last line is never split
+            assertTrue(content[bound - 1] == '\n' || content[bound - 1] == '\r', "bound after terminator");
+            assertTrue(content[bound - 1] != '\r' || content[bound] != '\n', "bound within \\r\\n");
+          }
+          assertEquals(lines(ByteBuffer.wrap(content)), chunkedLines(content, bounds));
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"srg", "frg", "frg2", "rgs", "exc"})
+  void parallelParseEqualsSequential(String format) throws IOException {
+    MappingsHandler handler = MappingsHandlers.findHandler(format);
+    Path written = dir.resolve("written." + format);
+    handler.writeMappings(generate(), written);
+    String content = new String(Files.readAllBytes(written), StandardCharsets.UTF_8);
+    ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    try {
+      for(String separator : new String[]{"\n", "\r\n"}) {
+        String converted = content.replace(System.lineSeparator(), separator);
+        // with and without a terminator after the last line
+        for(String variant : new String[]{converted, converted.substring(0, converted.length() - separator.length())}) {
+          Path input = dir.resolve("input." + format);
+          Files.write(input, variant.getBytes(StandardCharsets.UTF_8));
+          List<String> expected = dump(handler.parseMappings(input));
+          assertEquals(expected, dump(handler.parseMappings(input, pool)));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void malformedChunkThrowsLikeSequentialParsing() throws IOException {
+    MappingsHandler handler = MappingsHandlers.findHandler("srg");
+    Path input = dir.resolve("malformed.srg");
+    handler.writeMappings(generate(), input);
+    List<String> lines = new ArrayList<>(Files.readAllLines(input));
+    lines.add(lines.size() * 2 / MEMBERS, "XX: malformed line");
+    Files.write(input, lines);
+    IOException sequential = assertThrows(IOException.class, () -> handler.parseMappings(input));
+    ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    try {
+      IOException parallel = assertThrows(IOException.class, () -> handler.parseMappings(input, pool));
+      assertEquals(sequential.getMessage(), parallel.getMessage());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Generates mappings large enough to be parsed in parallel.
+   *
+   * @return the mappings
+   */
+  private static Mappings generate() {
+    MappingsBuilder builder = new MappingsBuilder();
+    for(int c = 0; c < CLASSES; c++) {
+      String cName = "pkg" + c % MEMBERS + "/C" + c;
+      builder.addClassMapping(cName, "mapped/Class" + c);
+      for(int m = 0; m < MEMBERS; m++) {
+        builder.addFieldMapping(cName, "f" + m, "I", "field" + c + "_" + m);
+        builder.addMethodMapping(cName, "m" + m, "(I)V", "method" + c + "_" + m);
+      }
+      if(c % MEMBERS == 0) {
+        builder.addExceptions(cName, "m0", "(I)V", Collections.singleton("java/io/IOException"));
+        builder.setParameters(cName, "m0", "(I)V", Arrays.asList("p0"));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads all lines of content.
+   *
+   * @param content the content to read
+   * @return the lines
+   */
+  private static List<String> lines(ByteBuffer content) {
+    List<String> lines = new ArrayList<>();
+    try(LineTokenizer tokenizer = new LineTokenizer(content)) {
+      while(tokenizer.next()) lines.add(tokenizer.line());
+    } catch(IOException e) {
+      throw new AssertionError(e);
+    }
+    return lines;
+  }
+
+  /**
+   * Reads all lines of content chunk by chunk.
+   *
+   * @param content the content to read
+   * @param bounds the chunk boundaries
+   * @return the lines of all chunks
+   */
+  private static List<String> chunkedLines(byte[] content, int[] bounds) {
+    List<String> lines = new ArrayList<>();
+    for(int i = 1; i < bounds.length; i++)
+      lines.addAll(lines(ByteBuffer.wrap(content, bounds[i - 1], bounds[i] - bounds[i - 1]).slice()));
+    return lines;
+  }
+
+  /**
+   * Lists all entries of mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllPackages((name, relocated) -> lines.add("PK " + name + ' ' + relocated));
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.streamExtraData().forEach(extra -> lines.add("EX " + extra.getClassName() + ' ' + extra.getMethodName()
+        + extra.getDescriptor() + ' ' + new TreeSet<>(extra.getExceptions()) + ' ' + extra.getParameters()));
+    Collections.sort(lines);
+    return lines;
+  }
+}
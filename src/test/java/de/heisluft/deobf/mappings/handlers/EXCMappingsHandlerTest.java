@@ -0,0 +1,69 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class EXCMappingsHandlerTest {
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+  /** The handler under test. */
+  private final EXCMappingsHandler handler = new EXCMappingsHandler();
+
+  @Test
+  void emptyListsParseEmpty() throws IOException {
+    Path file = dir.resolve("empty.exc");
+    Files.write(file, Arrays.asList("a/A.m()V=|self", "a/A.n(I)V=java/io/IOException|"), StandardCharsets.UTF_8);
+    Mappings mappings = handler.parseMappings(file);
+    assertTrue(mappings.getExceptions("a/A", "m", "()V").isEmpty());
+    assertEquals(Collections.singletonList("self"), mappings.getParameters("a/A", "m", "()V"));
+    assertEquals(Collections.singleton("java/io/IOException"), mappings.getExceptions("a/A", "n", "(I)V"));
+    assertTrue(mappings.getParameters("a/A", "n", "(I)V").isEmpty());
+  }
+
+  @Test
+  void writtenMappingsReadBackEqual() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addExceptions("a/A", "m", "(La/A;I)V", Arrays.asList("java/io/IOException", "a/Failure"));
+    builder.setParameters("a/A", "m", "(La/A;I)V", Arrays.asList("self", "count"));
+    builder.addExceptions("a/A", "<init>", "()V", Collections.singleton("java/lang/Exception"));
+    builder.setParameters("a/B", "n", "(J)V", Collections.singletonList("time"));
+    Mappings mappings = builder.build();
+    Path file = dir.resolve("mappings.exc");
+    handler.writeMappings(mappings, file);
+    assertEquals(Arrays.asList("a/A.<init>()V=java/lang/Exception|",
+        "a/A.m(La/A;I)V=a/Failure,java/io/IOException|self,count", "a/B.n(J)V=|time"),
+        Files.readAllLines(file, StandardCharsets.UTF_8));
+    assertEquals(dump(mappings), dump(handler.parseMappings(file)));
+  }
+
+  /**
+   * Lists the exceptions and parameters of all methods in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.streamExtraData().forEach(extra -> lines.add(extra.getClassName() + ' ' + extra.getMethodName()
+        + extra.getDescriptor() + ' ' + new TreeSet<>(extra.getExceptions()) + ' ' + extra.getParameters()));
+    Collections.sort(lines);
+    return lines;
+  }
+}
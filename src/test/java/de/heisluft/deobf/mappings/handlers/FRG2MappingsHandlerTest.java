@@ -0,0 +1,61 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+final class FRG2MappingsHandlerTest {
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void outputEqualsSortedLines() throws IOException {
+    Mappings mappings = FRGMappingsHandlerTest.generate();
+    Path written = dir.resolve("written.frg2");
+    new FRG2MappingsHandler().writeMappings(mappings, written);
+    Path expected = dir.resolve("expected.frg2");
+    List<String> lines = new ArrayList<>();
+    mappings.forAllClasses((k, v) -> lines.add(k + " " + v));
+    lines.sort(Comparator.naturalOrder());
+    List<String> fLines = new ArrayList<>();
+    mappings.forAllFields((clsName, obfName, obfDesc, deobfName) ->
+        fLines.add(clsName + " " + obfName + " " + obfDesc + " " + deobfName)
+    );
+    fLines.sort(Comparator.naturalOrder());
+    lines.addAll(fLines);
+    List<String> mLines = new ArrayList<>();
+    // members are joined with spaces, joining them without would let e.g. p/_ _b and p/__ b collide
+    Set<String> addedExceptions = new HashSet<>();
+    mappings.forAllMethods((clsName, obfName, obfDesc, deobfName) -> {
+      String member = clsName + " " + obfName + " " + obfDesc;
+      StringBuilder line = new StringBuilder(member + " " + deobfName);
+      if(mappings.hasExceptionsFor(clsName, obfName, obfDesc)) addedExceptions.add(member);
+      mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
+      mLines.add(line.toString());
+    });
+    mappings.forAllExceptions((clsName, obfName, obfDesc, data) -> {
+      String member = clsName + " " + obfName + " " + obfDesc;
+      if(addedExceptions.contains(member)) return;
+      StringBuilder line = new StringBuilder(member + " ;");
+      data.stream().sorted().forEach(s -> line.append(" ").append(s));
+      mLines.add(line.toString());
+    });
+    mLines.sort(Comparator.naturalOrder());
+    lines.addAll(mLines);
+    Files.write(expected, lines);
+    assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(written));
+  }
+}
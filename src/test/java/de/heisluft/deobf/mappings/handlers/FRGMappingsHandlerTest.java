@@ -0,0 +1,118 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+final class FRGMappingsHandlerTest {
+
+  /** The amount of generated classes. */
+  private static final int CLASSES = 400;
+  /** The maximum amount of fields and methods per generated class. */
+  private static final int MEMBERS = 6;
+  /** The maximum length of generated names, short enough for names to often be prefixes of each other. */
+  private static final int MAX_NAME_LENGTH = 3;
+  /** The characters of generated names. */
+  private static final String NAME_CHARS = "ab_";
+  /** The descriptors of generated fields, {@code null} for fields without descriptor. */
+  private static final String[] FIELD_DESCRIPTORS = {"I", "J", "La/A;", null};
+  /** The descriptors of generated methods. */
+  private static final String[] METHOD_DESCRIPTORS = {"()V", "()I", "(I)V", "(La/A;)V"};
+  /** The exceptions of generated methods. */
+  private static final List<String> EXCEPTIONS = Arrays.asList("java/io/IOException", "a/E", "a/E2");
+  /** The amount of kinds of generated methods, see {@link #generate()}. */
+  private static final int METHOD_KINDS = 4;
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+
+  @Test
+  void outputEqualsSortedLines() throws IOException {
+    Mappings mappings = generate();
+    Path written = dir.resolve("written.frg");
+    new FRGMappingsHandler().writeMappings(mappings, written);
+    Path expected = dir.resolve("expected.frg");
+    List<String> lines = new ArrayList<>();
+    mappings.forAllClasses((k, v) -> lines.add("CL: " + k + " " + v));
+    mappings.forAllFields((clsName, obfName, obfDesc, deobfName) ->
+        lines.add("FD: " + clsName + " " + obfName + " " + deobfName)
+    );
+    mappings.forAllMethods((clsName, obfName, obfDesc, deobfName) -> {
+      StringBuilder line = new StringBuilder("MD: " + clsName + " " + obfName + " " + obfDesc + " " + deobfName);
+      mappings.getExceptions(clsName, obfName, obfDesc).stream().sorted().forEach(s -> line.append(" ").append(s));
+      lines.add(line.toString());
+    });
+    lines.sort(Comparator.naturalOrder());
+    Files.write(expected, lines);
+    assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(written));
+  }
+
+  /**
+   * Generates random mappings with all kinds of entries the FRG formats can hold, whose names are often prefixes of
+   * each other.
+   *
+   * @return the mappings
+   */
+  static Mappings generate() {
+    Random random = new Random(0);
+    MappingsBuilder builder = new MappingsBuilder();
+    for(int c = 0; c < CLASSES; c++) {
+      String cName = "p/" + name(random);
+      if(random.nextBoolean()) builder.addClassMapping(cName, "q/" + name(random));
+      for(int f = random.nextInt(MEMBERS); f > 0; f--) {
+        String desc = FIELD_DESCRIPTORS[random.nextInt(FIELD_DESCRIPTORS.length)];
+        if(desc == null) builder.addFieldMapping(cName, name(random), name(random));
+        else builder.addFieldMapping(cName, name(random), desc, name(random));
+      }
+      for(int m = random.nextInt(MEMBERS); m > 0; m--) {
+        String name = name(random);
+        String desc = METHOD_DESCRIPTORS[random.nextInt(METHOD_DESCRIPTORS.length)];
+        // mapped, mapped with exceptions, exceptions only and parameters only
+        int kind = random.nextInt(METHOD_KINDS);
+        if(kind < 2) builder.addMethodMapping(cName, name, desc, name(random));
+        if(kind == 1 || kind == 2) builder.addExceptions(cName, name, desc, exceptions(random));
+        if(kind == METHOD_KINDS - 1) builder.setParameters(cName, name, desc, Arrays.asList("p", "q"));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Generates a short random name.
+   *
+   * @param random the source of randomness
+   * @return the name
+   */
+  private static String name(Random random) {
+    StringBuilder name = new StringBuilder();
+    for(int i = random.nextInt(MAX_NAME_LENGTH) + 1; i > 0; i--)
+      name.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+    return name.toString();
+  }
+
+  /**
+   * Picks random exceptions in random order.
+   *
+   * @param random the source of randomness
+   * @return at least one exception
+   */
+  private static List<String> exceptions(Random random) {
+    List<String> exceptions = new ArrayList<>(EXCEPTIONS);
+    Collections.shuffle(exceptions, random);
+    return exceptions.subList(0, random.nextInt(exceptions.size()) + 1);
+  }
+}
@@ -0,0 +1,144 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class MBINMappingsHandlerTest {
+
+  /** The magic number of MBIN files. */
+  private static final int MAGIC = 0x4D42494E;
+  /** The tag of the string table section. */
+  private static final int STRINGS = 1;
+  /** The tag of the class mapping section. */
+  private static final int CLASSES = 3;
+  /** The tag of the method mapping section. */
+  private static final int METHODS = 5;
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+  /** The handler under test. */
+  private final MBINMappingsHandler handler = new MBINMappingsHandler();
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void writtenMappingsReadBackEqual() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addPackageRelocation("^c/[^/]+$", "d/");
+    builder.addClassMapping("a/A", "b/Renamed");
+    builder.addClassMapping("a/Unmapped", null);
+    builder.addFieldMapping("a/A", "undescribed", "renamedField");
+    builder.addFieldMapping("a/A", "described", "La/A;", "renamedDescribed");
+    builder.addMethodMapping("a/A", "m", "(La/A;I)V", "renamedMethod");
+    builder.addExceptions("a/A", "m", "(La/A;I)V", Arrays.asList("java/io/IOException", "a/Failure"));
+    builder.setParameters("a/A", "m", "(La/A;I)V", Arrays.asList("self", "count"));
+    builder.addExceptions("a/A", "<init>", "()V", Collections.singleton("java/lang/Exception"));
+    builder.setParameters("a/B", "n", "(J)V", Collections.singletonList("time"));
+    Mappings mappings = builder.build();
+    Path file = dir.resolve("mappings.mbin");
+    handler.writeMappings(mappings, file);
+    Mappings read = handler.parseMappings(file);
+    assertEquals(dump(mappings), dump(read));
+    assertEquals("b/Renamed", read.getClassName("a/A"));
+    assertEquals("renamedField", read.getFieldName("a/A", "undescribed", "I"));
+    assertEquals(Arrays.asList("self", "count"), read.getParameters("a/A", "m", "(La/A;I)V"));
+  }
+
+  @Test
+  void nullClassKeyIsRejected() throws IOException {
+    Path file = dir.resolve("class.mbin");
+    try(DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+      writeHeader(out);
+      writeRecords(out, CLASSES, -1, 0);
+    }
+    IOException e = assertThrows(IOException.class, () -> handler.parseMappings(file));
+    assertEquals("Invalid string index -1 for a key", e.getMessage());
+  }
+
+  @Test
+  void nullMemberKeyIsRejected() throws IOException {
+    Path file = dir.resolve("method.mbin");
+    try(DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+      writeHeader(out);
+      writeRecords(out, METHODS, 0, -1, 0, 0);
+    }
+    IOException e = assertThrows(IOException.class, () -> handler.parseMappings(file));
+    assertEquals("Invalid string index -1 for a key", e.getMessage());
+  }
+
+  @Test
+  void outOfBoundsIndexIsRejected() throws IOException {
+    Path file = dir.resolve("bounds.mbin");
+    try(DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+      writeHeader(out);
+      writeRecords(out, CLASSES, 0, 1);
+    }
+    IOException e = assertThrows(IOException.class, () -> handler.parseMappings(file));
+    assertEquals("Invalid string index 1", e.getMessage());
+  }
+
+  /**
+   * Writes the file header and a string table only containing {@code "a"}.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the stream could not be written to
+   */
+  private static void writeHeader(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeShort(1);
+    out.writeShort(0);
+    out.writeByte(STRINGS);
+    out.writeInt(Integer.BYTES * 2 + 1);
+    out.writeInt(1);
+    out.writeInt(1);
+    out.writeByte('a');
+  }
+
+  /**
+   * Writes a section with a single record.
+   *
+   * @param out the stream to write to
+   * @param tag the tag of the section
+   * @param indices the string indices of the record
+   * @throws IOException if the stream could not be written to
+   */
+  private static void writeRecords(DataOutputStream out, int tag, int... indices) throws IOException {
+    out.writeByte(tag);
+    out.writeInt(Integer.BYTES * (indices.length + 1));
+    out.writeInt(1);
+    for(int index : indices) out.writeInt(index);
+  }
+
+  /**
+   * Lists all entries of mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllPackages((name, relocated) -> lines.add("PK " + name + ' ' + relocated));
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.streamExtraData().forEach(extra -> lines.add("EX " + extra.getClassName() + ' ' + extra.getMethodName()
+        + extra.getDescriptor() + ' ' + new TreeSet<>(extra.getExceptions()) + ' ' + extra.getParameters()));
+    Collections.sort(lines);
+    return lines;
+  }
+}
@@ -0,0 +1,72 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+final class RGSMappingsHandlerTest {
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+  /** The handler under test. */
+  private final RGSMappingsHandler handler = new RGSMappingsHandler();
+
+  @Test
+  void writtenMappingsReadBackEqual() throws IOException {
+    Path source = dir.resolve("source.rgs");
+    Files.write(source, Arrays.asList("# relocations", ".class a/*", ".class b/c/**", ".class d/e/*", ".class f/**",
+        ".class_map a/A b/Renamed", ".field_map a/A/f second", ".field_map a/A/e first", ".method_map a/A/m (La/A;)V n",
+        ".method_map d/e/B/o ()I p"), StandardCharsets.UTF_8);
+    Mappings parsed = handler.parseMappings(source);
+    Path file = dir.resolve("mappings.rgs");
+    handler.writeMappings(parsed, file);
+    assertEquals(Arrays.asList(".class a/*", ".class b/c/**", ".class d/e/*", ".class f/**", ".class_map a/A b/Renamed",
+        ".field_map a/A/e first", ".field_map a/A/f second", ".method_map a/A/m (La/A;)V n",
+        ".method_map d/e/B/o ()I p"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    Mappings read = handler.parseMappings(file);
+    assertEquals(dump(parsed), dump(read));
+    assertEquals("b/c/A2", read.getClassName("a/A2"));
+    assertEquals("f/B", read.getClassName("d/e/B"));
+  }
+
+  @Test
+  void relocationsWithoutGlobAreLeftOut() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addPackageRelocation("^a/[^\\/]+$", "b/");
+    builder.addPackageRelocation("^c/.*$", "d/");
+    builder.addClassMapping("a/A", "b/Renamed");
+    Path file = dir.resolve("mappings.rgs");
+    handler.writeMappings(builder.build(), file);
+    assertEquals(Arrays.asList(".class a/*", ".class b/**", ".class_map a/A b/Renamed"),
+        Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Lists all package relocations, class and member mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllPackages((pattern, target) -> lines.add("PK " + pattern + ' ' + target));
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    Collections.sort(lines);
+    return lines;
+  }
+}
@@ -0,0 +1,61 @@
+package de.heisluft.deobf.mappings.handlers;
+
+import de.heisluft.deobf.mappings.Mappings;
+import de.heisluft.deobf.mappings.MappingsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+final class SRGMappingsHandlerTest {
+
+  /** The directory to write files to. */
+  @TempDir
+  Path dir;
+  /** The handler under test. */
+  private final SRGMappingsHandler handler = new SRGMappingsHandler();
+
+  @Test
+  void writtenMappingsReadBackEqual() throws IOException {
+    MappingsBuilder builder = new MappingsBuilder();
+    builder.addClassMapping("a/A", "b/Renamed");
+    builder.addClassMapping("a/B", "b/Other");
+    builder.addFieldMapping("a/A", "f", "second");
+    builder.addFieldMapping("a/A", "e", "first");
+    builder.addFieldMapping("a/C", "g", "unmappedOwner");
+    builder.addMethodMapping("a/A", "m", "(La/B;I)La/C;", "renamedMethod");
+    builder.addMethodMapping("a/C", "n", "()V", "other");
+    Mappings mappings = builder.build();
+    Path file = dir.resolve("mappings.srg");
+    handler.writeMappings(mappings, file);
+    // the right-hand side holds mapped owners and descriptors, like srg files written by other tools
+    assertEquals(Arrays.asList("CL: a/A b/Renamed", "CL: a/B b/Other", "FD: a/A/e b/Renamed/first",
+        "FD: a/A/f b/Renamed/second", "FD: a/C/g a/C/unmappedOwner", "MD: a/A/m (La/B;I)La/C; b/Renamed/renamedMethod "
+            + "(Lb/Other;I)La/C;", "MD: a/C/n ()V a/C/other ()V"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    assertEquals(dump(mappings), dump(handler.parseMappings(file)));
+  }
+
+  /**
+   * Lists all class and member mappings in a canonical order.
+   *
+   * @param mappings the mappings
+   * @return the sorted entries
+   */
+  private static List<String> dump(Mappings mappings) {
+    List<String> lines = new ArrayList<>();
+    mappings.forAllClasses((name, mapped) -> lines.add("CL " + name + ' ' + mapped));
+    mappings.forAllFields((cName, name, desc, mapped) -> lines.add("FD " + cName + ' ' + name + desc + ' ' + mapped));
+    mappings.forAllMethods((cName, name, desc, mapped) -> lines.add("MD " + cName + ' ' + name + desc + ' ' + mapped));
+    Collections.sort(lines);
+    return lines;
+  }
+}